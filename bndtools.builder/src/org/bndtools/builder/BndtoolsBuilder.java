@@ -62,8 +62,11 @@ public class BndtoolsBuilder extends IncrementalProjectBuilder {
     private static final ILogger logger = Logger.getLogger(BndtoolsBuilder.class);
     static final Set<Project> dirty = Collections.newSetFromMap(new ConcurrentHashMap<Project,Boolean>());
 
+    private static final UpstreamIndex upstreamIndex;
+
     static {
         CnfWatcher.install();
+        upstreamIndex = UpstreamIndex.install();
     }
 
     private Project model;
@@ -115,6 +118,13 @@ public class BndtoolsBuilder extends IncrementalProjectBuilder {
                     return noreport();
             }
 
+            // the build uses the repositories, so do the refresh deferred at startup now
+            try {
+                Central.refreshDeferredRepositories();
+            } catch (Exception e) {
+                logger.logWarning("Unable to refresh the repositories before building", e);
+            }
+
             try {
                 return Central.bndCall(new Callable<IProject[]>() {
                     @Override
@@ -153,11 +163,12 @@ public class BndtoolsBuilder extends IncrementalProjectBuilder {
                             model.setDelayRunDependencies(true);
                             model.prepare();
 
-                            markers.validate(model);
+                            markers.validate(model, buildLog);
                             markers.setMarkers(model, BndtoolsConstants.MARKER_BND_PATH_PROBLEM);
                             model.clear();
 
                             dependsOn = calculateDependsOn(model);
+                            upstreamIndex.setDependencies(myProject, dependsOn);
 
                             if (setBuildOrder(monitor)) {
                                 buildLog.basic("Build order changed");
@@ -181,7 +192,12 @@ public class BndtoolsBuilder extends IncrementalProjectBuilder {
                             force = true;
                         }
 
-                        if (!force && hasUpstreamChanges()) {
+                        //
+                        // Always ask, this also resets the upstream change
+                        // flag when we build for another reason
+                        //
+                        boolean upstreamChanged = hasUpstreamChanges();
+                        if (!force && upstreamChanged) {
                             buildLog.basic("project had upstream changes");
                             force = true;
                         }
@@ -216,6 +232,7 @@ public class BndtoolsBuilder extends IncrementalProjectBuilder {
                                 if (actionOnCompileError == CompileErrorAction.delete) {
                                     buildLog.basic("Blocking errors, delete build files, quit");
                                     deleteBuildFiles(model);
+                                    upstreamIndex.buildFilesWritten(myProject);
                                     model.error("Will not build project %s until the compilation and/or path problems are fixed, output files are deleted.", myProject.getName());
                                 } else {
                                     buildLog.basic("Blocking errors, leave old build files, quit");
@@ -232,6 +249,7 @@ public class BndtoolsBuilder extends IncrementalProjectBuilder {
                         File buildFiles[] = model.build();
 
                         if (buildFiles != null) {
+                            upstreamIndex.buildFilesWritten(myProject);
                             listeners.updateListeners(buildFiles, myProject);
                             buildLog.setFiles(buildFiles.length);
                         }
@@ -305,6 +323,7 @@ public class BndtoolsBuilder extends IncrementalProjectBuilder {
                     @Override
                     public Void call() throws Exception {
                         model.clean();
+                        upstreamIndex.buildFilesWritten(getProject());
                         return null;
                     }
                 }, monitor);
@@ -324,10 +343,20 @@ public class BndtoolsBuilder extends IncrementalProjectBuilder {
     }
 
     /*
-     * Check if any of the projects of which we depend has changes.
-     * We use the generated/buildfiles as the marker.
+     * Check if any of the projects of which we depend has changes. The
+     * upstream index knows this once it has our dependencies. The first
+     * time after a restart we look for the generated/buildfiles in the
+     * deltas of the upstream projects.
      */
     private boolean hasUpstreamChanges() throws Exception {
+        IProject myProject = getProject();
+        if (upstreamIndex.isTracked(myProject)) {
+            boolean changed = upstreamIndex.takeUpstreamChanges(myProject);
+            if (changed)
+                buildLog.full("Upstream index has changes");
+            return changed;
+        }
+        upstreamIndex.setDependencies(myProject, dependsOn);
 
         for (IProject upstream : dependsOn) {
             if (!upstream.exists())
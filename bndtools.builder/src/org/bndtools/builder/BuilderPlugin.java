@@ -1,9 +1,12 @@
 package org.bndtools.builder;
 
 import org.bndtools.build.api.IProjectDecorator;
+import org.bndtools.builder.classpath.ClasspathFingerprint;
 import org.bndtools.builder.decorator.ui.ProjectDecoratorImpl;
 import org.osgi.framework.BundleContext;
 
+import aQute.bnd.service.RepositoryListenerPlugin;
+
 public class BuilderPlugin extends org.eclipse.core.runtime.Plugin {
 
     private static BuilderPlugin instance = null;
@@ -21,6 +24,7 @@ public class BuilderPlugin extends org.eclipse.core.runtime.Plugin {
             instance = this;
         }
         context.registerService(IProjectDecorator.class, new ProjectDecoratorImpl(), null);
+        context.registerService(RepositoryListenerPlugin.class, new ClasspathFingerprint.RepositoryListener(), null);
     }
 
     @Override
@@ -18,6 +18,7 @@ import aQute.bnd.osgi.Constants;
 import aQute.bnd.osgi.Instructions;
 import aQute.bnd.osgi.Processor;
 import aQute.lib.io.IO;
+import aQute.lib.strings.Strings;
 import bndtools.central.Central;
 
 class DeltaWrapper {
@@ -26,6 +27,7 @@ class DeltaWrapper {
     private final Project model;
     private final IResourceDelta delta;
     private final BuildLogger log;
+    private ProjectLayout layout;
 
     DeltaWrapper(Project model, IResourceDelta delta, BuildLogger log) {
         this.model = model;
@@ -82,6 +84,7 @@ class DeltaWrapper {
             return true;
         }
 
+        final ProjectLayout layout = getLayout();
         final AtomicBoolean result = new AtomicBoolean(false);
         delta.accept(new IResourceDeltaVisitor() {
 
@@ -95,23 +98,17 @@ class DeltaWrapper {
                 if (resource.getType() == IResource.ROOT || resource.getType() == IResource.PROJECT)
                     return true;
 
-                String path = resource.getProjectRelativePath().toString();
+                IPath path = resource.getFullPath();
 
                 if (resource.getType() == IResource.FOLDER) {
-                    if (check(path, model.getProperty(Constants.DEFAULT_PROP_SRC_DIR)) //
-                            || check(path, model.getProperty(Constants.DEFAULT_PROP_TESTSRC_DIR)) //
-                            || check(path, model.getProperty(Constants.DEFAULT_PROP_TESTBIN_DIR)) //
-                            || check(path, model.getProperty(Constants.DEFAULT_PROP_TARGET_DIR))) {
+                    if (layout.isGenerated(path))
                         return false;
-
-                    }
-
                 }
 
                 if (IResourceDelta.MARKERS == delta.getFlags())
                     return false;
 
-                if (check(path, Project.BNDFILE))
+                if (layout.isBndFile(path))
                     return false;
 
                 log.basic("%s changed", resource);
@@ -180,23 +177,85 @@ class DeltaWrapper {
         return false;
     }
 
-    static boolean check(String changed, String prefix) {
-        if (changed.equals(prefix))
-            return true;
+    public boolean isTestBin(IResource resource) {
+        return getLayout().isTestSrc(resource.getFullPath());
+    }
 
-        if (changed.length() <= prefix.length())
-            return false;
+    private ProjectLayout getLayout() {
+        if (layout == null)
+            layout = new ProjectLayout(model);
+        return layout;
+    }
 
-        char c = changed.charAt(prefix.length());
-        if (c == '/' && changed.startsWith(prefix))
-            return true;
+    /*
+     * The source, output and target directories of the project, expanded
+     * once per build. The directories are matched against the segments of
+     * the full path of a resource, skipping the project segment, so a
+     * match does not expand macros or create strings.
+     */
+    static final class ProjectLayout {
+        private final String[][] generated;
+        private final String[][] testSrc;
+        private final String[] bndFile;
+
+        ProjectLayout(Project model) {
+            List<String[]> dirs = new ArrayList<String[]>();
+            addDirs(dirs, model.getProperty(Constants.DEFAULT_PROP_SRC_DIR));
+            addDirs(dirs, model.getProperty(Constants.DEFAULT_PROP_TESTSRC_DIR));
+            addDirs(dirs, model.getProperty(Constants.DEFAULT_PROP_TESTBIN_DIR));
+            addDirs(dirs, model.getProperty(Constants.DEFAULT_PROP_TARGET_DIR));
+            generated = dirs.toArray(new String[dirs.size()][]);
+
+            dirs.clear();
+            addDirs(dirs, model.getProperty(Constants.DEFAULT_PROP_TESTSRC_DIR));
+            testSrc = dirs.toArray(new String[dirs.size()][]);
+
+            bndFile = new Path(Project.BNDFILE).segments();
+        }
 
-        return false;
-    }
+        boolean isGenerated(IPath fullPath) {
+            return matchesAny(fullPath, generated);
+        }
 
-    public boolean isTestBin(IResource resource) {
-        String path = resource.getProjectRelativePath().toString();
-        return check(path, model.getProperty(Constants.DEFAULT_PROP_TESTSRC_DIR));
+        boolean isTestSrc(IPath fullPath) {
+            return matchesAny(fullPath, testSrc);
+        }
+
+        boolean isBndFile(IPath fullPath) {
+            return matches(fullPath, bndFile);
+        }
+
+        private static void addDirs(List<String[]> dirs, String value) {
+            if (value == null)
+                return;
+            for (String dir : Strings.split(value)) {
+                String[] segments = new Path(dir).segments();
+                if (segments.length > 0)
+                    dirs.add(segments);
+            }
+        }
+
+        private static boolean matchesAny(IPath fullPath, String[][] prefixes) {
+            for (String[] prefix : prefixes) {
+                if (matches(fullPath, prefix))
+                    return true;
+            }
+            return false;
+        }
+
+        /*
+         * The project relative path is the prefix or lies below it. The
+         * first segment of the full path is the project.
+         */
+        static boolean matches(IPath fullPath, String[] prefix) {
+            if (fullPath.segmentCount() - 1 < prefix.length)
+                return false;
+            for (int i = 0; i < prefix.length; i++) {
+                if (!prefix[i].equals(fullPath.segment(i + 1)))
+                    return false;
+            }
+            return true;
+        }
     }
 
     /**
@@ -13,13 +13,18 @@ import static org.bndtools.api.BndtoolsConstants.MARKER_JAVA_BASELINE;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
 
 import org.bndtools.api.ILogger;
 import org.bndtools.api.IProjectValidator;
 import org.bndtools.api.IValidator;
 import org.bndtools.api.Logger;
+import org.bndtools.build.api.ASTCache;
 import org.bndtools.build.api.BuildErrorDetailsHandler;
 import org.bndtools.build.api.BuildErrorDetailsHandlers;
 import org.bndtools.build.api.DefaultBuildErrorDetailsHandler;
@@ -29,6 +34,9 @@ import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtension;
+import org.eclipse.core.runtime.IExtensionPoint;
+import org.eclipse.core.runtime.IRegistryEventListener;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.jdt.core.IJavaModelMarker;
@@ -43,6 +51,11 @@ import aQute.service.reporter.Reporter.SetLocation;
 
 class MarkerSupport {
     private static final ILogger logger = Logger.getLogger(BndtoolsBuilder.class);
+    private static final String VALIDATORS_EXTENSION_POINT = CORE_PLUGIN_ID + ".validators";
+
+    private static List<IValidator> validators;
+    private static IRegistryEventListener validatorsListener;
+
     private final IProject project;
 
     MarkerSupport(IProject project) {
@@ -74,8 +87,11 @@ class MarkerSupport {
 
     void setMarkers(Processor model, String markerType) throws Exception {
         deleteMarkers(markerType);
-        createMarkers(model, IMarker.SEVERITY_ERROR, model.getErrors(), markerType);
-        createMarkers(model, IMarker.SEVERITY_WARNING, model.getWarnings(), markerType);
+        // The handlers share the parsed sources while the markers are created
+        try (ASTCache cache = ASTCache.open()) {
+            createMarkers(model, IMarker.SEVERITY_ERROR, model.getErrors(), markerType);
+            createMarkers(model, IMarker.SEVERITY_WARNING, model.getWarnings(), markerType);
+        }
     }
 
     void deleteMarkers(String markerType) throws CoreException {
@@ -159,44 +175,104 @@ class MarkerSupport {
         return false;
     }
 
-    static List<IValidator> loadValidators() {
-        List<IValidator> validators = null;
+    /**
+     * @return The validators contributed to the validators extension point. They are instantiated once and shared
+     *         until the contributions change.
+     */
+    static synchronized List<IValidator> loadValidators() {
+        if (validators != null)
+            return validators;
+
+        if (validatorsListener == null) {
+            validatorsListener = new IRegistryEventListener() {
+                @Override
+                public void added(IExtension[] extensions) {
+                    resetValidators();
+                }
+
+                @Override
+                public void removed(IExtension[] extensions) {
+                    resetValidators();
+                }
+
+                @Override
+                public void added(IExtensionPoint[] extensionPoints) {
+                    resetValidators();
+                }
+
+                @Override
+                public void removed(IExtensionPoint[] extensionPoints) {
+                    resetValidators();
+                }
+            };
+            Platform.getExtensionRegistry().addListener(validatorsListener, VALIDATORS_EXTENSION_POINT);
+        }
+
+        List<IValidator> result = new ArrayList<IValidator>();
         IConfigurationElement[] validatorElems = Platform.getExtensionRegistry().getConfigurationElementsFor(CORE_PLUGIN_ID, "validators");
-        if (validatorElems != null && validatorElems.length > 0) {
-            validators = new ArrayList<IValidator>(validatorElems.length);
+        if (validatorElems != null) {
             for (IConfigurationElement elem : validatorElems) {
                 try {
-                    validators.add((IValidator) elem.createExecutableExtension("class"));
+                    result.add((IValidator) elem.createExecutableExtension("class"));
                 } catch (Exception e) {
                     logger.logError("Unable to instantiate validator: " + elem.getAttribute("name"), e);
                 }
             }
         }
+        validators = Collections.unmodifiableList(result);
         return validators;
     }
 
-    void validate(Project model) throws Exception {
-        List<IValidator> validators = loadValidators();
-        if (validators != null) {
+    static synchronized void resetValidators() {
+        validators = null;
+    }
+
+    /**
+     * Run the validators in order. The validators that are not project validators share a single set of sub-builders,
+     * whose reports are merged into the model once all validators ran. The validators run sequentially because the
+     * sub-builders share their parent processor with the model, and bnd processors are not thread safe.
+     */
+    void validate(Project model, BuildLogger buildLog) throws Exception {
+        List<IValidator> all = loadValidators();
+        if (all.isEmpty())
+            return;
 
-            for (IValidator v : validators) {
+        Map<IValidator,Long> timings = new LinkedHashMap<IValidator,Long>();
+        ProjectBuilder pb = null;
+        try {
+            List<Builder> subBuilders = null;
+            for (IValidator v : all) {
+                long start = System.nanoTime();
                 try {
                     if (v instanceof IProjectValidator) {
                         ((IProjectValidator) v).validateProject(model);
                     } else {
-                        try (ProjectBuilder pb = model.getBuilder(null)) {
-                            for (Builder builder : pb.getSubBuilders()) {
-                                IStatus status = v.validate(builder);
-                                report(builder, status);
-                                model.getInfo(builder);
-                            }
+                        if (subBuilders == null) {
+                            pb = model.getBuilder(null);
+                            subBuilders = pb.getSubBuilders();
+                        }
+                        for (Builder builder : subBuilders) {
+                            IStatus status = v.validate(builder);
+                            report(builder, status);
                         }
                     }
                 } catch (Exception e) {
                     logger.logError("Validator error", e);
+                } finally {
+                    timings.put(v, System.nanoTime() - start);
                 }
             }
+            if (subBuilders != null) {
+                for (Builder builder : subBuilders)
+                    model.getInfo(builder);
+            }
+        } finally {
+            if (pb != null)
+                pb.close();
         }
+
+        for (Entry<IValidator,Long> timing : timings.entrySet())
+            buildLog.full("Validator %s took %d ms", timing.getKey().getClass().getSimpleName(), TimeUnit.NANOSECONDS.toMillis(timing.getValue()));
     }
 
     private void report(Processor reporter, IStatus status) {
@@ -0,0 +1,195 @@
+package org.bndtools.builder;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.bndtools.api.ILogger;
+import org.bndtools.api.Logger;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+
+import aQute.bnd.build.Project;
+
+/**
+ * Reverse dependency index of the workspace projects. Each builder registers the projects it depends on; when a
+ * project's build files are written, either by {@link BndtoolsBuilder} or by anything that changes a
+ * <code>buildfiles</code> file in the workspace, every project that depends on it is marked as having upstream
+ * changes. A builder can then check for upstream changes without looking at the deltas of all of its upstream
+ * projects.
+ * <p>
+ * The build files written by a builder are reported by the builder itself, so projects built later in the same build
+ * see the change. The resource change event for those files arrives after the build and is ignored, otherwise every
+ * upstream build would force another build of its dependents.
+ */
+public final class UpstreamIndex implements IResourceChangeListener {
+    private static final ILogger logger = Logger.getLogger(UpstreamIndex.class);
+
+    private static final UpstreamIndex INSTANCE = new UpstreamIndex();
+
+    private final Map<IProject,Set<IProject>> downstream = new HashMap<IProject,Set<IProject>>();
+    private final Map<IProject,Set<IProject>> upstream = new HashMap<IProject,Set<IProject>>();
+    private final Set<IProject> changed = new HashSet<IProject>();
+    private final Set<IProject> written = new HashSet<IProject>();
+
+    private UpstreamIndex() {}
+
+    static UpstreamIndex install() {
+        ResourcesPlugin.getWorkspace().addResourceChangeListener(INSTANCE, IResourceChangeEvent.PRE_BUILD | IResourceChangeEvent.POST_CHANGE);
+        return INSTANCE;
+    }
+
+    public static UpstreamIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return {@code true} if the dependencies of the project are known to the index. Until then changes of its
+     *         upstream projects are not tracked for it.
+     */
+    synchronized boolean isTracked(IProject project) {
+        return upstream.containsKey(project);
+    }
+
+    synchronized void setDependencies(IProject project, IProject[] dependsOn) {
+        Set<IProject> previous = upstream.remove(project);
+        if (previous != null) {
+            for (IProject up : previous) {
+                Set<IProject> down = downstream.get(up);
+                if (down != null) {
+                    down.remove(project);
+                    if (down.isEmpty())
+                        downstream.remove(up);
+                }
+            }
+        }
+
+        Set<IProject> current = new LinkedHashSet<IProject>();
+        if (dependsOn != null)
+            Collections.addAll(current, dependsOn);
+        upstream.put(project, current);
+        for (IProject up : current) {
+            Set<IProject> down = downstream.get(up);
+            if (down == null) {
+                down = new LinkedHashSet<IProject>();
+                downstream.put(up, down);
+            }
+            down.add(project);
+        }
+    }
+
+    synchronized void remove(IProject project) {
+        setDependencies(project, null);
+        upstream.remove(project);
+        downstream.remove(project);
+        changed.remove(project);
+        written.remove(project);
+    }
+
+    /**
+     * Mark the projects that depend on the given project as having upstream changes.
+     */
+    private synchronized void buildFilesChanged(IProject project) {
+        Set<IProject> down = downstream.get(project);
+        if (down != null)
+            changed.addAll(down);
+    }
+
+    /**
+     * Mark the projects that depend on the given project as having upstream changes, because a builder wrote the build
+     * files of the project. The resource change that reports these files is ignored.
+     */
+    synchronized void buildFilesWritten(IProject project) {
+        buildFilesChanged(project);
+        written.add(project);
+    }
+
+    /*
+     * Called for a change of the build files in the workspace.
+     */
+    private synchronized void buildFilesModified(IProject project) {
+        if (!written.remove(project))
+            buildFilesChanged(project);
+    }
+
+    /**
+     * @return Whether an upstream project of the project changed its build files since the last call.
+     */
+    synchronized boolean takeUpstreamChanges(IProject project) {
+        return changed.remove(project);
+    }
+
+    /**
+     * @return The projects that must be rebuilt, directly or transitively, when the given project changes its build
+     *         files.
+     */
+    public synchronized Set<IProject> getImpact(IProject project) {
+        Set<IProject> result = new LinkedHashSet<IProject>();
+        Deque<IProject> queue = new ArrayDeque<IProject>();
+        queue.add(project);
+        while (!queue.isEmpty()) {
+            Set<IProject> down = downstream.get(queue.removeFirst());
+            if (down == null)
+                continue;
+            for (IProject p : down) {
+                if (result.add(p))
+                    queue.add(p);
+            }
+        }
+        result.remove(project);
+        return result;
+    }
+
+    @Override
+    public void resourceChanged(IResourceChangeEvent event) {
+        if (event.getType() == IResourceChangeEvent.PRE_BUILD) {
+            // The changes written by the previous build were reported before this build started
+            synchronized (this) {
+                written.clear();
+            }
+            return;
+        }
+        IResourceDelta delta = event.getDelta();
+        if (delta == null)
+            return;
+        try {
+            delta.accept(new IResourceDeltaVisitor() {
+                @Override
+                public boolean visit(IResourceDelta delta) throws CoreException {
+                    IResource resource = delta.getResource();
+                    switch (resource.getType()) {
+                    case IResource.ROOT :
+                        return true;
+                    case IResource.PROJECT :
+                        if (delta.getKind() == IResourceDelta.REMOVED) {
+                            remove((IProject) resource);
+                            return false;
+                        }
+                        synchronized (UpstreamIndex.this) {
+                            return downstream.containsKey(resource);
+                        }
+                    case IResource.FILE :
+                        if (Project.BUILDFILES.equals(resource.getName()))
+                            buildFilesModified(resource.getProject());
+                        return false;
+                    default :
+                        return true;
+                    }
+                }
+            });
+        } catch (CoreException e) {
+            logger.logError("Unable to update the upstream project index", e);
+        }
+    }
+}
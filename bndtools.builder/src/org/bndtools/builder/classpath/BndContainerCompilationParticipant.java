@@ -17,6 +17,9 @@ public class BndContainerCompilationParticipant extends CompilationParticipant {
     @Override
     public int aboutToBuild(IJavaProject javaProject) {
         IClasspathContainer oldContainer = BndContainerInitializer.getClasspathContainer(javaProject);
+        if (ClasspathFingerprint.isCurrent(javaProject.getProject(), oldContainer)) {
+            return READY_FOR_BUILD; // classpath inputs unchanged; no need to take the bnd lock
+        }
         try {
             BndContainerInitializer.requestClasspathContainerUpdate(javaProject);
         } catch (CoreException e) {
@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -38,6 +39,7 @@ import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.internal.core.JavaModelManager;
+import org.osgi.util.promise.Failure;
 import org.osgi.util.promise.Promise;
 import org.osgi.util.promise.Success;
 
@@ -91,17 +93,23 @@ public class BndContainerInitializer extends ClasspathContainerInitializer imple
 
         /*
          * Read the saved container information and update the container now.
-         * Request an update using the project information after the
-         * workspace is initialized.
+         * Request an update using the project information as soon as this
+         * project is ready, without waiting for the rest of the workspace.
          */
         BndContainer container = loadClasspathContainer(project);
         Updater.setClasspathContainer(javaProject, container);
-        Central.onWorkspaceInit(new Success<Workspace,Void>() {
+        Central.onProjectReady(project).then(new Success<Project,Void>() {
             @Override
-            public Promise<Void> call(Promise<Workspace> resolved) throws Exception {
-                requestClasspathContainerUpdate(BndtoolsConstants.BND_CLASSPATH_ID, javaProject, null);
+            public Promise<Void> call(Promise<Project> resolved) throws Exception {
+                if (resolved.getValue() != null)
+                    requestClasspathContainerUpdate(BndtoolsConstants.BND_CLASSPATH_ID, javaProject, null);
                 return null;
             }
+        }, new Failure() {
+            @Override
+            public void fail(Promise< ? > resolved) throws Exception {
+                logger.logError("Unable to update the classpath container of " + javaProject.getElementName(), resolved.getFailure());
+            }
         });
     }
 
@@ -135,6 +143,7 @@ public class BndContainerInitializer extends ClasspathContainerInitializer imple
         if (javaProject == null) {
             return; // bnd project is not loaded in the workspace
         }
+        ClasspathFingerprint.remove(javaProject.getProject());
         requestClasspathContainerUpdate(javaProject);
     }
 
@@ -204,7 +213,9 @@ public class BndContainerInitializer extends ClasspathContainerInitializer imple
         private final IJavaProject javaProject;
         private final IWorkspaceRoot root;
         private final Project model;
+        private final Set<File> inputs = new LinkedHashSet<File>();
         private long lastModified;
+        private boolean complete = true;
 
         Updater(IProject project, IJavaProject javaProject) {
             assert project != null;
@@ -229,6 +240,7 @@ public class BndContainerInitializer extends ClasspathContainerInitializer imple
                 return;
             }
 
+            long generation = ClasspathFingerprint.getRepositoryGeneration();
             List<IClasspathEntry> newClasspath = Collections.emptyList();
             final List<IResource> filesToRefresh = new ArrayList<IResource>(20);
             try {
@@ -241,6 +253,7 @@ public class BndContainerInitializer extends ClasspathContainerInitializer imple
             } catch (Exception e) {
                 SetLocation error = error("Unable to calculate classpath for project %s", e, project.getName());
                 logger.logError(error.location().message, e);
+                complete = false;
             }
 
             newClasspath = BndContainerSourceManager.loadAttachedSources(project, newClasspath);
@@ -252,6 +265,7 @@ public class BndContainerInitializer extends ClasspathContainerInitializer imple
                     List<IClasspathEntry> currentClasspath = Arrays.asList(bndContainer.getClasspathEntries());
                     if (newClasspath.equals(currentClasspath) && (lastModified <= bndContainer.lastModified())) {
                         bndContainer.refresh();
+                        recordFingerprint(bndContainer, generation);
                         return; // no change; so no need for new container
                     }
                 }
@@ -261,6 +275,15 @@ public class BndContainerInitializer extends ClasspathContainerInitializer imple
             bndContainer.refresh();
             setClasspathContainer(javaProject, bndContainer);
             storeClasspathContainer(project, bndContainer);
+            recordFingerprint(bndContainer, generation);
+        }
+
+        private void recordFingerprint(BndContainer container, long generation) {
+            if (complete) {
+                ClasspathFingerprint.record(project, container, generation, inputs);
+            } else {
+                ClasspathFingerprint.remove(project);
+            }
         }
 
         static void setClasspathContainer(IJavaProject javaProject, BndContainer container) throws JavaModelException {
@@ -282,11 +305,17 @@ public class BndContainerInitializer extends ClasspathContainerInitializer imple
         }
 
         private List<IClasspathEntry> calculateProjectClasspath(List<IResource> filesToRefresh) {
-            if (!project.isOpen())
+            if (!project.isOpen()) {
+                complete = false;
                 return Collections.emptyList();
+            }
 
             List<IClasspathEntry> classpath = new ArrayList<IClasspathEntry>(20);
             try {
+                Workspace workspace = model.getWorkspace();
+                ClasspathFingerprint.addProperties(inputs, workspace.getPropertiesFile(), workspace.getIncluded());
+                ClasspathFingerprint.addProperties(inputs, model.getPropertiesFile(), model.getIncluded());
+
                 Collection<Container> containers = model.getBuildpath();
                 calculateContainersClasspath(Constants.BUILDPATH, containers, classpath, filesToRefresh);
 
@@ -297,9 +326,11 @@ public class BndContainerInitializer extends ClasspathContainerInitializer imple
                 calculateContainersClasspath(Constants.BUILDPATH, containers, classpath, filesToRefresh);
             } catch (CircularDependencyException e) {
                 error("Circular dependency during classpath calculation: %s", e, e.getMessage());
+                complete = false;
                 return Collections.emptyList();
             } catch (Exception e) {
                 error("Unexpected error during classpath calculation: %s", e, e.getMessage());
+                complete = false;
                 return Collections.emptyList();
             }
 
@@ -310,6 +341,7 @@ public class BndContainerInitializer extends ClasspathContainerInitializer imple
             for (Container c : containers) {
                 File file = c.getFile();
                 assert file.isAbsolute();
+                inputs.add(file);
 
                 if (!file.exists()) {
                     switch (c.getType()) {
@@ -500,6 +532,8 @@ public class BndContainerInitializer extends ClasspathContainerInitializer imple
 
         private List<IAccessRule> calculateProjectAccessRules(Project p) {
             File accessPatternsFile = getAccessPatternsFile(p);
+            inputs.add(accessPatternsFile);
+            addBuildFiles(p);
             String oldAccessPatterns = "";
             boolean exists = accessPatternsFile.exists();
             if (exists) { // read persisted access patterns
@@ -550,6 +584,23 @@ public class BndContainerInitializer extends ClasspathContainerInitializer imple
             return accessRules;
         }
 
+        /*
+         * The exports of a version=project dependency change when it is rebuilt,
+         * so its build files are inputs of the fingerprint.
+         */
+        private void addBuildFiles(Project p) {
+            try {
+                File[] buildFiles = p.getBuildFiles(false);
+                if (buildFiles != null) {
+                    inputs.addAll(Arrays.asList(buildFiles));
+                    return;
+                }
+            } catch (Exception e) {
+                logger.logInfo("Unable to get build files for project " + p.getName(), e);
+            }
+            complete = false;
+        }
+
         private File getAccessPatternsFile(Project p) {
             return IO.getFile(BuilderPlugin.getInstance().getStateLocation().toFile(), p.getName() + ".accesspatterns");
         }
@@ -7,13 +7,26 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
 
+import org.bndtools.api.ILogger;
+import org.bndtools.api.Logger;
 import org.bndtools.builder.BndtoolsBuilder;
 import org.bndtools.builder.BuilderPlugin;
 import org.eclipse.core.resources.IProject;
@@ -23,10 +36,15 @@ import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.IClasspathAttribute;
 import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.JavaCore;
 
 import aQute.bnd.build.Workspace;
@@ -39,12 +57,38 @@ import aQute.lib.io.IO;
 import bndtools.central.Central;
 import bndtools.central.RepositoryUtils;
 
+/**
+ * Manages the source attachments of the entries in the bnd classpath container. Attachments saved by the user are
+ * applied directly. Source bundles in the repositories are looked up by a background {@link SourceLookupJob} so that
+ * calculating the classpath never waits on the repositories; once a source bundle has been found the container is
+ * updated again and the remembered result is applied. Failed lookups are remembered for {@link #NEGATIVE_TTL}.
+ */
 public class BndContainerSourceManager {
+    private static final ILogger logger = Logger.getLogger(BndContainerSourceManager.class);
 
     private static final String PROPERTY_SRC_ROOT = ".srcRoot"; //$NON-NLS-1$
 
     private static final String PROPERTY_SRC_PATH = ".srcPath"; //$NON-NLS-1$
 
+    static final long NEGATIVE_TTL = TimeUnit.MINUTES.toMillis(10);
+
+    private static final int LOOKUP_THREADS = 4;
+
+    // Bundle file stamp (path, modification time) to the result of the source bundle lookup
+    private static final Map<String,Lookup> lookups = new ConcurrentHashMap<String,Lookup>();
+
+    private static final Map<IProject,SourceLookupJob> jobs = new HashMap<IProject,SourceLookupJob>();
+
+    private static final class Lookup {
+        final File source;
+        final long expires;
+
+        Lookup(File source, long expires) {
+            this.source = source;
+            this.expires = expires;
+        }
+    }
+
     /**
      * Persist the attached sources for given {@link IClasspathEntry} instances.
      */
@@ -90,6 +134,7 @@ public class BndContainerSourceManager {
         final Properties props = loadSourceAttachmentProperties(project);
 
         final List<IClasspathEntry> configuredClassPathEntries = new ArrayList<IClasspathEntry>(classPathEntries.size());
+        final Map<File,Map<String,String>> pending = new LinkedHashMap<File,Map<String,String>>();
 
         for (final IClasspathEntry entry : classPathEntries) {
             if (entry.getEntryKind() != IClasspathEntry.CPE_LIBRARY || entry.getSourceAttachmentPath() != null) {
@@ -109,16 +154,17 @@ public class BndContainerSourceManager {
                     srcRoot = Path.fromPortableString((String) props.get(key + PROPERTY_SRC_ROOT));
                 }
             } else {
-                // If there is no saved source attachment, then try and find a source bundle
-                Map<String,String> extraProps = new HashMap<String,String>();
-
-                for (IClasspathAttribute attr : entry.getExtraAttributes()) {
-                    extraProps.put(attr.getName(), attr.getValue());
-                }
-
-                File sourceBundle = getSourceBundle(entry.getPath(), extraProps);
-                if (sourceBundle != null) {
-                    srcPath = new Path(sourceBundle.getAbsolutePath());
+                // If there is no saved source attachment, then use the source bundle found by a previous lookup
+                File bundle = toFile(entry.getPath());
+                Lookup lookup = getLookup(bundle);
+                if (lookup == null) {
+                    Map<String,String> extraProps = new HashMap<String,String>();
+                    for (IClasspathAttribute attr : entry.getExtraAttributes()) {
+                        extraProps.put(attr.getName(), attr.getValue());
+                    }
+                    pending.put(bundle, extraProps);
+                } else if (lookup.source != null) {
+                    srcPath = new Path(lookup.source.getAbsolutePath());
                 }
             }
 
@@ -129,64 +175,254 @@ public class BndContainerSourceManager {
             }
         }
 
+        if (!pending.isEmpty()) {
+            scheduleLookup(project, pending);
+        }
+
         return configuredClassPathEntries;
     }
 
-    private static File getSourceBundle(IPath path, Map<String,String> props) {
-        Workspace bndWorkspace;
+    private static File toFile(IPath path) {
+        IWorkspace workspace = ResourcesPlugin.getWorkspace();
+        IWorkspaceRoot root = workspace.getRoot();
+        IResource resource = root.findMember(path);
+        if (resource != null && resource.getLocation() != null) {
+            return resource.getLocation().toFile();
+        }
+        return path.toFile();
+    }
 
-        try {
-            bndWorkspace = Central.getWorkspace();
-            if (bndWorkspace == null) {
-                return null;
-            }
-        } catch (final Exception e) {
+    private static String stamp(File bundle) {
+        return bundle.getAbsolutePath() + ":" + bundle.lastModified();
+    }
+
+    private static Lookup getLookup(File bundle) {
+        String key = stamp(bundle);
+        Lookup lookup = lookups.get(key);
+        if (lookup == null) {
+            return null;
+        }
+        boolean stale = lookup.source != null ? !lookup.source.isFile() : System.currentTimeMillis() > lookup.expires;
+        if (stale) {
+            lookups.remove(key, lookup);
             return null;
         }
+        return lookup;
+    }
 
-        IPath bundlePath = path;
-        IWorkspace workspace = ResourcesPlugin.getWorkspace();
-        IWorkspaceRoot root = workspace.getRoot();
-        IResource resource = root.findMember(path);
-        if (resource != null) {
-            bundlePath = resource.getLocation();
+    private static void putLookup(File bundle, File source) {
+        lookups.put(stamp(bundle), new Lookup(source, System.currentTimeMillis() + NEGATIVE_TTL));
+    }
+
+    private static void scheduleLookup(IProject project, Map<File,Map<String,String>> bundles) {
+        synchronized (jobs) {
+            SourceLookupJob job = jobs.get(project);
+            if (job == null) {
+                job = new SourceLookupJob(project);
+                jobs.put(project, job);
+            }
+            // a running job picks up the new bundles after the current batch; downloads in flight are kept
+            if (job.add(bundles)) {
+                job.schedule();
+            }
         }
+    }
 
-        try (JarInputStream jarStream = new JarInputStream(IO.stream(bundlePath.toFile()), false)) {
-            Manifest manifest = jarStream.getManifest();
-            if (manifest == null) {
-                return null;
+    /**
+     * Looks up the source bundles of a project's classpath entries in all repositories in parallel, remembers the
+     * results and updates the classpath container of the project if any source bundle was found. Bundles requested
+     * while the job runs are looked up in a further batch of the same run. Cancelling the job cancels the lookups in
+     * progress.
+     */
+    private static class SourceLookupJob extends Job {
+        private final IProject project;
+        // guarded by jobs
+        private final Map<File,Map<String,String>> pending = new LinkedHashMap<File,Map<String,String>>();
+        private final Set<File> requested = new HashSet<File>();
+        private final List<Future<File>> running = new ArrayList<Future<File>>();
+
+        SourceLookupJob(IProject project) {
+            super("Looking up source bundles for " + project.getName());
+            this.project = project;
+            setSystem(true);
+        }
+
+        /**
+         * @return {@code true} if a bundle was added that is not already being looked up.
+         */
+        boolean add(Map<File,Map<String,String>> bundles) {
+            boolean added = false;
+            for (Entry<File,Map<String,String>> entry : bundles.entrySet()) {
+                if (requested.add(entry.getKey())) {
+                    pending.put(entry.getKey(), entry.getValue());
+                    added = true;
+                }
             }
+            return added;
+        }
 
-            Domain domain = Domain.domain(manifest);
-            Entry<String,Attrs> bsnAttrs = domain.getBundleSymbolicName();
-            if (bsnAttrs == null) {
-                return null;
+        private Map<File,Map<String,String>> takePending() {
+            synchronized (jobs) {
+                Map<File,Map<String,String>> batch = new LinkedHashMap<File,Map<String,String>>(pending);
+                pending.clear();
+                if (batch.isEmpty() && jobs.get(project) == this) {
+                    jobs.remove(project);
+                }
+                return batch;
+            }
+        }
+
+        @Override
+        protected void canceling() {
+            synchronized (running) {
+                for (Future<File> future : running) {
+                    future.cancel(true);
+                }
             }
-            String bsn = bsnAttrs.getKey();
-            String version = domain.getBundleVersion();
+        }
 
-            if (version == null) {
-                version = props.get("version");
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            SubMonitor progress = SubMonitor.convert(monitor);
+            ExecutorService executor = null;
+            boolean found = false;
+            try {
+                Workspace bndWorkspace = Central.getWorkspace();
+                if (bndWorkspace == null) {
+                    return Status.CANCEL_STATUS;
+                }
+                List<RepositoryPlugin> repos = new ArrayList<RepositoryPlugin>();
+                for (RepositoryPlugin repo : RepositoryUtils.listRepositories(true)) {
+                    if (repo != null && !(repo instanceof WorkspaceRepository)) {
+                        repos.add(repo);
+                    }
+                }
+                executor = Executors.newFixedThreadPool(LOOKUP_THREADS);
+
+                for (Map<File,Map<String,String>> batch = takePending(); !batch.isEmpty(); batch = takePending()) {
+                    progress.setWorkRemaining(batch.size());
+
+                    // Submit the lookups of all bundles of the batch in all repositories at once
+                    Map<File,List<Future<File>>> futures = new LinkedHashMap<File,List<Future<File>>>();
+                    for (Entry<File,Map<String,String>> entry : batch.entrySet()) {
+                        if (progress.isCanceled()) {
+                            return Status.CANCEL_STATUS;
+                        }
+                        List<Future<File>> bundleFutures = submit(executor, repos, entry.getKey(), entry.getValue());
+                        if (bundleFutures == null) {
+                            putLookup(entry.getKey(), null);
+                            progress.worked(1);
+                        } else {
+                            synchronized (running) {
+                                running.addAll(bundleFutures);
+                            }
+                            futures.put(entry.getKey(), bundleFutures);
+                        }
+                    }
+
+                    // The first repository in the configured order that has a source bundle wins
+                    for (Entry<File,List<Future<File>>> entry : futures.entrySet()) {
+                        File source = null;
+                        for (Future<File> future : entry.getValue()) {
+                            if (source == null) {
+                                source = await(future);
+                            } else {
+                                future.cancel(true);
+                            }
+                        }
+                        if (progress.isCanceled()) {
+                            return Status.CANCEL_STATUS;
+                        }
+                        putLookup(entry.getKey(), source);
+                        found |= source != null;
+                        progress.worked(1);
+                    }
+                    synchronized (running) {
+                        running.clear();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Status.CANCEL_STATUS;
+            } catch (Exception e) {
+                logger.logWarning("Unable to look up source bundles for project " + project.getName(), e);
+                return Status.OK_STATUS;
+            } finally {
+                if (executor != null) {
+                    executor.shutdownNow();
+                }
+                synchronized (jobs) {
+                    if (jobs.get(project) == this) {
+                        jobs.remove(project);
+                    }
+                }
+                if (found) {
+                    try {
+                        IJavaProject javaProject = JavaCore.create(project);
+                        if (javaProject != null && javaProject.exists()) {
+                            BndContainerInitializer.requestClasspathContainerUpdate(javaProject);
+                        }
+                    } catch (CoreException e) {
+                        logger.logWarning("Unable to attach source bundles for project " + project.getName(), e);
+                    }
+                }
             }
+            return Status.OK_STATUS;
+        }
 
-            for (RepositoryPlugin repo : RepositoryUtils.listRepositories(true)) {
-                if (repo == null) {
-                    continue;
+        /**
+         * @return The lookups of the source bundle in each repository, or {@code null} if the bundle has no usable
+         *         identity.
+         */
+        private static List<Future<File>> submit(ExecutorService executor, List<RepositoryPlugin> repos, File bundle, final Map<String,String> props) {
+            final String bsn;
+            final Version version;
+            try (JarInputStream jarStream = new JarInputStream(IO.stream(bundle), false)) {
+                Manifest manifest = jarStream.getManifest();
+                if (manifest == null) {
+                    return null;
                 }
-                if (repo instanceof WorkspaceRepository) {
-                    continue;
+
+                Domain domain = Domain.domain(manifest);
+                Entry<String,Attrs> bsnAttrs = domain.getBundleSymbolicName();
+                if (bsnAttrs == null) {
+                    return null;
                 }
-                File sourceBundle = repo.get(bsn + ".source", new Version(version), props);
-                if (sourceBundle != null) {
-                    return sourceBundle;
+                String versionString = domain.getBundleVersion();
+                if (versionString == null) {
+                    versionString = props.get("version");
                 }
+                bsn = bsnAttrs.getKey() + ".source";
+                version = new Version(versionString);
+            } catch (final Exception e) {
+                // Ignore, the bundle is not readable or has no valid version
+                return null;
+            }
+
+            List<Future<File>> futures = new ArrayList<Future<File>>(repos.size());
+            for (final RepositoryPlugin repo : repos) {
+                futures.add(executor.submit(new Callable<File>() {
+                    @Override
+                    public File call() throws Exception {
+                        return repo.get(bsn, version, props);
+                    }
+                }));
             }
-        } catch (final Exception e) {
-            // Ignore, something went wrong, or we could not find the source bundle
+            return futures;
         }
 
-        return null;
+        /*
+         * Cancelling the job cancels the future, which ends the wait.
+         */
+        private static File await(Future<File> future) throws InterruptedException {
+            try {
+                return future.get();
+            } catch (CancellationException e) {
+                return null;
+            } catch (ExecutionException e) {
+                return null; // Ignore, we could not find the source bundle in this repository
+            }
+        }
     }
 
     private static Properties loadSourceAttachmentProperties(final IProject project) throws CoreException {
@@ -0,0 +1,117 @@
+package org.bndtools.builder.classpath;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.jdt.core.IClasspathContainer;
+
+import aQute.bnd.osgi.Jar;
+import aQute.bnd.service.RepositoryListenerPlugin;
+import aQute.bnd.service.RepositoryPlugin;
+
+/**
+ * A cheap summary of the inputs of a project's classpath container: the modification times of the bnd files of the
+ * project and the workspace, of every file placed on the container, and the repository generation. Checking a
+ * fingerprint only reads file system timestamps, so it can be done without holding the bnd workspace lock.
+ * Fingerprints are recorded by the container initializer after a successful classpath calculation and consulted by
+ * {@link BndContainerCompilationParticipant} before each build.
+ */
+public final class ClasspathFingerprint {
+
+    private static final Map<IProject,ClasspathFingerprint> fingerprints = new ConcurrentHashMap<IProject,ClasspathFingerprint>();
+    private static final AtomicLong repositoryGeneration = new AtomicLong();
+
+    private final IClasspathContainer container;
+    private final long generation;
+    private final File[] files;
+    private final long[] stamps;
+
+    private ClasspathFingerprint(IClasspathContainer container, long generation, Collection<File> inputs) {
+        this.container = container;
+        this.generation = generation;
+        this.files = inputs.toArray(new File[0]);
+        this.stamps = new long[files.length];
+        for (int i = 0; i < files.length; i++) {
+            stamps[i] = files[i].lastModified();
+        }
+    }
+
+    /**
+     * @return The current repository generation. Take this before calculating a classpath and pass it to
+     *         {@link #record(IProject, IClasspathContainer, long, Collection)}, so that a repository change during the
+     *         calculation is not missed.
+     */
+    static long getRepositoryGeneration() {
+        return repositoryGeneration.get();
+    }
+
+    /**
+     * Record the inputs of the container that was just set for the project.
+     */
+    static void record(IProject project, IClasspathContainer container, long generation, Collection<File> inputs) {
+        fingerprints.put(project, new ClasspathFingerprint(container, generation, new LinkedHashSet<File>(inputs)));
+    }
+
+    static void remove(IProject project) {
+        fingerprints.remove(project);
+    }
+
+    /**
+     * @return {@code true} if the container was calculated from inputs which have not changed since.
+     */
+    static boolean isCurrent(IProject project, IClasspathContainer container) {
+        ClasspathFingerprint fingerprint = fingerprints.get(project);
+        if (fingerprint == null || fingerprint.container != container || fingerprint.generation != repositoryGeneration.get()) {
+            return false;
+        }
+        for (int i = 0; i < fingerprint.files.length; i++) {
+            if (fingerprint.files[i].lastModified() != fingerprint.stamps[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add the bnd files a processor was read from.
+     */
+    static void addProperties(Set<File> inputs, File propertiesFile, Collection<File> included) {
+        if (propertiesFile != null) {
+            inputs.add(propertiesFile);
+        }
+        if (included != null) {
+            inputs.addAll(included);
+        }
+    }
+
+    /**
+     * Advances the repository generation whenever a repository reports a change.
+     */
+    public static class RepositoryListener implements RepositoryListenerPlugin {
+        @Override
+        public void bundleAdded(RepositoryPlugin repository, Jar jar, File file) {
+            repositoryGeneration.incrementAndGet();
+        }
+
+        @Override
+        public void bundleRemoved(RepositoryPlugin repository, Jar jar, File file) {
+            repositoryGeneration.incrementAndGet();
+        }
+
+        @Override
+        public void repositoryRefreshed(RepositoryPlugin repository) {
+            repositoryGeneration.incrementAndGet();
+        }
+
+        @Override
+        public void repositoriesRefreshed() {
+            repositoryGeneration.incrementAndGet();
+        }
+    }
+}
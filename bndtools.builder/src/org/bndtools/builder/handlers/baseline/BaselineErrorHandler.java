@@ -10,6 +10,7 @@ import java.util.Map;
 import org.bndtools.api.BndtoolsConstants;
 import org.bndtools.api.ILogger;
 import org.bndtools.api.Logger;
+import org.bndtools.build.api.ASTCache;
 import org.bndtools.build.api.AbstractBuildErrorDetailsHandler;
 import org.bndtools.build.api.MarkerData;
 import org.bndtools.builder.utils.MemberValuePairLocationRetriever;
@@ -30,16 +31,13 @@ import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IPackageDeclaration;
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.ISourceRange;
+import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
-import org.eclipse.jdt.core.dom.AST;
-import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.SourceRange;
 import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.CompilationUnit;
-import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.dom.MethodDeclaration;
-import org.eclipse.jdt.core.dom.SimpleName;
-import org.eclipse.jdt.core.dom.TypeDeclaration;
 import org.eclipse.jface.text.contentassist.CompletionProposal;
 import org.eclipse.jface.text.contentassist.ICompletionProposal;
 import org.eclipse.ui.IMarkerResolution;
@@ -63,6 +61,19 @@ public class BaselineErrorHandler extends AbstractBuildErrorDetailsHandler {
     private static final String PACKAGEINFOJAVA = "package-info.java";
     private static final String PROP_SUGGESTED_VERSION = "suggestedVersion";
 
+    /*
+     * Markers with a locate attribute are created without their exact source
+     * range. The range is computed later by BaselineMarkerLocator, or when
+     * the resolutions of the marker are requested.
+     */
+    static final String PROP_LOCATE = "baselineLocate";
+    private static final String PROP_CLASS = "baselineClass";
+    private static final String PROP_MEMBER = "baselineMember";
+    private static final String PROP_PACKAGE = "baselinePackage";
+    private static final String LOCATE_ADDED_METHOD = "addedMethod";
+    private static final String LOCATE_REMOVED_METHOD = "removedMethod";
+    private static final String LOCATE_VERSION = "version";
+
     private static final String ANNOTATION_VERSION_BND_PKG = "aQute.bnd.annotation";
     private static final String ANNOTATION_VERSION_OSGI_PKG = "org.osgi.annotation.versioning";
     private static final String ANNOTATION_VERSION_NO_PKG = "Version";
@@ -81,6 +92,12 @@ public class BaselineErrorHandler extends AbstractBuildErrorDetailsHandler {
         result.addAll(generatePackageInfoMarkers(baselineInfo, javaProject, location.message));
         result.addAll(generateStructuralChangeMarkers(baselineInfo, javaProject));
 
+        for (MarkerData md : result) {
+            if (md.getAttribs().containsKey(PROP_LOCATE)) {
+                BaselineMarkerLocator.schedule(project);
+                break;
+            }
+        }
         return result;
     }
 
@@ -114,13 +131,17 @@ public class BaselineErrorHandler extends AbstractBuildErrorDetailsHandler {
                 if (pkg != null) {
                     ICompilationUnit pkgInfoJava = pkg.getCompilationUnit(PACKAGEINFOJAVA);
                     if (pkgInfoJava != null && pkgInfoJava.exists()) {
-                        ISourceRange range = findPackageInfoJavaVersionLocation(baselineInfo.packageName, pkgInfoJava);
+                        // The range of the annotation until the range of its value is located
+                        IAnnotation annot = findPackageInfoJavaVersionAnnotation(baselineInfo.packageName, pkgInfoJava);
+                        ISourceRange range = annot != null ? annot.getSourceRange() : null;
 
                         Map<String,Object> attribs = new HashMap<String,Object>();
                         attribs.put(IMarker.MESSAGE, message.trim());
                         attribs.put(IJavaModelMarker.ID, 8088);
                         attribs.put(PROP_SUGGESTED_VERSION, baselineInfo.suggestedVersion.toString());
                         if (range != null) {
+                            attribs.put(PROP_LOCATE, LOCATE_VERSION);
+                            attribs.put(PROP_PACKAGE, baselineInfo.packageName);
                             attribs.put(IMarker.CHAR_START, range.getOffset());
                             attribs.put(IMarker.CHAR_END, range.getOffset() + range.getLength());
                             markers.add(new MarkerData(pkgInfoJava.getResource(), attribs, true, BndtoolsConstants.MARKER_JAVA_BASELINE));
@@ -132,8 +153,7 @@ public class BaselineErrorHandler extends AbstractBuildErrorDetailsHandler {
         return markers;
     }
 
-    ISourceRange findPackageInfoJavaVersionLocation(String packageName, ICompilationUnit compUnit) throws JavaModelException {
-        ISourceRange range = null;
+    static IAnnotation findPackageInfoJavaVersionAnnotation(String packageName, ICompilationUnit compUnit) throws JavaModelException {
         IPackageDeclaration[] pkgDecls = compUnit.getPackageDeclarations();
         if (pkgDecls != null) {
             for (IPackageDeclaration pkgDecl : pkgDecls) {
@@ -141,28 +161,27 @@ public class BaselineErrorHandler extends AbstractBuildErrorDetailsHandler {
                     IAnnotation[] annots = pkgDecl.getAnnotations();
                     for (IAnnotation annot : annots) {
                         String name = annot.getElementName();
-                        if (ANNOTATION_VERSION_NO_PKG.equals(name) || ANNOTATION_VERSION_OSGI.equals(name) || ANNOTATION_VERSION_BND.equals(name)) {
-                            ASTParser parser = ASTParser.newParser(AST.JLS8);
-                            parser.setKind(ASTParser.K_COMPILATION_UNIT);
-                            parser.setSource(compUnit);
-                            parser.setResolveBindings(true);
-                            CompilationUnit ast = (CompilationUnit) parser.createAST(null);
-                            if (ast != null) {
-                                MemberValuePairLocationRetriever mvpRetriever = new MemberValuePairLocationRetriever(annot, new Predicate<String>() {
-                                    @Override
-                                    public boolean test(String t) {
-                                        return ANNOTATION_VERSION_BND.equals(t) || ANNOTATION_VERSION_OSGI.equals(t);
-                                    }
-                                }, "value");
-                                ast.accept(mvpRetriever);
-                                range = mvpRetriever.getMemberValuePairSourceRange();
-                            }
-                        }
+                        if (ANNOTATION_VERSION_NO_PKG.equals(name) || ANNOTATION_VERSION_OSGI.equals(name) || ANNOTATION_VERSION_BND.equals(name))
+                            return annot;
                     }
                 }
             }
         }
-        return range;
+        return null;
+    }
+
+    static ISourceRange findPackageInfoJavaVersionLocation(IAnnotation annot, ICompilationUnit compUnit) {
+        CompilationUnit ast = ASTCache.parse(compUnit, true);
+        if (ast == null)
+            return null;
+        MemberValuePairLocationRetriever mvpRetriever = new MemberValuePairLocationRetriever(annot, new Predicate<String>() {
+            @Override
+            public boolean test(String t) {
+                return ANNOTATION_VERSION_BND.equals(t) || ANNOTATION_VERSION_OSGI.equals(t);
+            }
+        }, "value");
+        ast.accept(mvpRetriever);
+        return mvpRetriever.getMemberValuePairSourceRange();
     }
 
     List<MarkerData> generateStructuralChangeMarkers(Info baselineInfo, IJavaProject javaProject) throws JavaModelException {
@@ -218,63 +237,92 @@ public class BaselineErrorHandler extends AbstractBuildErrorDetailsHandler {
     */
 
     List<MarkerData> generateAddedMethodMarker(IJavaProject javaProject, String className, final String methodName, final Delta requiresDelta) throws JavaModelException {
-        final List<MarkerData> markers = new LinkedList<MarkerData>();
-        final CompilationUnit ast = createAST(javaProject, className);
-        if (ast != null) {
-            ast.accept(new ASTVisitor() {
-                @Override
-                public boolean visit(MethodDeclaration methodDecl) {
-                    String signature = ASTUtil.buildMethodSignature(methodDecl);
-                    if (signature.equals(methodName)) {
-                        // Create the marker attribs here
-                        Map<String,Object> attribs = new HashMap<String,Object>();
-                        attribs.put(IMarker.CHAR_START, methodDecl.getStartPosition());
-                        attribs.put(IMarker.CHAR_END, methodDecl.getStartPosition() + methodDecl.getLength());
+        String message = String.format("This method was added, which requires a %s change to the package.", requiresDelta);
+        return generateMemberMarker(javaProject, className, methodName, message, LOCATE_ADDED_METHOD);
+    }
 
-                        String message = String.format("This method was added, which requires a %s change to the package.", requiresDelta);
-                        attribs.put(IMarker.MESSAGE, message);
+    List<MarkerData> generateRemovedMethodMarker(IJavaProject javaProject, final String className, final String methodName, final Delta requiresDelta) throws JavaModelException {
+        String message = String.format("The method '%s' was removed, which requires a %s change to the package.", methodName, requiresDelta);
+        return generateMemberMarker(javaProject, className, methodName, message, LOCATE_REMOVED_METHOD);
+    }
 
-                        markers.add(new MarkerData(ast.getJavaElement().getResource(), attribs, false));
-                    }
+    /*
+     * The marker is placed on the source file of the class, its exact
+     * location is computed by locate(IMarker).
+     */
+    private List<MarkerData> generateMemberMarker(IJavaProject javaProject, String className, String methodName, String message, String locate) throws JavaModelException {
+        List<MarkerData> markers = new LinkedList<MarkerData>();
+        IType type = ASTCache.findType(javaProject, className);
+        ICompilationUnit cunit = type != null ? type.getCompilationUnit() : null;
+        if (cunit == null)
+            return markers;
+
+        Map<String,Object> attribs = new HashMap<String,Object>();
+        attribs.put(IMarker.MESSAGE, message);
+        attribs.put(PROP_LOCATE, locate);
+        attribs.put(PROP_CLASS, className);
+        attribs.put(PROP_MEMBER, methodName);
+        markers.add(new MarkerData(cunit.getResource(), attribs, false));
+        return markers;
+    }
 
-                    return false;
-                }
-            });
+    /**
+     * Compute the exact source range of a marker that was created with a preliminary location.
+     */
+    static void locate(IMarker marker) {
+        String locate = marker.getAttribute(PROP_LOCATE, null);
+        if (locate == null || !marker.exists())
+            return;
+
+        try {
+            IJavaProject javaProject = JavaCore.create(marker.getResource().getProject());
+            ISourceRange range = null;
+            if (LOCATE_ADDED_METHOD.equals(locate)) {
+                range = findAddedMethod(javaProject, marker.getAttribute(PROP_CLASS, ""), marker.getAttribute(PROP_MEMBER, ""));
+            } else if (LOCATE_REMOVED_METHOD.equals(locate)) {
+                IType type = ASTCache.findType(javaProject, marker.getAttribute(PROP_CLASS, ""));
+                range = type != null ? type.getNameRange() : null;
+            } else if (LOCATE_VERSION.equals(locate)) {
+                ICompilationUnit compUnit = JavaCore.createCompilationUnitFrom((IFile) marker.getResource());
+                IAnnotation annot = findPackageInfoJavaVersionAnnotation(marker.getAttribute(PROP_PACKAGE, ""), compUnit);
+                range = annot != null ? findPackageInfoJavaVersionLocation(annot, compUnit) : null;
+            }
+
+            if (range != null && range.getOffset() >= 0) {
+                marker.setAttributes(new String[] {
+                        IMarker.CHAR_START, IMarker.CHAR_END, PROP_LOCATE
+                }, new Object[] {
+                        range.getOffset(), range.getOffset() + range.getLength(), null
+                });
+            } else {
+                marker.setAttribute(PROP_LOCATE, null);
+            }
+        } catch (CoreException e) {
+            if (marker.exists())
+                logger.logWarning("Unable to locate baseline marker " + marker.getAttribute(IMarker.MESSAGE, ""), e);
         }
-        return markers;
     }
 
-    List<MarkerData> generateRemovedMethodMarker(IJavaProject javaProject, final String className, final String methodName, final Delta requiresDelta) throws JavaModelException {
-        final List<MarkerData> markers = new LinkedList<MarkerData>();
+    private static ISourceRange findAddedMethod(IJavaProject javaProject, String className, final String methodName) throws JavaModelException {
         final CompilationUnit ast = createAST(javaProject, className);
-        if (ast != null) {
-            ast.accept(new ASTVisitor() {
-                @Override
-                public boolean visit(TypeDeclaration typeDecl) {
-                    ITypeBinding typeBinding = typeDecl.resolveBinding();
-                    if (typeBinding != null) {
-                        if (typeBinding.getBinaryName().equals(className)) {
-                            Map<String,Object> attribs = new HashMap<String,Object>();
-                            SimpleName nameNode = typeDecl.getName();
-                            attribs.put(IMarker.CHAR_START, nameNode.getStartPosition());
-                            attribs.put(IMarker.CHAR_END, nameNode.getStartPosition() + nameNode.getLength());
-
-                            String message = String.format("The method '%s' was removed, which requires a %s change to the package.", methodName, requiresDelta);
-                            attribs.put(IMarker.MESSAGE, message);
-
-                            markers.add(new MarkerData(ast.getJavaElement().getResource(), attribs, false));
-                            return false;
-                        }
-                    }
-                    return true;
-                }
-            });
-        }
-        return markers;
+        if (ast == null)
+            return null;
+
+        final ISourceRange[] result = new ISourceRange[1];
+        ast.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(MethodDeclaration methodDecl) {
+                if (result[0] == null && ASTUtil.buildMethodSignature(methodDecl).equals(methodName))
+                    result[0] = new SourceRange(methodDecl.getStartPosition(), methodDecl.getLength());
+                return false;
+            }
+        });
+        return result[0];
     }
 
     @Override
     public List<IMarkerResolution> getResolutions(IMarker marker) {
+        locate(marker);
         List<IMarkerResolution> result = new LinkedList<IMarkerResolution>();
 
         final String suggestedVersion = marker.getAttribute(PROP_SUGGESTED_VERSION, null);
@@ -311,6 +359,7 @@ public class BaselineErrorHandler extends AbstractBuildErrorDetailsHandler {
 
     @Override
     public List<ICompletionProposal> getProposals(IMarker marker) {
+        locate(marker);
         List<ICompletionProposal> proposals = new LinkedList<ICompletionProposal>();
 
         String suggestedVersion = marker.getAttribute(PROP_SUGGESTED_VERSION, null);
@@ -0,0 +1,74 @@
+package org.bndtools.builder.handlers.baseline;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bndtools.api.BndtoolsConstants;
+import org.bndtools.api.ILogger;
+import org.bndtools.api.Logger;
+import org.bndtools.build.api.ASTCache;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Computes the exact source ranges of the baseline markers of a project in the background. The job uses the project
+ * as its scheduling rule, so it runs after the build that created the markers.
+ */
+class BaselineMarkerLocator extends Job {
+    private static final ILogger logger = Logger.getLogger(BaselineMarkerLocator.class);
+    private static final long DELAY = 500;
+
+    private static final Map<IProject,BaselineMarkerLocator> jobs = new HashMap<IProject,BaselineMarkerLocator>();
+
+    private final IProject project;
+
+    private BaselineMarkerLocator(IProject project) {
+        super("Locating baseline problems in " + project.getName());
+        this.project = project;
+        setSystem(true);
+        setPriority(DECORATE);
+        setRule(project);
+    }
+
+    static void schedule(IProject project) {
+        synchronized (jobs) {
+            BaselineMarkerLocator job = jobs.get(project);
+            if (job == null) {
+                job = new BaselineMarkerLocator(project);
+                jobs.put(project, job);
+            }
+            job.schedule(DELAY);
+        }
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        if (!project.exists()) {
+            synchronized (jobs) {
+                jobs.remove(project);
+            }
+            return Status.OK_STATUS;
+        }
+
+        try (ASTCache cache = ASTCache.open()) {
+            IMarker[] markers = project.findMarkers(BndtoolsConstants.MARKER_BND_PROBLEM, true, IResource.DEPTH_INFINITE);
+            SubMonitor progress = SubMonitor.convert(monitor, markers.length);
+            for (IMarker marker : markers) {
+                if (progress.isCanceled())
+                    return Status.CANCEL_STATUS;
+                BaselineErrorHandler.locate(marker);
+                progress.worked(1);
+            }
+        } catch (CoreException e) {
+            logger.logWarning("Unable to locate the baseline problems in " + project.getName(), e);
+        }
+        return Status.OK_STATUS;
+    }
+}
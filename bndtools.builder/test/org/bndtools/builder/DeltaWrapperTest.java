@@ -0,0 +1,74 @@
+package org.bndtools.builder;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.bndtools.builder.DeltaWrapper.ProjectLayout;
+import org.eclipse.core.runtime.Path;
+
+import junit.framework.TestCase;
+
+import aQute.bnd.build.Workspace;
+import aQute.lib.io.IO;
+
+public class DeltaWrapperTest extends TestCase {
+
+    private File dir;
+    private Workspace ws;
+    private ProjectLayout layout;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = Files.createTempDirectory("bndtools-delta").toFile();
+        IO.store("", IO.getFile(dir, "cnf/build.bnd"));
+        IO.store("src: src/main/java, src/gen\ntestsrc: src/test/java\ntestbin: bin_test\ntarget-dir: generated\n", IO.getFile(dir, "p/bnd.bnd"));
+        ws = new Workspace(dir);
+        layout = new ProjectLayout(ws.getProject("p"));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        ws.close();
+        IO.delete(dir);
+    }
+
+    public void testNestedDirectory() {
+        assertTrue(layout.isGenerated(new Path("/p/src/main/java/org/example/A.java")));
+        assertFalse(layout.isGenerated(new Path("/p/src/main")));
+        assertFalse(layout.isGenerated(new Path("/p/src/main/javax/A.java")));
+        assertTrue(layout.isTestSrc(new Path("/p/src/test/java/org/example/ATest.java")));
+        assertFalse(layout.isTestSrc(new Path("/p/src/main/java/org/example/A.java")));
+    }
+
+    public void testCommaSeparatedSource() {
+        assertTrue(layout.isGenerated(new Path("/p/src/gen/A.java")));
+        assertTrue(layout.isGenerated(new Path("/p/generated/p.jar")));
+        assertTrue(layout.isGenerated(new Path("/p/bin_test/A.class")));
+        assertFalse(layout.isGenerated(new Path("/p/src/genx/A.java")));
+    }
+
+    public void testBndFile() {
+        assertTrue(layout.isBndFile(new Path("/p/bnd.bnd")));
+        assertFalse(layout.isBndFile(new Path("/p/sub/bnd.bnd")));
+        assertFalse(layout.isBndFile(new Path("/p/bnd.bndrun")));
+        assertFalse(layout.isGenerated(new Path("/p/bnd.bnd")));
+    }
+
+    public void testExactDirectory() {
+        // the directory itself matches, as the project relative path equal to the prefix did before
+        assertTrue(layout.isGenerated(new Path("/p/src/main/java")));
+        assertTrue(layout.isGenerated(new Path("/p/bin_test")));
+        assertTrue(layout.isTestSrc(new Path("/p/src/test/java")));
+        assertTrue(ProjectLayout.matches(new Path("/p/generated"), new String[] {
+                "generated"
+        }));
+
+        // the project and paths shorter than the prefix do not
+        assertFalse(ProjectLayout.matches(new Path("/p"), new String[] {
+                "generated"
+        }));
+        assertFalse(ProjectLayout.matches(new Path("/p/src"), new String[] {
+                "src", "main"
+        }));
+    }
+}
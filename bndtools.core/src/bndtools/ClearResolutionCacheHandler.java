@@ -0,0 +1,15 @@
+package bndtools;
+
+import org.bndtools.core.resolve.ResolutionCache;
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+
+public class ClearResolutionCacheHandler extends AbstractHandler {
+
+    @Override
+    public Object execute(ExecutionEvent event) throws ExecutionException {
+        ResolutionCache.getInstance().clear();
+        return null;
+    }
+}
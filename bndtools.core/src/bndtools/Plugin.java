@@ -43,6 +43,8 @@ import org.osgi.util.tracker.ServiceTracker;
 import aQute.bnd.build.Workspace;
 import aQute.bnd.osgi.Processor;
 import aQute.bnd.version.Version;
+import bndtools.editor.completion.BndCompletionIndex;
+import bndtools.refactor.BndPackageReferenceIndex;
 import bndtools.services.WorkspaceURLStreamHandlerService;
 
 public class Plugin extends AbstractUIPlugin {
@@ -153,6 +155,8 @@ public class Plugin extends AbstractUIPlugin {
     @Override
     public void stop(BundleContext context) throws Exception {
         stopStartupParticipants();
+        BndCompletionIndex.dispose();
+        BndPackageReferenceIndex.dispose();
 
         bndActivator.stop(context);
         headlessBuildManager.close();
@@ -0,0 +1,18 @@
+package bndtools;
+
+import org.bndtools.core.resolve.ResolveAllJob;
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+
+public class ResolveAllHandler extends AbstractHandler {
+
+    @Override
+    public Object execute(ExecutionEvent event) throws ExecutionException {
+        ResolveAllJob job = new ResolveAllJob();
+        job.setUser(true);
+        job.schedule();
+
+        return null;
+    }
+}
@@ -0,0 +1,95 @@
+package bndtools;
+
+import java.io.File;
+
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jface.dialogs.Dialog;
+import org.eclipse.jface.dialogs.ErrorDialog;
+import org.eclipse.jface.dialogs.IDialogConstants;
+import org.eclipse.jface.resource.JFaceResources;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
+import org.eclipse.ui.handlers.HandlerUtil;
+
+import bndtools.central.StartupTimeline;
+
+public class StartupTimelineHandler extends AbstractHandler {
+
+    @Override
+    public Object execute(ExecutionEvent event) throws ExecutionException {
+        Shell shell = HandlerUtil.getActiveShell(event);
+        new TimelineDialog(shell).open();
+        return null;
+    }
+
+    private static class TimelineDialog extends Dialog {
+        private static final int EXPORT_ID = IDialogConstants.CLIENT_ID + 1;
+
+        TimelineDialog(Shell parentShell) {
+            super(parentShell);
+            setShellStyle(getShellStyle() | SWT.RESIZE);
+        }
+
+        @Override
+        protected void configureShell(Shell newShell) {
+            super.configureShell(newShell);
+            newShell.setText("Bnd Workspace Startup Timeline");
+        }
+
+        @Override
+        protected Control createDialogArea(Composite parent) {
+            Composite composite = (Composite) super.createDialogArea(parent);
+            Text text = new Text(composite, SWT.MULTI | SWT.READ_ONLY | SWT.BORDER | SWT.H_SCROLL | SWT.V_SCROLL);
+            Font font = JFaceResources.getTextFont();
+            text.setFont(font);
+            text.setText(StartupTimeline.getDefault().format());
+            GridData gd = new GridData(SWT.FILL, SWT.FILL, true, true);
+            gd.widthHint = 800;
+            gd.heightHint = 400;
+            text.setLayoutData(gd);
+            return composite;
+        }
+
+        @Override
+        protected void createButtonsForButtonBar(Composite parent) {
+            createButton(parent, EXPORT_ID, "Export...", false);
+            createButton(parent, IDialogConstants.OK_ID, IDialogConstants.CLOSE_LABEL, true);
+        }
+
+        @Override
+        protected void buttonPressed(int buttonId) {
+            if (buttonId == EXPORT_ID) {
+                export();
+                return;
+            }
+            super.buttonPressed(buttonId);
+        }
+
+        private void export() {
+            FileDialog dialog = new FileDialog(getShell(), SWT.SAVE);
+            dialog.setFilterExtensions(new String[] {
+                    "*.json"
+            });
+            dialog.setFileName("startup-timeline.json");
+            dialog.setOverwrite(true);
+            String path = dialog.open();
+            if (path == null)
+                return;
+            try {
+                StartupTimeline.getDefault().export(new File(path));
+            } catch (Exception e) {
+                ErrorDialog.openError(getShell(), "Export Startup Timeline", null, new Status(IStatus.ERROR, Plugin.PLUGIN_ID, "Unable to export the startup timeline to " + path, e));
+            }
+        }
+    }
+}
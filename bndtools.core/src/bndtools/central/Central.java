@@ -3,8 +3,10 @@ package bndtools.central;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -35,6 +37,7 @@ import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jface.viewers.TreeViewer;
@@ -64,6 +67,8 @@ public class Central implements IStartupParticipant {
 
     private static volatile Workspace workspace = null;
     private static final Deferred<Workspace> workspaceQueue = new Deferred<>();
+    private static final Map<String,Deferred<Project>> projectReadiness = new HashMap<>();
+    private static boolean projectsReady;
 
     static WorkspaceR5Repository r5Repository = null;
 
@@ -81,6 +86,12 @@ public class Central implements IStartupParticipant {
     private static WorkspaceRepositoryChangeDetector workspaceRepositoryChangeDetector;
 
     private static RepositoriesViewRefresher repositoriesViewRefresher = new RepositoriesViewRefresher();
+    private static Job deferredRefresh;
+    private static final Set<Refreshable> deferredRepositories = new HashSet<>();
+    private static final long PROJECTS_CHANGED_DELAY = 500;
+    private static Job projectsChanged;
+    private static final AtomicBoolean startupRefreshChecked = new AtomicBoolean();
+    private static final AtomicLong repositoryGeneration = new AtomicLong();
 
     static {
         try {
@@ -216,7 +227,11 @@ public class Central implements IStartupParticipant {
                     resolve = false;
                 }
             } else {
+                StartupTimeline timeline = StartupTimeline.getDefault();
+                StartupTimeline.Span total = timeline.start("Initialise workspace");
+                StartupTimeline.Span span = null;
                 try {
+                    span = timeline.start("Create workspace");
                     Workspace.setDriver(Constants.BNDDRIVER_ECLIPSE);
                     Workspace.addGestalt(Constants.GESTALT_INTERACTIVE, new Attrs());
 
@@ -231,23 +246,35 @@ public class Central implements IStartupParticipant {
                     }
 
                     ws.setOffline(new BndPreferences().isWorkspaceOffline());
+                    span.end();
 
+                    span = timeline.start("Add workspace plugins");
                     ws.addBasicPlugin(new WorkspaceListener(ws));
                     ws.addBasicPlugin(getInstance().repoListenerTracker);
                     ws.addBasicPlugin(getWorkspaceR5Repository());
                     ws.addBasicPlugin(new JobProgress());
+                    span.end();
 
                     // Initialize projects in synchronized block
+                    span = timeline.start("Initialise projects (build order)");
                     ws.getBuildOrder();
+                    span.end();
 
                     // Monitor changes in cnf so we can refresh the workspace
+                    span = timeline.start("Add workspace change listeners");
                     addCnfChangeListener(ws);
+                    addProjectReadinessListener();
 
                     workspaceRepositoryChangeDetector = new WorkspaceRepositoryChangeDetector(ws);
+                    span.end();
 
                     // The workspace has been initialized fully, set the field now
                     workspace = ws;
+                    total.end();
                 } catch (final Exception e) {
+                    if (span != null)
+                        span.fail();
+                    total.fail();
                     if (ws != null) {
                         ws.close();
                     }
@@ -262,13 +289,135 @@ public class Central implements IStartupParticipant {
 
     public static void onWorkspaceInit(final Success<Workspace,Void> callback) {
         Promise<Workspace> p = workspaceQueue.getPromise();
-        p.then(callback, null).then(null, callbackFailure);
+        p.then(new Success<Workspace,Void>() {
+            @Override
+            public Promise<Void> call(Promise<Workspace> resolved) throws Exception {
+                StartupTimeline.Span span = StartupTimeline.getDefault().start(callback.getClass().getName(), StartupTimeline.CALLBACK);
+                try {
+                    Promise<Void> result = callback.call(resolved);
+                    span.end();
+                    return result;
+                } catch (Exception e) {
+                    span.fail();
+                    throw e;
+                }
+            }
+        }, null).then(null, callbackFailure);
     }
 
     public static boolean isWorkspaceInited() {
         return workspace != null;
     }
 
+    /**
+     * Return a promise that resolves when the model of the project is available and its built bundles are indexed in
+     * the workspace repository. This lets a consumer that needs a single project continue without waiting for every
+     * project of the workspace. The promise resolves to {@code null} if the project is not a bnd project or is closed;
+     * such a result, like a failure, is not kept, so asking again after the project was opened or turned into a bnd
+     * project, or after a failure, looks the project up again. The promise of a project is dropped when the project is closed, deleted or opened.
+     */
+    public static Promise<Project> onProjectReady(IProject project) {
+        Deferred<Project> deferred;
+        boolean resolveNow;
+        synchronized (projectReadiness) {
+            deferred = projectReadiness.get(project.getName());
+            if (deferred != null)
+                return deferred.getPromise();
+            deferred = new Deferred<>();
+            projectReadiness.put(project.getName(), deferred);
+            resolveNow = projectsReady;
+        }
+        if (resolveNow) {
+            // a project created or opened after the workspace was set up
+            Project model = null;
+            try {
+                model = project.isOpen() ? getProject(project) : null;
+                deferred.resolve(model);
+            } catch (Exception e) {
+                deferred.fail(e);
+            }
+            if (model == null)
+                forgetReadiness(project, deferred);
+        }
+        return deferred.getPromise();
+    }
+
+    static void projectReady(IProject project, Project model) {
+        Deferred<Project> deferred = getReadiness(project);
+        if (deferred != null) {
+            deferred.resolve(model);
+            if (model == null)
+                forgetReadiness(project, deferred);
+        }
+    }
+
+    static void projectFailed(IProject project, Throwable failure) {
+        Deferred<Project> deferred = getReadiness(project);
+        if (deferred != null) {
+            deferred.fail(failure);
+            forgetReadiness(project, deferred);
+        }
+    }
+
+    static void projectsReady() {
+        synchronized (projectReadiness) {
+            projectsReady = true;
+        }
+    }
+
+    /*
+     * The deferred for the project if it has not been resolved yet.
+     */
+    private static void forgetReadiness(IProject project, Deferred<Project> deferred) {
+        synchronized (projectReadiness) {
+            if (projectReadiness.get(project.getName()) == deferred)
+                projectReadiness.remove(project.getName());
+        }
+    }
+
+    private static void forgetReadiness(IProject project) {
+        Deferred<Project> deferred;
+        synchronized (projectReadiness) {
+            deferred = projectReadiness.remove(project.getName());
+        }
+        // do not leave a consumer waiting for a project that went away
+        if (deferred != null && !deferred.getPromise().isDone())
+            deferred.resolve(null);
+    }
+
+    /*
+     * A closed, deleted or newly opened project has to be looked up again.
+     */
+    private static void addProjectReadinessListener() {
+        ResourcesPlugin.getWorkspace().addResourceChangeListener(new IResourceChangeListener() {
+            @Override
+            public void resourceChanged(IResourceChangeEvent event) {
+                if (event.getType() != IResourceChangeEvent.POST_CHANGE) {
+                    if (event.getResource() instanceof IProject)
+                        forgetReadiness((IProject) event.getResource());
+                    return;
+                }
+                for (IResourceDelta delta : event.getDelta().getAffectedChildren(IResourceDelta.CHANGED | IResourceDelta.ADDED)) {
+                    if ((delta.getFlags() & IResourceDelta.OPEN) != 0 && delta.getResource() instanceof IProject)
+                        forgetReadiness((IProject) delta.getResource());
+                }
+            }
+        }, IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE | IResourceChangeEvent.POST_CHANGE);
+    }
+
+    private static Deferred<Project> getReadiness(IProject project) {
+        synchronized (projectReadiness) {
+            Deferred<Project> deferred = projectReadiness.get(project.getName());
+            if (deferred == null) {
+                deferred = new Deferred<>();
+                projectReadiness.put(project.getName(), deferred);
+            } else if (deferred.getPromise().isDone()) {
+                return null;
+            }
+            return deferred;
+        }
+    }
+
     private static final Failure callbackFailure = new Failure() {
         @Override
         public void fail(Promise< ? > resolved) throws Exception {
@@ -431,9 +580,114 @@ public class Central implements IStartupParticipant {
         }
     }
 
+    /**
+     * Refresh the plugins unless the repositories are unchanged since the last full refresh and its snapshot has not
+     * expired. In that case the repositories are only shown, they load their cached indexes when first listed, and the
+     * refresh of each repository is deferred until it is queried through {@link #refreshIfDeferred(RepositoryPlugin)}
+     * or the snapshot expires. Only the first check, at startup, is recorded in the {@link StartupTimeline}.
+     */
+    public static void refreshPluginsIfStale() throws Exception {
+        StartupTimeline timeline = startupRefreshChecked.compareAndSet(false, true) ? StartupTimeline.getDefault() : new StartupTimeline();
+        long start = System.currentTimeMillis();
+        StartupTimeline.Span span = timeline.start("Check repository snapshot");
+        List<Refreshable> rps = getWorkspace().getPlugins(Refreshable.class);
+        RepositorySnapshot saved = RepositorySnapshot.load();
+        if (saved != null) {
+            long remaining = saved.getRemaining(start);
+            if (remaining > 0 && saved.matches(RepositorySnapshot.capture(rps, start, 0))) {
+                span.saved(saved.getDuration());
+                span.end();
+                deferRefresh(rps, remaining);
+                repositoriesViewRefresher.repositoriesRefreshed();
+                logger.logInfo(String.format("Repositories restored from snapshot in %d ms, refresh deferred for %d min (last refresh took %d ms)", System.currentTimeMillis() - start, TimeUnit.MILLISECONDS.toMinutes(remaining),
+                        saved.getDuration()), null);
+                return;
+            }
+        }
+        span.end();
+
+        span = timeline.start("Refresh repositories");
+        try {
+            refreshPlugins();
+            span.end();
+        } catch (Exception e) {
+            span.fail();
+            throw e;
+        }
+    }
+
+    private static synchronized void deferRefresh(List<Refreshable> rps, long delay) {
+        cancelDeferredRefresh();
+        deferredRepositories.addAll(rps);
+        deferredRefresh = new Job("Refresh repositories") {
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                try {
+                    refreshDeferredRepositories();
+                } catch (Exception e) {
+                    return new Status(IStatus.ERROR, BndtoolsConstants.CORE_PLUGIN_ID, "Failed to refresh plugins", e);
+                }
+                return Status.OK_STATUS;
+            }
+        };
+        deferredRefresh.setSystem(true);
+        deferredRefresh.schedule(delay);
+    }
+
+    private static synchronized void cancelDeferredRefresh() {
+        deferredRepositories.clear();
+        if (deferredRefresh != null) {
+            deferredRefresh.cancel();
+            deferredRefresh = null;
+        }
+    }
+
+    /**
+     * Refresh a repository before it is queried if its refresh was deferred at startup. Does nothing if the repository
+     * was refreshed since.
+     */
+    public static void refreshIfDeferred(RepositoryPlugin repository) throws Exception {
+        synchronized (Central.class) {
+            if (!deferredRepositories.remove(repository))
+                return;
+            if (deferredRepositories.isEmpty())
+                cancelDeferredRefresh();
+        }
+        refreshPlugin((Refreshable) repository);
+    }
+
+    /**
+     * Refresh the repositories whose refresh was deferred at startup and that were not queried since. The projects are
+     * only marked changed, and their classpath containers recomputed, if one of these repositories changed. Called
+     * before the repositories are used to build or resolve. Computing a classpath container does not call it: the
+     * classpath is computed from the local repository state that the snapshot found unchanged, and is recomputed when a
+     * refresh changes a repository.
+     */
+    public static void refreshDeferredRepositories() throws Exception {
+        List<Refreshable> rps;
+        synchronized (Central.class) {
+            rps = new ArrayList<>(deferredRepositories);
+            cancelDeferredRefresh();
+        }
+        if (!rps.isEmpty()) {
+            long start = System.currentTimeMillis();
+            refreshPlugins(rps);
+            long end = System.currentTimeMillis();
+            RepositorySnapshot.capture(getWorkspace().getPlugins(Refreshable.class), end, end - start).save();
+        }
+    }
+
     public static void refreshPlugins() throws Exception {
-        List<File> refreshedFiles = new ArrayList<File>();
+        cancelDeferredRefresh();
+        long start = System.currentTimeMillis();
         List<Refreshable> rps = getWorkspace().getPlugins(Refreshable.class);
+        refreshPlugins(rps);
+        long end = System.currentTimeMillis();
+        RepositorySnapshot.capture(rps, end, end - start).save();
+    }
+
+    private static void refreshPlugins(List<Refreshable> rps) throws Exception {
+        List<File> refreshedFiles = new ArrayList<File>();
         boolean changed = false;
         boolean repoChanged = false;
         for (Refreshable rp : rps) {
@@ -468,6 +722,7 @@ public class Central implements IStartupParticipant {
                 }
 
                 if (repoChanged) {
+                    repositoryGeneration.incrementAndGet();
                     repositoriesViewRefresher.repositoriesRefreshed();
                 }
             } catch (Exception e) {
@@ -475,23 +730,75 @@ public class Central implements IStartupParticipant {
                 throw new RuntimeException(e);
             }
         }
-
     }
 
     public static void refreshPlugin(Refreshable plugin) throws Exception {
+        synchronized (Central.class) {
+            deferredRepositories.remove(plugin);
+        }
         if (plugin.refresh()) {
             refreshFile(plugin.getRoot());
-            for (Project p : Central.getWorkspace().getAllProjects()) {
-                p.setChanged();
-                for (ModelListener l : getInstance().listeners)
-                    l.modelChanged(p);
-            }
+            scheduleProjectsChanged();
             if (plugin instanceof RepositoryPlugin) {
+                repositoryGeneration.incrementAndGet();
                 repositoriesViewRefresher.repositoryRefreshed((RepositoryPlugin) plugin);
             }
         }
     }
 
+    /*
+     * Mark every project changed and notify the model listeners once for a
+     * burst of single repository refreshes, e.g. when several repositories
+     * with a deferred refresh are expanded in the repositories view.
+     */
+    private static synchronized void scheduleProjectsChanged() {
+        if (projectsChanged == null) {
+            projectsChanged = new Job("Update projects after repository refresh") {
+                @Override
+                protected IStatus run(IProgressMonitor monitor) {
+                    try {
+                        for (Project p : getWorkspace().getAllProjects()) {
+                            p.setChanged();
+                            for (ModelListener l : getInstance().listeners)
+                                l.modelChanged(p);
+                        }
+                    } catch (Exception e) {
+                        return new Status(IStatus.ERROR, BndtoolsConstants.CORE_PLUGIN_ID, "Failed to update the projects after a repository refresh", e);
+                    }
+                    return Status.OK_STATUS;
+                }
+            };
+            projectsChanged.setSystem(true);
+        }
+        projectsChanged.schedule(PROJECTS_CHANGED_DELAY);
+    }
+
+    /**
+     * Return a stamp of the content of a repository without listing it. The stamp consists of the number of refreshes
+     * that changed a repository in this session and, for a refreshable repository, a stamp of its root directory. It
+     * changes when the repository is refreshed or its local files are rewritten.
+     */
+    public static String getRepositoryStamp(RepositoryPlugin repo) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(repositoryGeneration.get());
+        if (repo instanceof Refreshable)
+            sb.append(':').append(RepositorySnapshot.stamp(((Refreshable) repo).getRoot()));
+        return sb.toString();
+    }
+
+    /**
+     * Return a digest of the content of a repository without listing it, computed from the index files in the root of
+     * a refreshable repository. Unlike {@link #getRepositoryStamp(RepositoryPlugin)} it can be compared across
+     * sessions.
+     *
+     * @return The digest, or {@code null} if the repository has no index file to digest.
+     */
+    public static String getRepositoryDigest(RepositoryPlugin repo) {
+        if (repo instanceof Refreshable)
+            return RepositorySnapshot.digest(((Refreshable) repo).getRoot());
+        return null;
+    }
+
     public static void refreshFile(File f) throws Exception {
         refreshFile(f, null, false);
     }
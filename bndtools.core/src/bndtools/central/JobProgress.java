@@ -1,92 +1,336 @@
 package bndtools.central;
 
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.bndtools.api.ILogger;
 import org.bndtools.api.Logger;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
+
 import aQute.bnd.service.progress.ProgressPlugin;
 import bndtools.Plugin;
 
+/**
+ * Bridges bnd progress tasks to Eclipse jobs. Tasks are aggregated into groups by the first word of their name (for
+ * example all "Downloading" tasks), and each group is reported by a single job that runs only while the group has
+ * active tasks. The job sleeps until a task starts or completes, and wakes every {@link #UPDATE_INTERVAL} ms to
+ * report throttled work, so no thread is held per task. Completed tasks are counted in per group {@link Metrics},
+ * which are logged whenever a group becomes idle. Tasks that fail are reported in the status of the group job, so
+ * Eclipse logs and shows them as it did for the job of a single task.
+ */
 public class JobProgress implements ProgressPlugin {
     static final ILogger logger = Logger.getLogger(JobProgress.class);
 
+    static final long UPDATE_INTERVAL = 100;
+
+    private final Map<String,GroupJob> groups = new LinkedHashMap<String,GroupJob>();
+
     @Override
     public Task startTask(String name, int size) {
-        TaskJob taskjob = new TaskJob(name, size);
-        taskjob.schedule();
-        return taskjob;
+        logger.logInfo(name, null);
+        GroupJob group;
+        synchronized (groups) {
+            String key = groupName(name);
+            group = groups.get(key);
+            if (group == null) {
+                group = new GroupJob(key);
+                groups.put(key, group);
+            }
+        }
+        return group.start(name, size);
+    }
+
+    static String groupName(String name) {
+        if (name == null)
+            return "bnd";
+        String trimmed = name.trim();
+        int space = trimmed.indexOf(' ');
+        return space > 0 ? trimmed.substring(0, space) : trimmed.isEmpty() ? "bnd" : trimmed;
+    }
+
+    /**
+     * Throughput and latency of the completed tasks of a group.
+     */
+    public static class Metrics {
+        private final int completed;
+        private final int failed;
+        private final int canceled;
+        private final long totalLatency;
+        private final long maxLatency;
+        private final long busyTime;
+
+        Metrics(int completed, int failed, int canceled, long totalLatency, long maxLatency, long busyTime) {
+            this.completed = completed;
+            this.failed = failed;
+            this.canceled = canceled;
+            this.totalLatency = totalLatency;
+            this.maxLatency = maxLatency;
+            this.busyTime = busyTime;
+        }
+
+        /**
+         * @return The number of tasks that completed, including failed and canceled tasks.
+         */
+        public int getCompleted() {
+            return completed;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public int getCanceled() {
+            return canceled;
+        }
+
+        /**
+         * @return The mean time from start to completion of a task, in milliseconds.
+         */
+        public long getMeanLatency() {
+            return completed == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatency / completed);
+        }
+
+        /**
+         * @return The longest time from start to completion of a task, in milliseconds.
+         */
+        public long getMaxLatency() {
+            return TimeUnit.NANOSECONDS.toMillis(maxLatency);
+        }
+
+        /**
+         * @return The number of tasks completed per second while the group had active tasks.
+         */
+        public double getThroughput() {
+            return busyTime == 0 ? 0 : completed / (busyTime / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d tasks (%d failed, %d canceled), %.1f tasks/s, mean latency %d ms, max latency %d ms", completed, failed, canceled, getThroughput(), getMeanLatency(), getMaxLatency());
+        }
     }
 
-    private static class TaskJob extends Job implements Task {
-        private final String name;
-        private final int size;
-        private final AtomicReference<IStatus> status = new AtomicReference<>();
-        private volatile IProgressMonitor monitor;
+    private static class GroupTask implements Task {
+        private final GroupJob group;
+        final String name;
+        final int size;
+        final long started = System.nanoTime();
+        int worked;
+        boolean canceled;
+        boolean done;
 
-        TaskJob(String name, int size) {
-            super(name);
+        GroupTask(GroupJob group, String name, int size) {
+            this.group = group;
             this.name = name;
             this.size = size;
-            logger.logInfo(name, null);
         }
 
         @Override
-        protected IStatus run(IProgressMonitor monitor) {
-            this.monitor = monitor;
-
-            monitor.beginTask(name, size);
-            while (status.get() == null) {
-                if (!isCanceled(monitor)) {
-                    try {
-                        Thread.sleep(100);
-                    } catch (InterruptedException e) {
-                        monitor.setCanceled(true);
-                        status.compareAndSet(null, new Status(Status.CANCEL, Plugin.PLUGIN_ID, "InterruptedException", e));
-                        Thread.currentThread().interrupt();
-                    }
-                }
+        public void worked(int units) {
+            group.worked(this, units);
+        }
+
+        @Override
+        public void done(String message, Throwable error) {
+            group.done(this, message, error);
+        }
+
+        @Override
+        public boolean isCanceled() {
+            synchronized (group) {
+                return canceled;
             }
-            monitor.done();
+        }
+    }
+
+    private static class GroupJob extends Job {
+        private static final int TICKS = 10000;
 
-            return status.get();
+        final String group;
+        private final Set<GroupTask> active = new LinkedHashSet<GroupTask>();
+        private boolean running;
+        private boolean changed;
+        private boolean canceling;
+        private long lastUpdate;
+
+        // Progress of the current run
+        private int started;
+        private int finished;
+        private final List<IStatus> failures = new ArrayList<IStatus>();
+
+        // Metrics
+        private int completed;
+        private int failed;
+        private int canceled;
+        private long totalLatency;
+        private long maxLatency;
+        private long busyTime;
+        private long busySince;
+
+        GroupJob(String group) {
+            super(group);
+            this.group = group;
         }
 
-        /**
-         * Must ensure task is done if true is returned.
-         */
-        private boolean isCanceled(IProgressMonitor m) {
-            boolean canceled = m.isCanceled();
-            if (canceled) {
-                status.compareAndSet(null, new Status(Status.CANCEL, Plugin.PLUGIN_ID, "Canceled"));
+        synchronized GroupTask start(String name, int size) {
+            GroupTask task = new GroupTask(this, name, size);
+            if (active.isEmpty())
+                busySince = System.nanoTime();
+            active.add(task);
+            started++;
+            if (!running) {
+                running = true;
+                schedule();
             }
-            return canceled;
+            signal();
+            return task;
         }
 
-        @Override
-        public void worked(int units) {
-            IProgressMonitor m = monitor;
-            if (m == null || (status.get() != null)) {
+        synchronized void worked(GroupTask task, int units) {
+            if (task.done || task.canceled)
+                return;
+            task.worked += units;
+            long now = System.currentTimeMillis();
+            if (now - lastUpdate >= UPDATE_INTERVAL)
+                signal();
+            else
+                changed = true;
+        }
+
+        synchronized void done(GroupTask task, String message, Throwable error) {
+            if (task.done)
                 return;
+            task.done = true;
+            long latency = System.nanoTime() - task.started;
+            completed++;
+            if (error != null) {
+                failed++;
+                IStatus failure = new Status(IStatus.ERROR, Plugin.PLUGIN_ID, message != null ? message : task.name, error);
+                if (running)
+                    failures.add(failure);
+                else
+                    logger.logStatus(failure);
+            }
+            if (task.canceled)
+                canceled++;
+            totalLatency += latency;
+            maxLatency = Math.max(maxLatency, latency);
+            if (active.remove(task)) {
+                finished++;
+                if (active.isEmpty())
+                    busyTime += System.nanoTime() - busySince;
             }
-            m.worked(units);
+            signal();
+        }
+
+        private void signal() {
+            changed = true;
+            notifyAll();
+        }
+
+        synchronized Metrics getMetrics() {
+            long busy = busyTime;
+            if (!active.isEmpty())
+                busy += System.nanoTime() - busySince;
+            return new Metrics(completed, failed, canceled, totalLatency, maxLatency, busy);
         }
 
         @Override
-        public void done(String message, Throwable error) {
-            status.compareAndSet(null, new Status(error == null ? Status.OK : Status.ERROR, Plugin.PLUGIN_ID, message, error));
+        protected void canceling() {
+            synchronized (this) {
+                canceling = true;
+                notifyAll();
+            }
         }
 
         @Override
-        public boolean isCanceled() {
-            IProgressMonitor m = monitor;
-            if (m == null) {
-                return false;
+        protected IStatus run(IProgressMonitor monitor) {
+            monitor.beginTask(group, TICKS);
+            int reported = 0;
+            try {
+                synchronized (this) {
+                    canceling = false;
+                    while (true) {
+                        if (canceling || monitor.isCanceled()) {
+                            cancelActive();
+                            return Status.CANCEL_STATUS;
+                        }
+                        if (active.isEmpty()) {
+                            logger.logInfo(group + ": " + getMetrics(), null);
+                            started = 0;
+                            finished = 0;
+                            running = false;
+                            return takeFailures();
+                        }
+                        if (changed) {
+                            changed = false;
+                            lastUpdate = System.currentTimeMillis();
+                            int ticks = progress();
+                            if (ticks > reported) {
+                                monitor.worked(ticks - reported);
+                                reported = ticks;
+                            }
+                            GroupTask current = active.iterator().next();
+                            monitor.subTask(String.format("%d of %d: %s", finished + 1, started, current.name));
+                            continue;
+                        }
+                        try {
+                            // Throttled work only sets changed, it is reported when the wait times out
+                            wait(UPDATE_INTERVAL);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            cancelActive();
+                            return new Status(Status.CANCEL, Plugin.PLUGIN_ID, "InterruptedException", e);
+                        }
+                    }
+                }
+            } finally {
+                monitor.done();
+            }
+        }
+
+        private IStatus takeFailures() {
+            if (failures.isEmpty())
+                return Status.OK_STATUS;
+            MultiStatus status = new MultiStatus(Plugin.PLUGIN_ID, 0, failures.toArray(new IStatus[0]), group + ": " + failures.size() + " task(s) failed", null);
+            failures.clear();
+            return status;
+        }
+
+        /*
+         * Completed tasks count fully, active tasks by the fraction of their
+         * size that has been worked.
+         */
+        private int progress() {
+            double done = finished;
+            for (GroupTask task : active) {
+                if (task.size > 0)
+                    done += Math.min(1.0, (double) task.worked / task.size);
             }
-            return isCanceled(m);
+            return started == 0 ? 0 : (int) (TICKS * done / started);
+        }
+
+        private void cancelActive() {
+            for (IStatus failure : failures)
+                logger.logStatus(failure);
+            failures.clear();
+            for (GroupTask task : active)
+                task.canceled = true;
+            if (!active.isEmpty())
+                busyTime += System.nanoTime() - busySince;
+            active.clear();
+            started = 0;
+            finished = 0;
+            running = false;
         }
     }
 }
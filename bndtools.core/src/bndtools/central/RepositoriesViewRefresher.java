@@ -3,23 +3,33 @@ package bndtools.central;
 import java.io.File;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.bndtools.utils.swt.SWTConcurrencyUtil;
 import org.eclipse.core.resources.WorkspaceJob;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.viewers.IContentProvider;
 import org.eclipse.jface.viewers.TreePath;
 import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.swt.widgets.Display;
@@ -35,6 +45,7 @@ import aQute.bnd.osgi.Jar;
 import aQute.bnd.service.RepositoryListenerPlugin;
 import aQute.bnd.service.RepositoryPlugin;
 import bndtools.Plugin;
+import bndtools.model.repo.RepositoryTreeContentProvider;
 
 public class RepositoriesViewRefresher implements RepositoryListenerPlugin {
 
@@ -43,6 +54,29 @@ public class RepositoriesViewRefresher implements RepositoryListenerPlugin {
     }
 
     // private static final ILogger logger = Logger.getLogger(RepositoriesViewRefresher.class);
+    private static final int WARMUP_THREADS = 4;
+    private static final long REPOSITORY_TIMEOUT = TimeUnit.SECONDS.toMillis(60);
+    private static final long POLL_INTERVAL = 100;
+    private static final long REFRESH_DELAY = 100;
+
+    /**
+     * Called from a background thread when a repository has been warmed up, or has failed or timed out.
+     */
+    private interface WarmupListener {
+        void finished(RepositoryPlugin repo);
+    }
+
+    private static class Warmup {
+        final RepositoryPlugin repo;
+        /** The monitor of the worker thread, canceled when the warm-up times out or the refresh is canceled. */
+        final IProgressMonitor monitor = new NullProgressMonitor();
+        volatile long started;
+
+        Warmup(RepositoryPlugin repo) {
+            this.repo = repo;
+        }
+    }
+
     private boolean redo = false;
     private boolean busy = false;
     private final ServiceRegistration<RepositoryListenerPlugin> registration;
@@ -83,7 +117,7 @@ public class RepositoriesViewRefresher implements RepositoryListenerPlugin {
                     if (monitor == null)
                         monitor = new NullProgressMonitor();
 
-                    Set<RepositoryPlugin> repos = new HashSet<>();
+                    Set<RepositoryPlugin> repos = new LinkedHashSet<>();
                     if (target != null)
                         repos.add(target);
                     else {
@@ -92,16 +126,32 @@ public class RepositoriesViewRefresher implements RepositoryListenerPlugin {
                         }
                     }
 
-                    ensureLoaded(monitor, repos);
-
                     // get repositories first, then do UI thread work
 
-                    final Map<Entry<TreeViewer,RefreshModel>,List<RepositoryPlugin>> entryRepos = new HashMap<>();
+                    final Map<TreeViewer,List<RepositoryPlugin>> viewerRepos = new HashMap<>();
 
                     for (Map.Entry<TreeViewer,RefreshModel> entry : viewers.entrySet()) {
-                        entryRepos.put(entry, entry.getValue().getRepositories());
+                        viewerRepos.put(entry.getKey(), entry.getValue().getRepositories());
                     }
 
+                    //
+                    // Update the viewers as each repository finishes
+                    //
+
+                    IStatus status = ensureLoaded(monitor, repos, new WarmupListener() {
+                        @Override
+                        public void finished(final RepositoryPlugin repo) {
+                            getDisplay().asyncExec(new Runnable() {
+                                @Override
+                                public void run() {
+                                    for (Entry<TreeViewer,List<RepositoryPlugin>> entry : viewerRepos.entrySet()) {
+                                        updateViewer(entry.getKey(), entry.getValue(), repo);
+                                    }
+                                }
+                            });
+                        }
+                    });
+
                     //
                     // And now back to the UI thread
                     //
@@ -114,13 +164,8 @@ public class RepositoriesViewRefresher implements RepositoryListenerPlugin {
                                 redo = false;
                             }
 
-                            for (Map.Entry<TreeViewer,RefreshModel> entry : viewers.entrySet()) {
-
-                                TreePath[] expandedTreePaths = entry.getKey().getExpandedTreePaths();
-
-                                entry.getKey().setInput(entryRepos.get(entry));
-                                if (expandedTreePaths != null && expandedTreePaths.length > 0)
-                                    entry.getKey().setExpandedTreePaths(expandedTreePaths);
+                            for (Entry<TreeViewer,List<RepositoryPlugin>> entry : viewerRepos.entrySet()) {
+                                updateViewer(entry.getKey(), entry.getValue(), null);
                             }
                             synchronized (RepositoriesViewRefresher.this) {
                                 busy = false;
@@ -130,44 +175,135 @@ public class RepositoriesViewRefresher implements RepositoryListenerPlugin {
                             }
                         }
                     });
+                    return status;
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
                 return Status.OK_STATUS;
             }
 
-        }.schedule(1000);
+        }.schedule(REFRESH_DELAY);
     }
 
-    private IStatus ensureLoaded(IProgressMonitor monitor, Collection<RepositoryPlugin> repos) {
-        int n = 0;
+    /**
+     * Warm up the repositories concurrently by listing their content, so that the viewers do not wait for downloads on
+     * the UI thread. Each repository may take up to {@link #REPOSITORY_TIMEOUT} once its warm-up has started.
+     */
+    private IStatus ensureLoaded(IProgressMonitor monitor, Collection<RepositoryPlugin> repos, WarmupListener listener) {
+        final SubMonitor progress = SubMonitor.convert(monitor, "Loading repositories", repos.size());
+        final RepositoryPlugin workspaceRepo;
+        try {
+            workspaceRepo = Central.getWorkspaceRepository();
+        } catch (Exception e) {
+            return new Status(Status.ERROR, Plugin.PLUGIN_ID, "Exception refreshing repositories", e);
+        }
+        if (repos.isEmpty())
+            return Status.OK_STATUS;
+
+        MultiStatus status = new MultiStatus(Plugin.PLUGIN_ID, 0, "Problems refreshing repositories", null);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(repos.size(), WARMUP_THREADS));
+        CompletionService<RepositoryPlugin> completion = new ExecutorCompletionService<>(executor);
+        Map<Future<RepositoryPlugin>,Warmup> pending = new HashMap<>();
         try {
-            final RepositoryPlugin workspaceRepo = Central.getWorkspaceRepository();
-            for (RepositoryPlugin repo : repos) {
-                if (monitor.isCanceled()) {
+            for (final RepositoryPlugin repo : repos) {
+                final Warmup warmup = new Warmup(repo);
+                pending.put(completion.submit(new Callable<RepositoryPlugin>() {
+                    @Override
+                    public RepositoryPlugin call() throws Exception {
+                        warmup.started = System.currentTimeMillis();
+                        if (warmup.monitor.isCanceled())
+                            return repo;
+                        if (repo != workspaceRepo) {
+                            repo.list(null); // looks silly but is here to incur any download time
+                            return repo;
+                        }
+                        // We must safely call bnd to list workspace repo
+                        Central.bndCall(new Callable<List<String>>() {
+                            @Override
+                            public List<String> call() throws Exception {
+                                return workspaceRepo.list(null);
+                            }
+                        }, warmup.monitor);
+                        return repo;
+                    }
+                }), warmup);
+            }
+
+            while (!pending.isEmpty()) {
+                if (progress.isCanceled())
                     return Status.CANCEL_STATUS;
-                }
-                monitor.beginTask(repo.getName(), n++);
-                if (repo != workspaceRepo) {
-                    repo.list(null); // looks silly but is here to incur any download time
+
+                Future<RepositoryPlugin> future = completion.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (future != null) {
+                    Warmup warmup = pending.remove(future);
+                    if (warmup == null)
+                        continue; // already timed out
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        status.add(new Status(Status.ERROR, Plugin.PLUGIN_ID, "Unable to refresh repository " + warmup.repo.getName(), e.getCause()));
+                    }
+                    listener.finished(warmup.repo);
+                    progress.worked(1);
                     continue;
                 }
-                // We must safely call bnd to list workspace repo
-                try {
-                    Central.bndCall(new Callable<List<String>>() {
-                        @Override
-                        public List<String> call() throws Exception {
-                            return workspaceRepo.list(null);
-                        }
-                    }, monitor);
-                } catch (TimeoutException | InterruptedException e) {
-                    return new Status(Status.ERROR, Plugin.PLUGIN_ID, "Unable to acquire lock to refresh repository " + repo.getName(), e);
+
+                long now = System.currentTimeMillis();
+                for (Iterator<Entry<Future<RepositoryPlugin>,Warmup>> it = pending.entrySet().iterator(); it.hasNext();) {
+                    Entry<Future<RepositoryPlugin>,Warmup> entry = it.next();
+                    long started = entry.getValue().started;
+                    if (started != 0 && now - started > REPOSITORY_TIMEOUT) {
+                        entry.getValue().monitor.setCanceled(true);
+                        entry.getKey().cancel(true);
+                        it.remove();
+                        RepositoryPlugin repo = entry.getValue().repo;
+                        status.add(new Status(Status.WARNING, Plugin.PLUGIN_ID, "Timed out refreshing repository " + repo.getName()));
+                        listener.finished(repo);
+                        progress.worked(1);
+                    }
                 }
             }
-        } catch (Exception e) {
-            return new Status(Status.ERROR, Plugin.PLUGIN_ID, "Exception refreshing repositories", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Status.CANCEL_STATUS;
+        } finally {
+            for (Warmup warmup : pending.values()) {
+                warmup.monitor.setCanceled(true);
+            }
+            executor.shutdownNow();
+        }
+        return status;
+    }
+
+    /**
+     * Bring a viewer up to date on the UI thread. The input is replaced when the list of repositories has changed;
+     * otherwise only the given repository is listed again.
+     */
+    private static void updateViewer(TreeViewer viewer, List<RepositoryPlugin> repos, RepositoryPlugin repo) {
+        if (viewer.getControl() == null || viewer.getControl().isDisposed())
+            return;
+
+        if (!repos.equals(viewer.getInput())) {
+            TreePath[] expandedTreePaths = viewer.getExpandedTreePaths();
+            viewer.setInput(repos);
+            if (expandedTreePaths != null && expandedTreePaths.length > 0)
+                viewer.setExpandedTreePaths(expandedTreePaths);
+            return;
         }
-        return Status.OK_STATUS;
+
+        if (repo == null || !repos.contains(repo))
+            return;
+
+        IContentProvider contentProvider = viewer.getContentProvider();
+        if (contentProvider instanceof RepositoryTreeContentProvider) {
+            RepositoryTreeContentProvider repoContentProvider = (RepositoryTreeContentProvider) contentProvider;
+            repoContentProvider.invalidate(repo);
+            if (repoContentProvider.isShowRepos()) {
+                viewer.refresh(repo, true);
+                return;
+            }
+        }
+        viewer.refresh(true);
     }
 
     public void addViewer(final TreeViewer viewer, final RefreshModel model) {
@@ -243,13 +379,24 @@ public class RepositoriesViewRefresher implements RepositoryListenerPlugin {
             @Override
             public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
 
-                ensureLoaded(monitor, refresh.getRepositories());
+                final List<RepositoryPlugin> repos = refresh.getRepositories();
+                IStatus status = ensureLoaded(monitor, repos, new WarmupListener() {
+                    @Override
+                    public void finished(final RepositoryPlugin repo) {
+                        SWTConcurrencyUtil.execForControl(viewer.getControl(), true, new Runnable() {
+                            @Override
+                            public void run() {
+                                updateViewer(viewer, repos, repo);
+                            }
+                        });
+                    }
+                });
 
                 SWTConcurrencyUtil.execForControl(viewer.getControl(), true, new Runnable() {
 
                     @Override
                     public void run() {
-                        viewer.setInput(refresh.getRepositories());
+                        updateViewer(viewer, repos, null);
 
                         synchronized (RepositoriesViewRefresher.this) {
                             busy = false;
@@ -259,7 +406,7 @@ public class RepositoriesViewRefresher implements RepositoryListenerPlugin {
                     }
 
                 });
-                return Status.OK_STATUS;
+                return status;
             }
         }.schedule();
     }
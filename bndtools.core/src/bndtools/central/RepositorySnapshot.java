@@ -0,0 +1,231 @@
+package bndtools.central;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.bndtools.api.ILogger;
+import org.bndtools.api.Logger;
+
+import aQute.bnd.service.Refreshable;
+import aQute.bnd.service.RepositoryPlugin;
+import aQute.lib.hex.Hex;
+import aQute.lib.io.IO;
+import bndtools.Plugin;
+
+/**
+ * The state of the refreshable repositories after the last full refresh: a stamp of each repository root, a digest of
+ * its index files, when the refresh happened and how long it took. At startup the repositories do not need to be
+ * refreshed if none of the stamps and digests changed and the snapshot is younger than {@link #TTL}. The snapshot does
+ * not hold the bundles of a repository: the repositories load them from their own index caches when they are first
+ * listed, and the digest ensures that those are the indexes of the last refresh.
+ */
+class RepositorySnapshot {
+    private static final ILogger logger = Logger.getLogger(RepositorySnapshot.class);
+
+    static final long TTL = TimeUnit.HOURS.toMillis(4);
+
+    private static final String FILE_NAME = "repositories.snapshot";
+    private static final String REFRESHED = "refreshed";
+    private static final String DURATION = "duration";
+    private static final String REPO_PREFIX = "repo.";
+    private static final String DIGEST_PREFIX = "digest.";
+
+    /**
+     * The files in a repository root that hold its index.
+     */
+    private static final Pattern INDEX_FILE = Pattern.compile("(?i)(.*index.*|repository.*)\\.(xml|xml\\.gz|gz|json)");
+
+    /**
+     * The digests of index files, so an unchanged index is not read again.
+     */
+    private static final Map<File,IndexDigest> indexDigests = new HashMap<File,IndexDigest>();
+
+    private final Properties props;
+
+    private RepositorySnapshot(Properties props) {
+        this.props = props;
+    }
+
+    /**
+     * @return The snapshot of the current state of the repositories.
+     */
+    static RepositorySnapshot capture(List<Refreshable> repositories, long refreshed, long duration) {
+        Properties props = new Properties();
+        props.setProperty(REFRESHED, Long.toString(refreshed));
+        props.setProperty(DURATION, Long.toString(duration));
+        for (Refreshable repository : repositories) {
+            props.setProperty(REPO_PREFIX + getName(repository), stamp(repository.getRoot()));
+            String digest = digest(repository.getRoot());
+            if (digest != null)
+                props.setProperty(DIGEST_PREFIX + getName(repository), digest);
+        }
+        return new RepositorySnapshot(props);
+    }
+
+    /**
+     * @return The persisted snapshot, or {@code null} if there is none.
+     */
+    static RepositorySnapshot load() {
+        File file = getFile();
+        if (file == null || !file.isFile())
+            return null;
+        Properties props = new Properties();
+        try (InputStream in = IO.stream(file)) {
+            props.load(in);
+            return new RepositorySnapshot(props);
+        } catch (IOException e) {
+            logger.logWarning("Unable to read the repository snapshot", e);
+            return null;
+        }
+    }
+
+    void save() {
+        File file = getFile();
+        if (file == null)
+            return;
+        try (OutputStream out = IO.outputStream(file)) {
+            props.store(out, null);
+        } catch (IOException e) {
+            logger.logWarning("Unable to write the repository snapshot", e);
+            IO.delete(file);
+        }
+    }
+
+    long getRefreshed() {
+        return getLong(REFRESHED);
+    }
+
+    /**
+     * @return How long the refresh took, in milliseconds.
+     */
+    long getDuration() {
+        return getLong(DURATION);
+    }
+
+    /**
+     * @return The time until the snapshot expires, in milliseconds; zero or less if it has expired.
+     */
+    long getRemaining(long now) {
+        return getRefreshed() + TTL - now;
+    }
+
+    /**
+     * @return {@code true} if the snapshot has the same repositories with the same stamps and digests.
+     */
+    boolean matches(RepositorySnapshot current) {
+        return stripTimes(props).equals(stripTimes(current.props));
+    }
+
+    private static Properties stripTimes(Properties props) {
+        Properties result = new Properties();
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith(REPO_PREFIX) || key.startsWith(DIGEST_PREFIX))
+                result.setProperty(key, props.getProperty(key));
+        }
+        return result;
+    }
+
+    private long getLong(String key) {
+        try {
+            return Long.parseLong(props.getProperty(key, "0"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String getName(Refreshable repository) {
+        if (repository instanceof RepositoryPlugin)
+            return ((RepositoryPlugin) repository).getName();
+        return repository.getClass().getName();
+    }
+
+    /*
+     * The root itself and its direct children; a repository that downloads or
+     * re-indexes rewrites its index files there.
+     */
+    static String stamp(File root) {
+        if (root == null)
+            return "";
+        StringBuilder sb = new StringBuilder();
+        sb.append(root.getAbsolutePath()).append(':').append(root.lastModified());
+        File[] children = root.listFiles();
+        if (children != null) {
+            long newest = 0;
+            for (File child : children)
+                newest = Math.max(newest, child.lastModified());
+            sb.append(':').append(children.length).append(':').append(newest);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Return a digest of the content of the index files directly in a repository root. Unlike {@link #stamp(File)} the
+     * digest is the same in every session for the same content.
+     *
+     * @return The digest, or {@code null} if the root holds no index file or an index file cannot be read.
+     */
+    static String digest(File root) {
+        if (root == null)
+            return null;
+        File[] children = root.listFiles();
+        if (children == null)
+            return null;
+        Arrays.sort(children);
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            boolean found = false;
+            for (File child : children) {
+                if (child.isFile() && INDEX_FILE.matcher(child.getName()).matches()) {
+                    found = true;
+                    md.update(child.getName().getBytes("UTF-8"));
+                    md.update(indexDigest(child));
+                }
+            }
+            return found ? Hex.toHexString(md.digest()) : null;
+        } catch (Exception e) {
+            logger.logWarning("Unable to digest the index of repository " + root, e);
+            return null;
+        }
+    }
+
+    private static byte[] indexDigest(File file) throws Exception {
+        String stamp = file.lastModified() + ":" + file.length();
+        synchronized (indexDigests) {
+            IndexDigest cached = indexDigests.get(file);
+            if (cached != null && cached.stamp.equals(stamp))
+                return cached.digest;
+        }
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(IO.read(file));
+        synchronized (indexDigests) {
+            indexDigests.put(file, new IndexDigest(stamp, digest));
+        }
+        return digest;
+    }
+
+    private static final class IndexDigest {
+        final String stamp;
+        final byte[] digest;
+
+        IndexDigest(String stamp, byte[] digest) {
+            this.stamp = stamp;
+            this.digest = digest;
+        }
+    }
+
+    private static File getFile() {
+        Plugin plugin = Plugin.getDefault();
+        if (plugin == null)
+            return null;
+        return new File(plugin.getStateLocation().toFile(), FILE_NAME);
+    }
+}
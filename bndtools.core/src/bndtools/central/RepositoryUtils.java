@@ -3,6 +3,8 @@ package bndtools.central;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
 
 import org.bndtools.api.ILogger;
@@ -14,6 +16,7 @@ import aQute.bnd.service.RepositoryPlugin;
 
 public class RepositoryUtils {
     private static final ILogger logger = Logger.getLogger(RepositoryUtils.class);
+    private static final Map<RepositoryPlugin,Object> writeLocks = new WeakHashMap<RepositoryPlugin,Object>();
 
     public static List<RepositoryPlugin> listRepositories(boolean hideCache) {
         Workspace workspace;
@@ -59,4 +62,27 @@ public class RepositoryUtils {
         }
         return Collections.emptyList();
     }
+
+    /**
+     * Return the lock that serialises writes to a repository plugin. Repositories are read from several threads at once
+     * (the repositories view warms them up in parallel, source bundles are looked up in parallel and resolve-all
+     * resolves in parallel), so reads are not locked. Adding a bundle rewrites the index of the repository, so every
+     * put, and a read that must see its result, synchronizes on this lock. The lock is private to bndtools, so a
+     * repository implementation that synchronizes on itself cannot block a writer, and writes to different
+     * repositories proceed in parallel.
+     *
+     * @param repository
+     *            The repository written to.
+     * @return The object to synchronize on.
+     */
+    public static Object getWriteLock(RepositoryPlugin repository) {
+        synchronized (writeLocks) {
+            Object lock = writeLocks.get(repository);
+            if (lock == null) {
+                lock = new Object();
+                writeLocks.put(repository, lock);
+            }
+            return lock;
+        }
+    }
 }
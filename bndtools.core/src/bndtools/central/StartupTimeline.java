@@ -0,0 +1,146 @@
+package bndtools.central;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import aQute.lib.json.JSONCodec;
+
+/**
+ * Records how long the steps of the bnd workspace initialisation take: the phases of {@link Central#getWorkspace()},
+ * the {@link Central#onWorkspaceInit(org.osgi.util.promise.Success)} callbacks and the initial repository refresh.
+ * Times are relative to the creation of the timeline, which is when the class is first used. The timeline can be
+ * formatted as a text report or exported as JSON.
+ */
+public class StartupTimeline {
+
+    public static final String PHASE = "phase";
+    public static final String CALLBACK = "callback";
+
+    private static final StartupTimeline instance = new StartupTimeline();
+
+    private final long origin;
+    private final List<Event> events = new ArrayList<Event>();
+
+    /**
+     * A completed step. The public fields are the JSON export format.
+     */
+    public static class Event {
+        public String name;
+        public String category;
+        public String thread;
+        /** Start time in milliseconds since the timeline was created. */
+        public long start;
+        /** Duration in milliseconds. */
+        public long duration;
+        /** Milliseconds of work the step avoided, for example a skipped refresh. */
+        public long saved;
+        public boolean failed;
+    }
+
+    /**
+     * A step in progress.
+     */
+    public class Span {
+        private final String name;
+        private final String category;
+        private final long started = System.nanoTime();
+        private long saved;
+        private boolean ended;
+
+        Span(String name, String category) {
+            this.name = name;
+            this.category = category;
+        }
+
+        /**
+         * Record how much work, in milliseconds, the step avoided.
+         */
+        public void saved(long millis) {
+            saved = millis;
+        }
+
+        public void end() {
+            end(false);
+        }
+
+        public void fail() {
+            end(true);
+        }
+
+        private void end(boolean failed) {
+            synchronized (StartupTimeline.this) {
+                if (ended)
+                    return;
+                ended = true;
+                Event event = new Event();
+                event.name = name;
+                event.category = category;
+                event.thread = Thread.currentThread().getName();
+                event.start = TimeUnit.NANOSECONDS.toMillis(started - origin);
+                event.duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                event.saved = saved;
+                event.failed = failed;
+                events.add(event);
+            }
+        }
+    }
+
+    StartupTimeline() {
+        this.origin = System.nanoTime();
+    }
+
+    public static StartupTimeline getDefault() {
+        return instance;
+    }
+
+    public Span start(String name) {
+        return new Span(name, PHASE);
+    }
+
+    public Span start(String name, String category) {
+        return new Span(name, category);
+    }
+
+    public synchronized List<Event> getEvents() {
+        return new ArrayList<Event>(events);
+    }
+
+    /**
+     * @return The events in the order they started, one per line, with the total time per category and the total time
+     *         saved.
+     */
+    public String format() {
+        List<Event> sorted = getEvents();
+        Collections.sort(sorted, new Comparator<Event>() {
+            @Override
+            public int compare(Event a, Event b) {
+                return Long.compare(a.start, b.start);
+            }
+        });
+
+        StringBuilder sb = new StringBuilder();
+        long phases = 0;
+        long callbacks = 0;
+        long saved = 0;
+        long end = 0;
+        for (Event event : sorted) {
+            sb.append(String.format("%8d ms %8d ms  %-8s %s [%s]%s%s%n", event.start, event.duration, event.category, event.name, event.thread, event.saved > 0 ? " saved " + event.saved + " ms" : "", event.failed ? " FAILED" : ""));
+            if (PHASE.equals(event.category))
+                phases += event.duration;
+            else if (CALLBACK.equals(event.category))
+                callbacks += event.duration;
+            saved += event.saved;
+            end = Math.max(end, event.start + event.duration);
+        }
+        sb.append(String.format("Phases %d ms, callbacks %d ms, saved %d ms, last step ended at %d ms%n", phases, callbacks, saved, end));
+        return sb.toString();
+    }
+
+    public void export(File file) throws Exception {
+        new JSONCodec().enc().to(file).put(getEvents()).close();
+    }
+}
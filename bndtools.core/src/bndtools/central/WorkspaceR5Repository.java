@@ -5,12 +5,19 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.bndtools.api.ILogger;
 import org.bndtools.api.Logger;
@@ -59,22 +66,89 @@ public class WorkspaceR5Repository extends BaseRepository {
         });
     }
 
+    /**
+     * Load the index of every project. The models and target directories of the projects come from the bnd workspace,
+     * which is not thread safe, and are looked up one after the other under the bnd lock; only the index files are
+     * parsed in parallel. Each project is reported ready to {@link Central#onProjectReady(IProject)} as soon as its own
+     * index is loaded.
+     */
     void setupProjects() throws Exception {
-        IProject[] projects = ResourcesPlugin.getWorkspace().getRoot().getProjects();
-        for (IProject project : projects) {
-            Project model = Central.getProject(project);
-            if (model != null) {
-                File targetDir = getTarget(model);
-                if (targetDir != null) {
-                    File indexFile = new File(targetDir, ".index");
-                    if (indexFile.isFile()) {
-                        loadProjectIndex(project, IO.stream(indexFile), project.getLocation().toFile().toURI());
+        final IProject[] projects = ResourcesPlugin.getWorkspace().getRoot().getProjects();
+        final Map<IProject,Project> models = new LinkedHashMap<IProject,Project>();
+        final Map<IProject,File> indexFiles = new HashMap<IProject,File>();
+        try {
+            Central.bndCall(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (IProject project : projects) {
+                        try {
+                            Project model = Central.getProject(project);
+                            models.put(project, model);
+                            File indexFile = getIndexFile(model);
+                            if (indexFile != null)
+                                indexFiles.put(project, indexFile);
+                        } catch (Exception e) {
+                            logger.logError(MessageFormat.format("Failed to set up the workspace repository index of project {0}.", project.getName()), e);
+                            Central.projectFailed(project, e);
+                        }
                     }
+                    return null;
                 }
+            });
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(indexFiles.size(), Runtime.getRuntime().availableProcessors())));
+            try {
+                List<Future<Void>> futures = new ArrayList<Future<Void>>(indexFiles.size());
+                for (final Entry<IProject,Project> entry : models.entrySet()) {
+                    final IProject project = entry.getKey();
+                    final File indexFile = indexFiles.get(project);
+                    if (indexFile == null) {
+                        Central.projectReady(project, entry.getValue());
+                        continue;
+                    }
+                    futures.add(executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            try {
+                                loadProjectIndex(project, IO.stream(indexFile), project.getLocation().toFile().toURI());
+                                Central.projectReady(project, entry.getValue());
+                            } catch (Exception e) {
+                                Central.projectFailed(project, e);
+                                throw e;
+                            }
+                            return null;
+                        }
+                    }));
+                }
+                for (Future<Void> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        logger.logError("Failed to set up the workspace repository index", e.getCause());
+                    }
+                }
+            } finally {
+                executor.shutdown();
             }
+        } finally {
+            Central.projectsReady();
         }
     }
 
+    /*
+     * The index of the bundles built by the project, or null if there is none.
+     * Must be called under the bnd lock.
+     */
+    private File getIndexFile(Project model) throws IOException {
+        if (model == null)
+            return null;
+        File targetDir = getTarget(model);
+        if (targetDir == null)
+            return null;
+        File indexFile = new File(targetDir, ".index");
+        return indexFile.isFile() ? indexFile : null;
+    }
+
     // This is equivalent to Project.getTarget0(). It gets the target dir without a prepare,
     // which would initialise the plugins too early.
     private File getTarget(Project project) throws IOException {
@@ -88,28 +162,37 @@ public class WorkspaceR5Repository extends BaseRepository {
         return target;
     }
 
+    /**
+     * Replace the index of a project. The index is parsed before the repository is locked, so that several projects can
+     * be loaded at once.
+     */
     public void loadProjectIndex(final IProject project, InputStream index, URI baseUri) {
-        synchronized (projectMap) {
-            try {
-                cleanProject(project);
-
-                IRepositoryIndexProcessor processor = new IRepositoryIndexProcessor() {
-                    @Override
-                    public void processResource(Resource resource) {
-                        addResource(project, resource);
-                    }
+        final CapabilityIndex capabilityIndex = new CapabilityIndex();
+        try {
+            IRepositoryIndexProcessor processor = new IRepositoryIndexProcessor() {
+                @Override
+                public void processResource(Resource resource) {
+                    capabilityIndex.addResource(resource);
+                }
 
-                    @Override
-                    public void processReferral(URI parentUri, Referral referral, int maxDepth, int currentDepth) {
-                        // ignore: we don't create any referrals
-                    }
-                };
-                contentProvider.parseIndex(index, baseUri, processor, logAdapter);
-            } catch (Exception e) {
-                logger.logError(MessageFormat.format("Failed to process index file for bundles in project {0}.", project.getName()), e);
-            } finally {
-                IO.close(index);
+                @Override
+                public void processReferral(URI parentUri, Referral referral, int maxDepth, int currentDepth) {
+                    // ignore: we don't create any referrals
+                }
+            };
+            contentProvider.parseIndex(index, baseUri, processor, logAdapter);
+        } catch (Exception e) {
+            logger.logError(MessageFormat.format("Failed to process index file for bundles in project {0}.", project.getName()), e);
+            synchronized (projectMap) {
+                cleanProject(project);
             }
+            return;
+        } finally {
+            IO.close(index);
+        }
+
+        synchronized (projectMap) {
+            projectMap.put(project, capabilityIndex);
         }
     }
 
@@ -119,23 +202,18 @@ public class WorkspaceR5Repository extends BaseRepository {
             index.clear();
     }
 
-    private void addResource(IProject project, Resource resource) {
-        CapabilityIndex index = projectMap.get(project);
-        if (index == null) {
-            index = new CapabilityIndex();
-            projectMap.put(project, index);
-        }
-        index.addResource(resource);
-    }
-
     @Override
     public Map<Requirement,Collection<Capability>> findProviders(Collection< ? extends Requirement> requirements) {
+        Map<IProject,CapabilityIndex> indexes;
+        synchronized (projectMap) {
+            indexes = new HashMap<IProject,CapabilityIndex>(projectMap);
+        }
         Map<Requirement,Collection<Capability>> result = new HashMap<Requirement,Collection<Capability>>();
         for (Requirement requirement : requirements) {
             List<Capability> matches = new LinkedList<Capability>();
             result.put(requirement, matches);
 
-            for (Entry<IProject,CapabilityIndex> entry : projectMap.entrySet()) {
+            for (Entry<IProject,CapabilityIndex> entry : indexes.entrySet()) {
                 IProject project = entry.getKey();
                 if (project.exists() && project.isOpen()) {
                     CapabilityIndex capabilityIndex = entry.getValue();
@@ -302,6 +302,8 @@ public class BndEditor extends ExtendedFormEditor implements IResourceChangeList
                     if (!wizard.performFinish()) {
                         MessageDialog.openError(shell, "Error", "Unable to store resolution results into Run Bundles list.");
                     }
+                    // The wizard was not shown in a dialog, which would have disposed it
+                    wizard.dispose();
                 }
                 reallySave(monitor);
                 return Status.OK_STATUS;
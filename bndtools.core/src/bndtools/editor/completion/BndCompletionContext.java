@@ -0,0 +1,125 @@
+package bndtools.editor.completion;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+
+/**
+ * Describes what is being completed at an offset in a bnd file. Only the current logical line (the physical line plus
+ * any preceding lines joined with a trailing backslash) is examined, so the cost does not depend on the size of the
+ * document.
+ */
+public final class BndCompletionContext {
+
+    public enum Kind {
+        /** Completing a header name at the start of a logical line. */
+        HEADER,
+        /** Completing a value of a header. */
+        VALUE,
+        /** Completing a macro name after <code>${</code>. */
+        MACRO,
+        /** Nothing sensible to complete, e.g. inside a comment. */
+        NONE
+    }
+
+    private static final String VALUE_DELIMITERS = ",;= \t\r\n\\";
+
+    private final Kind kind;
+    private final String header;
+    private final String prefix;
+
+    BndCompletionContext(Kind kind, String header, String prefix) {
+        this.kind = kind;
+        this.header = header;
+        this.prefix = prefix;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return The header whose value is being completed, or {@code null} when completing a header name.
+     */
+    public String getHeader() {
+        return header;
+    }
+
+    /**
+     * @return The text between the start of the word being completed and the offset.
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public static BndCompletionContext compute(IDocument document, int offset) throws BadLocationException {
+        int line = document.getLineOfOffset(offset);
+        int start = document.getLineOffset(line);
+
+        // Walk back over continuation lines to the start of the logical line
+        while (line > 0) {
+            IRegion previous = document.getLineInformation(line - 1);
+            if (!endsWithContinuation(document, previous))
+                break;
+            line--;
+            start = previous.getOffset();
+        }
+
+        return compute(document.get(start, offset - start));
+    }
+
+    static BndCompletionContext compute(String text) {
+        int length = text.length();
+        int i = 0;
+        while (i < length && Character.isWhitespace(text.charAt(i)))
+            i++;
+
+        if (i < length && (text.charAt(i) == '#' || text.startsWith("//", i)))
+            return new BndCompletionContext(Kind.NONE, null, "");
+
+        int keyStart = i;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == ':' || c == '=' || Character.isWhitespace(c))
+                break;
+            if (c == '\\')
+                i++;
+            i++;
+        }
+        if (i >= length)
+            return new BndCompletionContext(Kind.HEADER, null, text.substring(keyStart));
+
+        String header = text.substring(keyStart, i);
+
+        int macro = text.lastIndexOf("${", length);
+        if (macro >= i && text.indexOf('}', macro) < 0) {
+            String name = text.substring(macro + 2);
+            if (isMacroName(name))
+                return new BndCompletionContext(Kind.MACRO, header, name);
+        }
+
+        int wordStart = length;
+        while (wordStart > i && VALUE_DELIMITERS.indexOf(text.charAt(wordStart - 1)) < 0)
+            wordStart--;
+        return new BndCompletionContext(Kind.VALUE, header, text.substring(wordStart));
+    }
+
+    private static boolean isMacroName(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isJavaIdentifierPart(c) && c != '-' && c != '.')
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean endsWithContinuation(IDocument document, IRegion line) throws BadLocationException {
+        int end = line.getOffset() + line.getLength() - 1;
+        int backslashes = 0;
+        while (end >= line.getOffset() && document.getChar(end) == '\\') {
+            backslashes++;
+            end--;
+        }
+        return (backslashes % 2) == 1;
+    }
+}
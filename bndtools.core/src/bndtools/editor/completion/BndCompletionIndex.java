@@ -0,0 +1,233 @@
+package bndtools.editor.completion;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bndtools.api.ILogger;
+import org.bndtools.api.Logger;
+import org.bndtools.api.ModelListener;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+
+import aQute.bnd.build.Project;
+import aQute.bnd.build.ProjectBuilder;
+import aQute.bnd.build.Workspace;
+import aQute.bnd.help.Syntax;
+import aQute.bnd.osgi.Builder;
+import aQute.bnd.osgi.Macro;
+import aQute.bnd.service.RepositoryPlugin;
+import bndtools.central.Central;
+
+/**
+ * Prebuilt sorted indexes used by {@link BndCompletionProcessor}. Header and macro names are static and indexed once.
+ * Workspace bundle symbolic names, repository bundle symbolic names and workspace packages are collected by a
+ * background job; the processor always works against the last complete snapshot and never waits for a rebuild.
+ */
+public final class BndCompletionIndex {
+    private static final ILogger logger = Logger.getLogger(BndCompletionIndex.class);
+
+    private static final SortedPrefixIndex HEADERS = SortedPrefixIndex.of(Syntax.HELP.keySet());
+    private static final SortedPrefixIndex MACROS = SortedPrefixIndex.of(macroNames(Macro.class, Builder.class, Project.class, Workspace.class));
+
+    private static volatile BndCompletionIndex current = new BndCompletionIndex(SortedPrefixIndex.EMPTY, SortedPrefixIndex.EMPTY, SortedPrefixIndex.EMPTY);
+    private static final AtomicBoolean stale = new AtomicBoolean(true);
+    private static final long RETRY_DELAY = TimeUnit.SECONDS.toMillis(5);
+    private static final long MAX_RETRY_DELAY = TimeUnit.MINUTES.toMillis(5);
+    private static final RebuildJob rebuildJob = new RebuildJob();
+
+    private static final ModelListener listener = new ModelListener() {
+        @Override
+        public void modelChanged(Project model) throws Exception {
+            stale.set(true);
+        }
+    };
+    private static Central listeningTo; // guarded by listener
+
+    /*
+     * A failed rebuild keeps the last good index and is retried with a
+     * growing delay, so that completion requests do not trigger a rebuild
+     * each. A workspace change still schedules a rebuild at once.
+     */
+    private static class RebuildJob extends Job {
+        private long retryDelay = RETRY_DELAY; // only used while the job runs
+
+        RebuildJob() {
+            super("Indexing bnd completion proposals");
+            setSystem(true);
+            setPriority(Job.DECORATE);
+        }
+
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            try {
+                BndCompletionIndex index = build(monitor);
+                if (monitor.isCanceled()) {
+                    stale.set(true);
+                    return Status.CANCEL_STATUS;
+                }
+                current = index;
+                retryDelay = RETRY_DELAY;
+            } catch (Exception e) {
+                if (monitor.isCanceled()) {
+                    stale.set(true);
+                    return Status.CANCEL_STATUS;
+                }
+                logger.logWarning("Unable to index bnd completion proposals, retrying in " + TimeUnit.MILLISECONDS.toSeconds(retryDelay) + " s", e);
+                schedule(retryDelay);
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY);
+            }
+            return Status.OK_STATUS;
+        }
+    }
+
+    private final SortedPrefixIndex workspaceBsns;
+    private final SortedPrefixIndex repositoryBsns;
+    private final SortedPrefixIndex packages;
+
+    private BndCompletionIndex(SortedPrefixIndex workspaceBsns, SortedPrefixIndex repositoryBsns, SortedPrefixIndex packages) {
+        this.workspaceBsns = workspaceBsns;
+        this.repositoryBsns = repositoryBsns;
+        this.packages = packages;
+    }
+
+    /**
+     * Return the latest snapshot, scheduling a rebuild in the background if the workspace changed since it was taken.
+     */
+    public static BndCompletionIndex get() {
+        Central central = Central.getInstance();
+        if (central != null) {
+            synchronized (listener) {
+                if (listeningTo != central) {
+                    if (listeningTo != null)
+                        listeningTo.removeModelListener(listener);
+                    central.addModelListener(listener);
+                    listeningTo = central;
+                }
+            }
+        }
+        if (stale.compareAndSet(true, false)) {
+            rebuildJob.schedule();
+        }
+        return current;
+    }
+
+    /**
+     * Stop listening to workspace changes and cancel a pending rebuild. The next {@link #get()} starts over.
+     */
+    public static void dispose() {
+        synchronized (listener) {
+            if (listeningTo != null) {
+                listeningTo.removeModelListener(listener);
+                listeningTo = null;
+            }
+        }
+        rebuildJob.cancel();
+        stale.set(true);
+    }
+
+    public SortedPrefixIndex getHeaders() {
+        return HEADERS;
+    }
+
+    public SortedPrefixIndex getMacros() {
+        return MACROS;
+    }
+
+    public SortedPrefixIndex getWorkspaceBsns() {
+        return workspaceBsns;
+    }
+
+    public SortedPrefixIndex getRepositoryBsns() {
+        return repositoryBsns;
+    }
+
+    public SortedPrefixIndex getPackages() {
+        return packages;
+    }
+
+    private static BndCompletionIndex build(IProgressMonitor monitor) throws Exception {
+        final Workspace workspace = Central.getWorkspace();
+        final Collection<Project> projects = Central.bndCall(new Callable<Collection<Project>>() {
+            @Override
+            public Collection<Project> call() throws Exception {
+                return new ArrayList<Project>(workspace.getAllProjects());
+            }
+        }, monitor);
+
+        final Set<String> workspaceBsns = new HashSet<String>();
+        Central.bndCall(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                for (Project project : projects) {
+                    try (ProjectBuilder pb = project.getBuilder(null)) {
+                        for (Builder b : pb.getSubBuilders()) {
+                            workspaceBsns.add(b.getBsn());
+                        }
+                    }
+                }
+                return null;
+            }
+        }, monitor);
+
+        Set<String> packages = new HashSet<String>();
+        for (Project project : projects) {
+            IJavaProject javaProject = Central.getJavaProject(project);
+            if (javaProject == null)
+                continue;
+            for (IPackageFragmentRoot root : javaProject.getPackageFragmentRoots()) {
+                if (root.getKind() != IPackageFragmentRoot.K_SOURCE)
+                    continue;
+                for (IJavaElement element : root.getChildren()) {
+                    IPackageFragment fragment = (IPackageFragment) element;
+                    if (!fragment.isDefaultPackage() && fragment.containsJavaResources())
+                        packages.add(fragment.getElementName());
+                }
+            }
+        }
+
+        // Repositories may download their index, so do not hold the bnd lock while listing them
+        Set<String> repositoryBsns = new HashSet<String>();
+        RepositoryPlugin workspaceRepo = workspace.getWorkspaceRepository();
+        for (RepositoryPlugin repo : workspace.getRepositories()) {
+            if (monitor.isCanceled())
+                break;
+            if (repo == workspaceRepo)
+                continue;
+            try {
+                List<String> bsns = repo.list(null);
+                if (bsns != null)
+                    repositoryBsns.addAll(bsns);
+            } catch (Exception e) {
+                logger.logWarning("Unable to list repository " + repo.getName() + " for completion", e);
+            }
+        }
+
+        return new BndCompletionIndex(SortedPrefixIndex.of(workspaceBsns), SortedPrefixIndex.of(repositoryBsns), SortedPrefixIndex.of(packages));
+    }
+
+    private static Set<String> macroNames(Class< ? >... types) {
+        Set<String> names = new HashSet<String>();
+        for (Class< ? > type : types) {
+            for (Method m : type.getMethods()) {
+                String name = m.getName();
+                if (name.length() > 1 && name.charAt(0) == '_' && Modifier.isPublic(m.getModifiers()) && m.getParameterTypes().length == 1 && m.getParameterTypes()[0] == String[].class)
+                    names.add(name.substring(1).replace('_', '-'));
+            }
+        }
+        return names;
+    }
+}
@@ -1,56 +1,91 @@
 package bndtools.editor.completion;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.eclipse.jface.text.*;
 import org.eclipse.jface.text.contentassist.*;
 
 import aQute.bnd.help.Syntax;
+import aQute.bnd.osgi.Constants;
 
 public class BndCompletionProcessor implements IContentAssistProcessor {
 
-    private static final Pattern PREFIX_PATTERN = Pattern.compile("^(?:.*\\s)*(.*)$");
+    private static final Set<String> BSN_HEADERS = new HashSet<String>(Arrays.asList(Constants.BUILDPATH, Constants.TESTPATH, Constants.RUNBUNDLES, Constants.RUNPATH, Constants.RUNFW));
+
+    private static final Set<String> PACKAGE_HEADERS = new HashSet<String>(Arrays.asList(Constants.EXPORT_PACKAGE, Constants.PRIVATE_PACKAGE, Constants.PRIVATEPACKAGE, Constants.EXPORT_CONTENTS, Constants.IMPORT_PACKAGE,
+            Constants.DYNAMICIMPORT_PACKAGE, Constants.CONDITIONAL_PACKAGE, Constants.CONDITIONALPACKAGE));
+
+    /**
+     * Upper bound on the number of proposals shown, so that an empty prefix on a large repository stays cheap.
+     */
+    private static final int MAX_PROPOSALS = 500;
 
     @Override
     public ICompletionProposal[] computeCompletionProposals(ITextViewer viewer, int offset) {
+        BndCompletionContext context;
         try {
-            String pre = viewer.getDocument().get(0, offset);
-            Matcher matcher = PREFIX_PATTERN.matcher(pre);
-            if (matcher.matches()) {
-                String prefix = matcher.group(1);
-                ICompletionProposal[] found = proposals(prefix, offset);
+            context = BndCompletionContext.compute(viewer.getDocument(), offset);
+        } catch (BadLocationException e) {
+            return new ICompletionProposal[0];
+        }
+
+        BndCompletionIndex index = BndCompletionIndex.get();
+        String prefix = context.getPrefix();
+        switch (context.getKind()) {
+            case HEADER :
+                ICompletionProposal[] found = headerProposals(index, prefix, offset);
                 if (found.length == 1) {
                     found[0].apply(viewer.getDocument());
                     viewer.setSelectedRange(offset + (found[0].getDisplayString().length() - prefix.length() + 2), 0);
                     return new ICompletionProposal[0];
                 }
                 return found;
-            }
-            return proposals(null, offset);
-        } catch (BadLocationException e) {
-            return proposals(null, offset);
+            case MACRO :
+                return proposals(prefix, offset, index.getMacros().withPrefix(prefix));
+            case VALUE :
+                String header = context.getHeader();
+                if (BSN_HEADERS.contains(header))
+                    return proposals(prefix, offset, index.getWorkspaceBsns().withPrefix(prefix), index.getRepositoryBsns().withPrefix(prefix));
+                if (PACKAGE_HEADERS.contains(header))
+                    return proposals(prefix, offset, index.getPackages().withPrefix(prefix));
+                return new ICompletionProposal[0];
+            default :
+                return new ICompletionProposal[0];
         }
     }
 
-    private static ICompletionProposal[] proposals(String prefix, int offset) {
-        ArrayList<ICompletionProposal> results = new ArrayList<ICompletionProposal>(Syntax.HELP.size());
-        for (Syntax s : Syntax.HELP.values()) {
-            if (prefix == null || s.getHeader().startsWith(prefix)) {
-                IContextInformation info = new ContextInformation(s.getHeader(), s.getHeader());
-                String text = prefix == null ? s.getHeader() : s.getHeader().substring(prefix.length());
-                results.add(new CompletionProposal(text + ": ", offset, 0, text.length() + 2, null, s.getHeader(), info, s.getLead())); //$NON-NLS-1$
-            }
+    private static ICompletionProposal[] headerProposals(BndCompletionIndex index, String prefix, int offset) {
+        List<String> headers = index.getHeaders().withPrefix(prefix);
+        ICompletionProposal[] results = new ICompletionProposal[headers.size()];
+        for (int i = 0; i < results.length; i++) {
+            Syntax s = Syntax.HELP.get(headers.get(i));
+            IContextInformation info = new ContextInformation(s.getHeader(), s.getHeader());
+            String text = s.getHeader().substring(prefix.length());
+            results[i] = new CompletionProposal(text + ": ", offset, 0, text.length() + 2, null, s.getHeader(), info, s.getLead()); //$NON-NLS-1$
         }
-        Collections.sort(results, new Comparator<ICompletionProposal>() {
-            @Override
-            public int compare(ICompletionProposal p1, ICompletionProposal p2) {
-                return p1.getDisplayString().compareTo(p2.getDisplayString());
+        return results;
+    }
+
+    /**
+     * Merge the already sorted matches of one or more indexes into proposals replacing the prefix.
+     */
+    @SafeVarargs
+    private static ICompletionProposal[] proposals(String prefix, int offset, List<String>... matches) {
+        List<ICompletionProposal> results = new ArrayList<ICompletionProposal>();
+        Set<String> seen = new HashSet<String>();
+        int start = offset - prefix.length();
+        for (List<String> list : matches) {
+            for (String match : list) {
+                if (results.size() >= MAX_PROPOSALS)
+                    return results.toArray(new ICompletionProposal[0]);
+                if (seen.add(match))
+                    results.add(new CompletionProposal(match, start, prefix.length(), match.length()));
             }
-        });
+        }
         return results.toArray(new ICompletionProposal[0]);
     }
 
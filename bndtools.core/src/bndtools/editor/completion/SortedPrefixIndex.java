@@ -0,0 +1,75 @@
+package bndtools.editor.completion;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * An immutable, sorted and de-duplicated set of strings that answers prefix queries with two binary searches. The
+ * matching entries are returned as a view on the backing array, so a lookup does not copy or filter the whole index.
+ */
+public final class SortedPrefixIndex {
+
+    public static final SortedPrefixIndex EMPTY = new SortedPrefixIndex(new String[0]);
+
+    private final String[] entries;
+
+    private SortedPrefixIndex(String[] entries) {
+        this.entries = entries;
+    }
+
+    public static SortedPrefixIndex of(Collection<String> values) {
+        if (values.isEmpty())
+            return EMPTY;
+        TreeSet<String> sorted = new TreeSet<String>();
+        for (String value : values) {
+            if (value != null && !value.isEmpty())
+                sorted.add(value);
+        }
+        return new SortedPrefixIndex(sorted.toArray(new String[0]));
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Return all entries starting with the specified prefix, in sorted order.
+     *
+     * @param prefix
+     *            The prefix. A {@code null} or empty prefix matches all entries.
+     * @return An unmodifiable list of the matching entries.
+     */
+    public List<String> withPrefix(String prefix) {
+        if (prefix == null || prefix.isEmpty())
+            return Collections.unmodifiableList(Arrays.asList(entries));
+
+        int from = lowerBound(prefix);
+        int to = from;
+        if (from < entries.length && entries[from].startsWith(prefix)) {
+            // All strings with the prefix sort before prefix + the maximal char
+            to = lowerBound(prefix + Character.MAX_VALUE);
+        }
+        return Collections.unmodifiableList(Arrays.asList(entries).subList(from, to));
+    }
+
+    public boolean contains(String value) {
+        int i = lowerBound(value);
+        return i < entries.length && entries[i].equals(value);
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries[mid].compareTo(key) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+}
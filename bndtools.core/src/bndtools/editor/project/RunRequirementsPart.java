@@ -14,6 +14,7 @@ import java.util.Set;
 import org.bndtools.api.ILogger;
 import org.bndtools.api.Logger;
 import org.bndtools.api.ResolveMode;
+import org.bndtools.core.resolve.ResolutionResult;
 import org.bndtools.core.resolve.ResolutionResult.Outcome;
 import org.bndtools.core.resolve.ResolveJob;
 import org.bndtools.core.resolve.ui.ResolutionWizard;
@@ -141,6 +142,7 @@ public class RunRequirementsPart extends BndEditorPart implements PropertyChange
 
         btnResolveNow = tk.createButton(composite, "Resolve", SWT.PUSH);
         btnResolveNow.setImage(resolveIcon);
+        btnResolveNow.setToolTipText("Resolve the run requirements. Hold Shift to resolve from scratch, ignoring the current Run Bundles and cached results.");
 
         // Listeners
         viewer.addSelectionChangedListener(new ISelectionChangedListener() {
@@ -176,7 +178,7 @@ public class RunRequirementsPart extends BndEditorPart implements PropertyChange
             @Override
             public void widgetSelected(SelectionEvent e) {
                 btnResolveNow.setEnabled(false);
-                doResolve();
+                doResolve((e.stateMask & SWT.SHIFT) == 0);
             }
         });
 
@@ -296,7 +298,7 @@ public class RunRequirementsPart extends BndEditorPart implements PropertyChange
         }
     }
 
-    private void doResolve() {
+    private void doResolve(boolean incremental) {
         // Make sure all the parts of this editor page have committed their
         // dirty state to the model
         IFormPart[] parts = getManagedForm().getParts();
@@ -314,6 +316,7 @@ public class RunRequirementsPart extends BndEditorPart implements PropertyChange
 
         // Create the wizard and pre-validate
         final ResolveJob job = new ResolveJob(model);
+        job.setIncremental(incremental);
         IStatus validation = job.validateBeforeRun();
         if (!validation.isOK()) {
             ErrorDialog errorDialog = new ErrorDialog(parentShell, "Validation Problem", null, validation, IStatus.ERROR | IStatus.WARNING) {
@@ -351,9 +354,11 @@ public class RunRequirementsPart extends BndEditorPart implements PropertyChange
         job.addJobChangeListener(new JobChangeAdapter() {
             @Override
             public void done(IJobChangeEvent event) {
-                Outcome outcome = job.getResolutionResult().getOutcome();
-                if (outcome != Outcome.Cancelled)
+                ResolutionResult result = job.getResolutionResult();
+                if (result.getOutcome() != Outcome.Cancelled)
                     parentShell.getDisplay().asyncExec(showResult);
+                else
+                    result.dispose();
             }
         });
 
@@ -93,6 +93,13 @@ public class RepositoryTreeContentProvider implements ITreeContentProvider {
         return showRepos;
     }
 
+    /**
+     * Forget the cached content of a repository, so that it is listed again when it is next shown.
+     */
+    public void invalidate(RepositoryPlugin repo) {
+        repoPluginListResults.remove(repo);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public Object[] getElements(Object inputElement) {
@@ -290,6 +297,7 @@ public class RepositoryTreeContentProvider implements ITreeContentProvider {
                     List<String> bsns = null;
 
                     try {
+                        Central.refreshIfDeferred(repoPlugin);
                         bsns = repoPlugin.list(wildcardFilter);
                     } catch (Exception e) {
                         String message = MessageFormat.format("Error querying repository {0}.", repoPlugin.getName());
@@ -304,8 +312,10 @@ public class RepositoryTreeContentProvider implements ITreeContentProvider {
                             jobresult[i++] = new RepositoryBundle(repoPlugin, bsn);
                         }
 
+                        // the repository may have been invalidated by a refresh in the meantime
                         Map<String,Object[]> listResults = repoPluginListResults.get(repoPlugin);
-                        listResults.put(wildcardFilter, jobresult);
+                        if (listResults != null)
+                            listResults.put(wildcardFilter, jobresult);
 
                         Display.getDefault().asyncExec(new Runnable() {
                             @Override
@@ -0,0 +1,321 @@
+package bndtools.refactor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bndtools.api.ILogger;
+import org.bndtools.api.Logger;
+import org.bndtools.utils.workspace.FileUtils;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jface.text.IDocument;
+
+import aQute.bnd.osgi.Constants;
+import aQute.bnd.properties.Document;
+import aQute.bnd.properties.IRegion;
+import aQute.bnd.properties.LineType;
+import aQute.bnd.properties.PropertiesLineReader;
+
+/**
+ * Index from package name to the places in workspace bnd files that mention it in one of the {@link #HEADERS}. The
+ * index is built on first use and then maintained from resource deltas: changed bnd files are only re-scanned when the
+ * index is next queried. Negated and wildcard clauses such as <code>!org.example.*</code> are not indexed. Scanning reads the raw properties text and records the offset of every package name, so
+ * callers can edit the files without loading a {@link aQute.bnd.build.model.BndEditModel}.
+ */
+public final class BndPackageReferenceIndex implements IResourceChangeListener {
+    private static final ILogger logger = Logger.getLogger(BndPackageReferenceIndex.class);
+
+    static final List<String> HEADERS = Collections.unmodifiableList(Arrays.asList(Constants.EXPORT_PACKAGE, Constants.PRIVATE_PACKAGE, Constants.IMPORT_PACKAGE, Constants.BUNDLE_ACTIVATOR));
+
+    private static final String BND_EXTENSION = ".bnd";
+
+    private static BndPackageReferenceIndex instance;
+
+    private final Map<IFile,List<Reference>> files = new HashMap<IFile,List<Reference>>();
+    private final Map<String,Set<IFile>> packages = new HashMap<String,Set<IFile>>();
+    private final Set<IFile> dirty = new HashSet<IFile>();
+    private boolean initialized;
+
+    /**
+     * A package name in a bnd file. For <code>Bundle-Activator</code> the reference covers the package part of the class
+     * name only.
+     */
+    public static final class Reference {
+        private final String header;
+        private final String packageName;
+        private final int offset;
+
+        Reference(String header, String packageName, int offset) {
+            this.header = header;
+            this.packageName = packageName;
+            this.offset = offset;
+        }
+
+        public String getHeader() {
+            return header;
+        }
+
+        public String getPackageName() {
+            return packageName;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        public int getLength() {
+            return packageName.length();
+        }
+
+        @Override
+        public String toString() {
+            return header + ":" + packageName + "@" + offset;
+        }
+    }
+
+    private BndPackageReferenceIndex() {}
+
+    public static synchronized BndPackageReferenceIndex getInstance() {
+        if (instance == null) {
+            instance = new BndPackageReferenceIndex();
+            ResourcesPlugin.getWorkspace().addResourceChangeListener(instance, IResourceChangeEvent.POST_CHANGE);
+        }
+        return instance;
+    }
+
+    /**
+     * Stop tracking resource changes. The next {@link #getInstance()} builds a new index.
+     */
+    public static synchronized void dispose() {
+        if (instance != null) {
+            ResourcesPlugin.getWorkspace().removeResourceChangeListener(instance);
+            instance = null;
+        }
+    }
+
+    /**
+     * @return The references to exactly this package, by file.
+     */
+    public synchronized Map<IFile,List<Reference>> getReferences(String packageName) throws CoreException {
+        update();
+        Set<IFile> candidates = packages.get(packageName);
+        if (candidates == null)
+            return Collections.emptyMap();
+
+        Map<IFile,List<Reference>> result = new LinkedHashMap<IFile,List<Reference>>();
+        for (IFile file : candidates) {
+            List<Reference> matches = new ArrayList<Reference>();
+            for (Reference reference : files.get(file)) {
+                if (reference.getPackageName().equals(packageName))
+                    matches.add(reference);
+            }
+            result.put(file, matches);
+        }
+        return result;
+    }
+
+    @Override
+    public void resourceChanged(IResourceChangeEvent event) {
+        IResourceDelta delta = event.getDelta();
+        if (delta == null)
+            return;
+        try {
+            delta.accept(new IResourceDeltaVisitor() {
+                @Override
+                public boolean visit(IResourceDelta delta) throws CoreException {
+                    IResource resource = delta.getResource();
+                    if (resource.getType() == IResource.PROJECT && (delta.getFlags() & IResourceDelta.OPEN) != 0) {
+                        invalidate();
+                        return false;
+                    }
+                    if (resource.getType() == IResource.FILE && isBndFile(resource.getName())) {
+                        synchronized (BndPackageReferenceIndex.this) {
+                            dirty.add((IFile) resource);
+                        }
+                    }
+                    return true;
+                }
+            });
+        } catch (CoreException e) {
+            logger.logError("Unable to update the bnd package reference index", e);
+            invalidate();
+        }
+    }
+
+    private synchronized void invalidate() {
+        initialized = false;
+    }
+
+    private void update() throws CoreException {
+        if (!initialized) {
+            files.clear();
+            packages.clear();
+            dirty.clear();
+            final List<IFile> found = new ArrayList<IFile>();
+            for (IProject project : ResourcesPlugin.getWorkspace().getRoot().getProjects()) {
+                if (!project.isOpen())
+                    continue;
+                project.accept(new IResourceProxyVisitor() {
+                    @Override
+                    public boolean visit(IResourceProxy proxy) throws CoreException {
+                        if (proxy.isDerived())
+                            return false;
+                        if (proxy.getType() == IResource.FILE) {
+                            if (isBndFile(proxy.getName()))
+                                found.add((IFile) proxy.requestResource());
+                            return false;
+                        }
+                        return true;
+                    }
+                }, IResource.NONE);
+            }
+            dirty.addAll(found);
+            initialized = true;
+        }
+
+        for (IFile file : dirty) {
+            remove(file);
+            if (file.exists() && !file.isDerived(IResource.CHECK_ANCESTORS))
+                add(file);
+        }
+        dirty.clear();
+    }
+
+    private void remove(IFile file) {
+        List<Reference> references = files.remove(file);
+        if (references == null)
+            return;
+        for (Reference reference : references) {
+            Set<IFile> set = packages.get(reference.getPackageName());
+            if (set != null) {
+                set.remove(file);
+                if (set.isEmpty())
+                    packages.remove(reference.getPackageName());
+            }
+        }
+    }
+
+    private void add(IFile file) {
+        List<Reference> references;
+        try {
+            IDocument document = FileUtils.readFully(file);
+            if (document == null)
+                return;
+            references = scan(document.get());
+        } catch (Exception e) {
+            logger.logError("Unable to index bnd file " + file.getFullPath(), e);
+            return;
+        }
+        if (references.isEmpty())
+            return;
+        files.put(file, references);
+        for (Reference reference : references) {
+            Set<IFile> set = packages.get(reference.getPackageName());
+            if (set == null) {
+                set = new HashSet<IFile>();
+                packages.put(reference.getPackageName(), set);
+            }
+            set.add(file);
+        }
+    }
+
+    private static boolean isBndFile(String name) {
+        return name.toLowerCase().endsWith(BND_EXTENSION);
+    }
+
+    /**
+     * Find the package names in the indexed headers of a bnd file.
+     */
+    static List<Reference> scan(String text) {
+        List<Reference> references = new ArrayList<Reference>();
+        PropertiesLineReader reader = new PropertiesLineReader(new Document(text));
+        try {
+            LineType type = reader.next();
+            while (type != LineType.eof) {
+                if (type == LineType.entry) {
+                    String key = reader.key();
+                    if (HEADERS.contains(key))
+                        scanValue(text, key, reader.region(), references);
+                }
+                type = reader.next();
+            }
+        } catch (Exception e) {
+            logger.logWarning("Unable to parse bnd file while indexing package references", e);
+        }
+        return references;
+    }
+
+    private static void scanValue(String text, String key, IRegion region, List<Reference> references) {
+        int end = Math.min(text.length(), region.getOffset() + region.getLength());
+        int i = region.getOffset() + key.length();
+        while (i < end && Character.isWhitespace(text.charAt(i)))
+            i++;
+        if (i < end && (text.charAt(i) == ':' || text.charAt(i) == '='))
+            i++;
+
+        while (i < end) {
+            i = skipBlank(text, i, end);
+            boolean negated = i < end && text.charAt(i) == '!';
+            if (negated)
+                i++;
+            int start = i;
+            while (i < end && isNameChar(text.charAt(i)))
+                i++;
+            // Negated and wildcard clauses select packages, they do not name one
+            String name = text.substring(start, i);
+            if (!name.isEmpty() && !negated && name.indexOf('*') < 0)
+                addReference(key, name, start, references);
+
+            // Skip the attributes and directives of the clause
+            boolean quoted = false;
+            while (i < end) {
+                char c = text.charAt(i++);
+                if (c == '"')
+                    quoted = !quoted;
+                else if (c == ',' && !quoted)
+                    break;
+            }
+        }
+    }
+
+    private static void addReference(String header, String name, int offset, List<Reference> references) {
+        if (Constants.BUNDLE_ACTIVATOR.equals(header)) {
+            int dot = name.lastIndexOf('.');
+            if (dot > 0)
+                references.add(new Reference(header, name.substring(0, dot), offset));
+        } else {
+            references.add(new Reference(header, name, offset));
+        }
+    }
+
+    private static int skipBlank(String text, int i, int end) {
+        while (i < end) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || c == '\\')
+                i++;
+            else
+                break;
+        }
+        return i;
+    }
+
+    private static boolean isNameChar(char c) {
+        return c != ',' && c != ';' && c != '\\' && c != '"' && !Character.isWhitespace(c);
+    }
+}
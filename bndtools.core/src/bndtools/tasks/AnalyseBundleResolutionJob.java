@@ -37,6 +37,7 @@ public class AnalyseBundleResolutionJob extends Job {
 
     private Map<String,List<RequirementWrapper>> requirements;
     private Map<String,List<Capability>> capabilities;
+    private boolean useCache;
 
     public AnalyseBundleResolutionJob(String name, Set< ? extends CapReqLoader> loaders) {
         super(name);
@@ -57,60 +58,92 @@ public class AnalyseBundleResolutionJob extends Job {
         }
     }
 
+    /**
+     * Cache the analysis of each file, keyed by its content digest (jars) or modification (bnd files).
+     */
+    public void setUseCache(boolean useCache) {
+        this.useCache = useCache;
+    }
+
+    /**
+     * Complete the analysis from the cache without scheduling the job.
+     *
+     * @return Whether every loader was cached; if not, no results are set.
+     */
+    public boolean runFromCache() {
+        if (!useCache || !CapReqCache.isCached(loaders))
+            return false;
+        return analyse(null, true);
+    }
+
     @Override
     protected IStatus run(IProgressMonitor monitor) {
         try {
-            // Load  all the capabilities and requirements
-            Map<String,List<Capability>> allCaps = new HashMap<String,List<Capability>>();
-            Map<String,List<RequirementWrapper>> allReqs = new HashMap<String,List<RequirementWrapper>>();
-            for (CapReqLoader loader : loaders) {
-                try {
-                    Map<String,List<Capability>> caps = loader.loadCapabilities();
-                    mergeMaps(caps, allCaps);
-
-                    Map<String,List<RequirementWrapper>> reqs = loader.loadRequirements();
-                    mergeMaps(reqs, allReqs);
-                } catch (Exception e) {
-                    logger.logError("Error in Bnd resolution analysis.", e);
-                } finally {
-                    IO.close(loader);
+            return analyse(monitor, false) ? Status.OK_STATUS : Status.CANCEL_STATUS;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private boolean analyse(IProgressMonitor monitor, boolean cachedOnly) {
+        // Load  all the capabilities and requirements
+        Map<String,List<Capability>> allCaps = new HashMap<String,List<Capability>>();
+        Map<String,List<RequirementWrapper>> allReqs = new HashMap<String,List<RequirementWrapper>>();
+        for (CapReqLoader loader : loaders) {
+            if (monitor != null && monitor.isCanceled())
+                return false;
+            try {
+                CapReqCache.Entry cached = null;
+                String key = null;
+                if (useCache && loader instanceof BndBuilderCapReqLoader) {
+                    BndBuilderCapReqLoader builderLoader = (BndBuilderCapReqLoader) loader;
+                    key = cachedOnly ? builderLoader.getCachedKey() : builderLoader.getCacheKey();
+                    cached = CapReqCache.get(key);
                 }
+                if (cached == null) {
+                    if (cachedOnly)
+                        return false;
+                    cached = CapReqCache.put(key, loader.loadCapabilities(), loader.loadRequirements());
+                }
+                mergeMaps(cached.copyCapabilities(), allCaps);
+                mergeMaps(cached.copyRequirements(), allReqs);
+            } catch (Exception e) {
+                logger.logError("Error in Bnd resolution analysis.", e);
+            } finally {
+                if (!cachedOnly)
+                    IO.close(loader);
             }
+        }
 
-            // Check for resolved requirements
-            for (String namespace : allReqs.keySet()) {
-                List<RequirementWrapper> rws = allReqs.get(namespace);
-                List<Capability> candidates = allCaps.get(namespace);
+        // Check for resolved requirements
+        for (String namespace : allReqs.keySet()) {
+            List<RequirementWrapper> rws = allReqs.get(namespace);
+            List<Capability> candidates = allCaps.get(namespace);
 
-                if (candidates == null)
-                    continue;
+            if (candidates == null)
+                continue;
 
-                for (RequirementWrapper rw : rws) {
-                    String filterStr = rw.requirement.getDirectives().get("filter");
-                    if (filterStr != null) {
-                        aQute.lib.filter.Filter filter = new aQute.lib.filter.Filter(filterStr);
-                        for (Capability cand : candidates) {
+            for (RequirementWrapper rw : rws) {
+                String filterStr = rw.requirement.getDirectives().get("filter");
+                if (filterStr != null) {
+                    aQute.lib.filter.Filter filter = new aQute.lib.filter.Filter(filterStr);
+                    for (Capability cand : candidates) {
+                        try {
                             if (filter.matchMap(cand.getAttributes())) {
                                 rw.resolved = true;
                                 break;
                             }
+                        } catch (Exception e) {
+                            logger.logError("Error in Bnd resolution analysis.", e);
                         }
                     }
                 }
             }
-
-            // Generate the final results
-            //        Set<File> resultFiles = builderMap.keySet();
-            //        resultFileArray = resultFiles.toArray(new File[0]);
-
-            this.requirements = allReqs;
-            this.capabilities = allCaps;
-
-            // showResults(resultFileArray, importResults, exportResults);
-            return Status.OK_STATUS;
-        } catch (Exception e) {
-            throw new RuntimeException(e);
         }
+
+        this.requirements = allReqs;
+        this.capabilities = allCaps;
+        return true;
     }
 
     public Map<String,List<RequirementWrapper>> getRequirements() {
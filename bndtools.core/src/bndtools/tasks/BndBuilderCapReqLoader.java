@@ -1,6 +1,7 @@
 package bndtools.tasks;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -55,6 +56,16 @@ public abstract class BndBuilderCapReqLoader implements CapReqLoader {
 
     protected abstract Builder getBuilder() throws Exception;
 
+    /**
+     * @return A key identifying the analysed content, used to cache the analysis; may read the file.
+     */
+    public abstract String getCacheKey() throws IOException;
+
+    /**
+     * @return The cache key if it can be determined without reading the file, otherwise {@code null}.
+     */
+    public abstract String getCachedKey();
+
     @Override
     public Map<String,List<Capability>> loadCapabilities() throws Exception {
         Builder builder = getBuilder();
@@ -66,6 +66,16 @@ public class BndFileCapReqLoader extends BndBuilderCapReqLoader {
         return builder;
     }
 
+    @Override
+    public String getCacheKey() {
+        return getCachedKey();
+    }
+
+    @Override
+    public String getCachedKey() {
+        return "bnd:" + CapReqCache.stamp(file);
+    }
+
     @Override
     public synchronized void close() throws IOException {
         if (builder != null)
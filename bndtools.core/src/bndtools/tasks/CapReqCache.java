@@ -0,0 +1,156 @@
+package bndtools.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.osgi.resource.Capability;
+
+import aQute.lib.hex.Hex;
+import bndtools.model.resolution.RequirementWrapper;
+
+/**
+ * Caches the capabilities and requirements of analysed files so that selecting a file again does not repeat the bnd
+ * analysis. Entries are keyed by {@link BndBuilderCapReqLoader#getCacheKey()} and evicted least recently used first.
+ * Requirement wrappers are copied on the way out because the analysis job marks them as resolved relative to the other
+ * selected files.
+ */
+public final class CapReqCache {
+
+    private static final int MAX_ENTRIES = 32;
+    private static final int MAX_DIGESTS = 256;
+
+    private static final Map<String,Entry> entries = new LinkedHashMap<String,Entry>(MAX_ENTRIES, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String,Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    // File stamp (path, length, modification time) to content digest, so that a file is only hashed once per change
+    private static final Map<String,String> digests = new LinkedHashMap<String,String>(MAX_DIGESTS, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String,String> eldest) {
+            return size() > MAX_DIGESTS;
+        }
+    };
+
+    private CapReqCache() {}
+
+    static final class Entry {
+        final Map<String,List<Capability>> capabilities;
+        final Map<String,List<RequirementWrapper>> requirements;
+
+        Entry(Map<String,List<Capability>> capabilities, Map<String,List<RequirementWrapper>> requirements) {
+            this.capabilities = capabilities;
+            this.requirements = requirements;
+        }
+
+        Map<String,List<Capability>> copyCapabilities() {
+            Map<String,List<Capability>> copy = new HashMap<String,List<Capability>>();
+            for (Map.Entry<String,List<Capability>> e : capabilities.entrySet())
+                copy.put(e.getKey(), new ArrayList<Capability>(e.getValue()));
+            return copy;
+        }
+
+        Map<String,List<RequirementWrapper>> copyRequirements() {
+            Map<String,List<RequirementWrapper>> copy = new HashMap<String,List<RequirementWrapper>>();
+            for (Map.Entry<String,List<RequirementWrapper>> e : requirements.entrySet()) {
+                List<RequirementWrapper> list = new ArrayList<RequirementWrapper>(e.getValue().size());
+                for (RequirementWrapper rw : e.getValue()) {
+                    RequirementWrapper wrapper = new RequirementWrapper();
+                    wrapper.requirement = rw.requirement;
+                    wrapper.requirers = rw.requirers;
+                    list.add(wrapper);
+                }
+                copy.put(e.getKey(), list);
+            }
+            return copy;
+        }
+    }
+
+    static Entry get(String key) {
+        if (key == null)
+            return null;
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    static Entry put(String key, Map<String,List<Capability>> capabilities, Map<String,List<RequirementWrapper>> requirements) {
+        Entry entry = new Entry(Collections.unmodifiableMap(capabilities), Collections.unmodifiableMap(requirements));
+        if (key != null) {
+            synchronized (entries) {
+                entries.put(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * @return Whether every loader has a cached analysis whose key can be computed without reading file contents.
+     */
+    public static boolean isCached(Iterable< ? extends CapReqLoader> loaders) {
+        for (CapReqLoader loader : loaders) {
+            if (!(loader instanceof BndBuilderCapReqLoader))
+                continue;
+            String key = ((BndBuilderCapReqLoader) loader).getCachedKey();
+            if (key == null || get(key) == null)
+                return false;
+        }
+        return true;
+    }
+
+    static String stamp(File file) {
+        return file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+    }
+
+    /**
+     * @return The memoized SHA-256 digest of the file for its current stamp, or {@code null} if not yet computed.
+     */
+    static String getKnownDigest(File file) {
+        synchronized (digests) {
+            return digests.get(stamp(file));
+        }
+    }
+
+    static String digest(File file) throws IOException {
+        String stamp = stamp(file);
+        synchronized (digests) {
+            String digest = digests.get(stamp);
+            if (digest != null)
+                return digest;
+        }
+
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int n;
+            while ((n = in.read(buffer)) > 0)
+                md.update(buffer, 0, n);
+        }
+        String digest = Hex.toHexString(md.digest());
+        synchronized (digests) {
+            digests.put(stamp, digest);
+        }
+        return digest;
+    }
+}
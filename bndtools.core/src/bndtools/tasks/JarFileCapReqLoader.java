@@ -27,6 +27,17 @@ public class JarFileCapReqLoader extends BndBuilderCapReqLoader {
         return builder;
     }
 
+    @Override
+    public String getCacheKey() throws IOException {
+        return "jar:" + CapReqCache.digest(file);
+    }
+
+    @Override
+    public String getCachedKey() {
+        String digest = CapReqCache.getKnownDigest(file);
+        return digest != null ? "jar:" + digest : null;
+    }
+
     @Override
     public synchronized void close() throws IOException {
         if (builder != null)
@@ -457,12 +457,13 @@ public class RepositoriesView extends ViewPart implements RepositoriesViewRefres
 
         prefs.addPropertyChangeListener(workspaceOfflineListener);
 
-        // synthenic call to "refresh" so that we can get the repositories to show up in the UI
+        // synthenic call to "refresh" so that we can get the repositories to show up in the UI;
+        // the real refresh is skipped if the repositories are unchanged since the last one
         new WorkspaceJob("Load repositories") {
             @Override
             public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
                 try {
-                    Central.refreshPlugins();
+                    Central.refreshPluginsIfStale();
                 } catch (Exception e) {
                     // ignore errors there may be no workspace yet
                 }
@@ -105,6 +105,8 @@ public class ResolutionView extends ViewPart implements ISelectionListener, IRes
             IdentityNamespace.IDENTITY_NAMESPACE, HostNamespace.HOST_NAMESPACE
     };
 
+    private static final long ANALYSIS_DELAY = 300;
+
     private Display display = null;
 
     private Tree reqsTree = null;
@@ -139,8 +141,7 @@ public class ResolutionView extends ViewPart implements ISelectionListener, IRes
                 IFile file = ResourceUtil.getFile(editorInput);
                 if (file != null) {
                     CapReqLoader loader = getLoaderForFile(file.getLocation().toFile());
-                    if (loader != null) {
-                        setLoaders(Collections.singleton(loader));
+                    if (loader != null && setLoaders(Collections.singleton(loader))) {
                         if (getSite().getPage().isPartVisible(ResolutionView.this)) {
                             executeAnalysis();
                         } else {
@@ -436,6 +437,14 @@ public class ResolutionView extends ViewPart implements ISelectionListener, IRes
             if (!loaders.isEmpty()) {
                 final AnalyseBundleResolutionJob job = new AnalyseBundleResolutionJob("importExportAnalysis", loaders);
                 job.setSystem(true);
+                job.setUseCache(true);
+
+                // Selections that were analysed before are shown immediately
+                if (display != null && display.getThread() == Thread.currentThread() && job.runFromCache()) {
+                    analysisJob = null;
+                    setInput(loaders, job.getCapabilities(), job.getRequirements());
+                    return;
+                }
 
                 job.addJobChangeListener(new JobChangeAdapter() {
                     @Override
@@ -462,6 +471,11 @@ public class ResolutionView extends ViewPart implements ISelectionListener, IRes
                                 display.asyncExec(new Runnable() {
                                     @Override
                                     public void run() {
+                                        // Drop results of an analysis that was superseded while it ran
+                                        synchronized (ResolutionView.this) {
+                                            if (analysisJob != job)
+                                                return;
+                                        }
                                         setInput(loaders, job.getCapabilities(), job.getRequirements());
                                     }
                                 });
@@ -469,8 +483,9 @@ public class ResolutionView extends ViewPart implements ISelectionListener, IRes
                     }
                 });
 
+                // Debounce: a selection that is replaced within the delay is never analysed
                 analysisJob = job;
-                analysisJob.schedule(500);
+                analysisJob.schedule(ANALYSIS_DELAY);
             } else {
                 analysisJob = null;
             }
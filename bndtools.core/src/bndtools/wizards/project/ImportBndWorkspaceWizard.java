@@ -1,28 +1,25 @@
 package bndtools.wizards.project;
 
 import java.io.File;
-import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.Hashtable;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import org.bndtools.api.ILogger;
+import org.bndtools.api.Logger;
 import org.eclipse.core.filesystem.URIUtil;
+import org.eclipse.core.resources.IBuildConfiguration;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IProjectDescription;
-import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
@@ -30,14 +27,14 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.IJavaProject;
-import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.JavaCore;
-import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.launching.JavaRuntime;
 import org.eclipse.jdt.launching.environments.IExecutionEnvironment;
 import org.eclipse.jface.dialogs.ErrorDialog;
@@ -59,6 +56,7 @@ import bndtools.BndConstants;
 import bndtools.Plugin;
 
 public class ImportBndWorkspaceWizard extends Wizard implements IImportWizard {
+    private static final ILogger logger = Logger.getLogger(ImportBndWorkspaceWizard.class);
 
     private IWorkbench workbench;
 
@@ -89,6 +87,8 @@ public class ImportBndWorkspaceWizard extends Wizard implements IImportWizard {
             protected void execute(IProgressMonitor monitor) throws CoreException {
                 try {
                     importProjects(importSettings, monitor);
+                } catch (CoreException | OperationCanceledException e) {
+                    throw e;
                 } catch (Exception e) {
                     throw new CoreException(new Status(IStatus.ERROR, Plugin.PLUGIN_ID, "Error during import of Bnd workspace!", e));
                 }
@@ -131,53 +131,59 @@ public class ImportBndWorkspaceWizard extends Wizard implements IImportWizard {
         return true;
     }
 
-    private void deleteOldProjectFiles(final Path projectPath) throws IOException {
-        final Path settings = projectPath.resolve(".settings");
-        if (Files.exists(settings)) {
-            Files.walkFileTree(settings, new SimpleFileVisitor<Path>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    Files.delete(file);
-                    return FileVisitResult.CONTINUE;
-                }
-
-                @Override
-                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-                    Files.delete(dir);
-                    return FileVisitResult.CONTINUE;
-                }
-            });
-        }
-
-        final Path project = projectPath.resolve(".project");
-        Files.deleteIfExists(project);
-        final Path classpath = projectPath.resolve(".classpath");
-        Files.deleteIfExists(classpath);
-    }
-
     private boolean importProjects(final ImportSettings importSettings, IProgressMonitor monitor) throws Exception {
         Workspace bndWorkspace = Workspace.getWorkspace(importSettings.rootImportPath);
+        Collection<Project> bndProjects = bndWorkspace.getAllProjects();
 
-        int steps = bndWorkspace.getAllProjects().size() + 2;
+        SubMonitor progress = SubMonitor.convert(monitor, "Importing Bnd workspace", 2 * bndProjects.size() + 2);
+        long start = System.nanoTime();
 
-        monitor.beginTask("Importing Bnd workspace", steps);
+        // Read the projects before touching the Eclipse workspace
+        final List<PreparedProject> preparedProjects = PreparedProject.prepareAll(bndProjects, importSettings.deleteSettings, progress.newChild(bndProjects.size()));
+        long prepared = System.nanoTime();
 
-        importConfigurationProject(importSettings, monitor);
+        importConfigurationProject(importSettings, progress.newChild(1));
 
-        // Import Projects
-        for (Project bndProject : bndWorkspace.getAllProjects()) {
-            importBndProject(bndProject, bndWorkspace, importSettings, monitor);
-        }
+        // Create all projects and classpaths in one batch of resource and Java model changes
+        final SubMonitor importProgress = progress.newChild(bndProjects.size()).setWorkRemaining(preparedProjects.size());
+        JavaCore.run(new IWorkspaceRunnable() {
+            @Override
+            public void run(IProgressMonitor monitor) throws CoreException {
+                for (PreparedProject preparedProject : preparedProjects) {
+                    if (importProgress.isCanceled())
+                        throw new OperationCanceledException();
+                    importBndProject(preparedProject, importSettings, importProgress.newChild(1));
+                }
+            }
+        }, ResourcesPlugin.getWorkspace().getRoot(), null);
+        long created = System.nanoTime();
 
-        // build
-        monitor.subTask("Building workspace");
-        ResourcesPlugin.getWorkspace().build(IncrementalProjectBuilder.CLEAN_BUILD, monitor);
-        monitor.worked(1);
-        monitor.done();
+        // build once, in the bnd build order
+        progress.subTask("Building workspace");
+        buildProjects(bndWorkspace, progress.newChild(1));
+        long built = System.nanoTime();
 
+        logger.logInfo(String.format("Imported %d projects in %d ms (prepare %d ms, create %d ms, build %d ms)", preparedProjects.size(), millis(start, built), millis(start, prepared), millis(prepared, created),
+                millis(created, built)), null);
         return true;
     }
 
+    private static long millis(long from, long to) {
+        return TimeUnit.NANOSECONDS.toMillis(to - from);
+    }
+
+    private void buildProjects(Workspace bndWorkspace, IProgressMonitor monitor) throws Exception {
+        IWorkspaceRoot eclipseWorkspaceRoot = ResourcesPlugin.getWorkspace().getRoot();
+        List<IBuildConfiguration> buildConfigs = new ArrayList<>();
+        buildConfigs.add(eclipseWorkspaceRoot.getProject(Workspace.CNFDIR).getActiveBuildConfig());
+        for (Project bndProject : bndWorkspace.getBuildOrder()) {
+            IProject project = eclipseWorkspaceRoot.getProject(bndProject.getName());
+            if (project.isOpen())
+                buildConfigs.add(project.getActiveBuildConfig());
+        }
+        ResourcesPlugin.getWorkspace().build(buildConfigs.toArray(new IBuildConfiguration[buildConfigs.size()]), IncrementalProjectBuilder.INCREMENTAL_BUILD, false, monitor);
+    }
+
     private void importConfigurationProject(final ImportSettings importSettings, IProgressMonitor monitor) throws Exception {
         monitor.subTask("Import configuration project 'cnf'.");
         final IWorkspace eclipseWorkspace = ResourcesPlugin.getWorkspace();
@@ -192,7 +198,7 @@ public class ImportBndWorkspaceWizard extends Wizard implements IImportWizard {
         final IProject project = eclipseWorkspaceRoot.getProject(Workspace.CNFDIR);
 
         if (importSettings.deleteSettings) {
-            deleteOldProjectFiles(Paths.get(bndWorkspace.getBase().toURI()).resolve(Workspace.CNFDIR));
+            PreparedProject.deleteOldProjectFiles(Paths.get(bndWorkspace.getBase().toURI()).resolve(Workspace.CNFDIR));
         }
 
         // create JavaProject
@@ -213,78 +219,90 @@ public class ImportBndWorkspaceWizard extends Wizard implements IImportWizard {
         monitor.worked(1);
     }
 
-    private void importBndProject(final Project bndProject, final Workspace bndWorkspace, final ImportSettings importSettings, IProgressMonitor monitor) throws IOException, CoreException, Exception {
-        monitor.subTask("Import Bnd project '" + bndProject.getName() + "'.");
+    private void importBndProject(final PreparedProject preparedProject, final ImportSettings importSettings, IProgressMonitor monitor) throws CoreException {
+        SubMonitor progress = SubMonitor.convert(monitor, "Import Bnd project '" + preparedProject.name + "'.", 5);
         final IWorkspace eclipseWorkspace = ResourcesPlugin.getWorkspace();
         final IWorkspaceRoot eclipseWorkspaceRoot = eclipseWorkspace.getRoot();
 
-        if (importSettings.deleteSettings) {
-            deleteOldProjectFiles(Paths.get(bndWorkspace.getBaseURI()).resolve(bndProject.getName()));
-        }
         // create generic project
-        final IProjectDescription projectDescription = eclipseWorkspace.newProjectDescription(bndProject.getName());
-        final IProject project = eclipseWorkspaceRoot.getProject(bndProject.getName());
+        final IProjectDescription projectDescription = eclipseWorkspace.newProjectDescription(preparedProject.name);
+        final IProject project = eclipseWorkspaceRoot.getProject(preparedProject.name);
 
-        IPath path = URIUtil.toPath(bndProject.getBaseURI());
-        if (Platform.getLocation().isPrefixOf(path)) {
+        if (Platform.getLocation().isPrefixOf(preparedProject.location)) {
             projectDescription.setLocation(null);
         } else {
-            projectDescription.setLocation(path);
+            projectDescription.setLocation(preparedProject.location);
         }
 
         if (!project.exists()) {
-            project.create(projectDescription, monitor);
+            project.create(projectDescription, progress.newChild(1));
         }
-        project.open(monitor);
+        project.open(progress.newChild(1));
 
-        setNatures(project, monitor, JavaCore.NATURE_ID, Plugin.BNDTOOLS_NATURE);
+        setNatures(project, progress.newChild(1), JavaCore.NATURE_ID, Plugin.BNDTOOLS_NATURE);
 
         IJavaProject javaProject = JavaCore.create(project);
         if (!javaProject.isOpen()) {
-            javaProject.open(monitor);
+            javaProject.open(progress.newChild(1));
         }
-        updateJavaProjectSettings(bndProject, javaProject, importSettings, monitor);
+        updateJavaProjectSettings(preparedProject, javaProject);
 
-        importSourceAndOutputFolders(bndProject, project, javaProject, monitor);
+        importSourceAndOutputFolders(preparedProject, project, javaProject, importSettings, progress.newChild(1));
     }
 
-    private void importSourceAndOutputFolders(Project bndProject, IProject workspaceProject, IJavaProject javaProject, IProgressMonitor monitor) throws Exception {
-        // remove defaults
-        removeClasspathDefaults(javaProject);
+    /**
+     * Set the complete raw classpath and output location of the project at once: the existing entries without the
+     * default source folder, the source folders of the bnd project and a JRE container.
+     */
+    private void importSourceAndOutputFolders(PreparedProject preparedProject, IProject workspaceProject, IJavaProject javaProject, ImportSettings importSettings, IProgressMonitor monitor) throws CoreException {
+        List<IClasspathEntry> entries = new ArrayList<>();
+        boolean jreContainerAvailable = false;
+        for (IClasspathEntry entry : javaProject.getRawClasspath()) {
+            // remove defaults
+            if (entry.getEntryKind() == IClasspathEntry.CPE_SOURCE)
+                continue;
+            if (entry.getEntryKind() == IClasspathEntry.CPE_CONTAINER && entry.getPath() != null && entry.getPath().toString().startsWith(JavaRuntime.JRE_CONTAINER)) {
+                // remove existing entry if user want to infer EE
+                if (importSettings.inferExecutionEnvironment)
+                    continue;
+                jreContainerAvailable = true;
+            }
+            entries.add(entry);
+        }
 
         // Output
-        IFolder sourceOutput = workspaceProject.getFolder(URIUtil.toPath(bndProject.getSrcOutput().toURI()).makeRelativeTo(workspaceProject.getLocation()));
-        IPackageFragmentRoot outputRoot = javaProject.getPackageFragmentRoot(sourceOutput);
+        IFolder sourceOutput = getFolder(workspaceProject, preparedProject.srcOutput);
 
         // Source (multiple possible)
-        for (File folder : bndProject.getSourcePath()) {
-            IFolder source = workspaceProject.getFolder(URIUtil.toPath(folder.toURI()).makeRelativeTo(workspaceProject.getLocation()));
-            // Now the created source folder should be added to the class entries of the project, otherwise compilation will fail
-            IPackageFragmentRoot root = javaProject.getPackageFragmentRoot(source);
-            List<IClasspathEntry> entries = new ArrayList<>(Arrays.asList(javaProject.getRawClasspath()));
-            entries.add(JavaCore.newSourceEntry(root.getPath(), null, outputRoot.getPath()));
-            javaProject.setRawClasspath(entries.toArray(new IClasspathEntry[entries.size()]), monitor);
+        for (IPath folder : preparedProject.sourceFolders) {
+            IFolder source = getFolder(workspaceProject, folder);
             createFolderIfNecessary(source, monitor);
+            entries.add(JavaCore.newSourceEntry(source.getFullPath(), null, sourceOutput.getFullPath()));
         }
         // Test-Source
-        javaProject.setOutputLocation(sourceOutput.getFullPath(), null);
-        if (!bndProject.getSrcOutput().equals(bndProject.getTestOutput())) {
-            IFolder testOutput = workspaceProject.getFolder(URIUtil.toPath(bndProject.getTestOutput().toURI()).makeRelativeTo(workspaceProject.getLocation()));
-            IPackageFragmentRoot testOutputRoot = javaProject.getPackageFragmentRoot(testOutput);
-            IFolder testSource = workspaceProject.getFolder(URIUtil.toPath(bndProject.getTestSrc().toURI()).makeRelativeTo(workspaceProject.getLocation()));
-            // Now the created source folder should be added to the class entries of the project, otherwise compilation will fail
-            IPackageFragmentRoot root = javaProject.getPackageFragmentRoot(testSource);
-            List<IClasspathEntry> entries = new ArrayList<>(Arrays.asList(javaProject.getRawClasspath()));
-            entries.add(JavaCore.newSourceEntry(root.getPath(), null, testOutputRoot.getPath()));
-            javaProject.setRawClasspath(entries.toArray(new IClasspathEntry[entries.size()]), monitor);
+        if (preparedProject.testSrc != null) {
+            IFolder testOutput = getFolder(workspaceProject, preparedProject.testOutput);
+            IFolder testSource = getFolder(workspaceProject, preparedProject.testSrc);
             createFolderIfNecessary(testSource, monitor);
+            entries.add(JavaCore.newSourceEntry(testSource.getFullPath(), null, testOutput.getFullPath()));
+        }
+
+        // The Java-Nature doesn't add a JRE-Container, so we add one
+        if (!jreContainerAvailable) {
+            entries.add(getSystemLibraryContainer(javaProject, preparedProject.javacTarget, importSettings));
         }
 
+        javaProject.setRawClasspath(entries.toArray(new IClasspathEntry[entries.size()]), sourceOutput.getFullPath(), monitor);
+
         // Generated Artifact
-        IFolder generated = workspaceProject.getFolder(URIUtil.toPath(bndProject.getTarget().toURI()).makeRelativeTo(workspaceProject.getLocation()));
+        IFolder generated = getFolder(workspaceProject, preparedProject.target);
         createFolderIfNecessary(generated, monitor);
     }
 
+    private static IFolder getFolder(IProject workspaceProject, IPath path) {
+        return workspaceProject.getFolder(path.makeRelativeTo(workspaceProject.getLocation()));
+    }
+
     private void createFolderIfNecessary(IFolder folder, IProgressMonitor monitor) throws CoreException {
         if (!folder.exists()) {
             folder.create(true, true, monitor);
@@ -292,53 +310,24 @@ public class ImportBndWorkspaceWizard extends Wizard implements IImportWizard {
     }
 
     /**
-     * The Java-Nature doesn't add a JRE-Container, so we add one
-     *
      * @param javaProject
-     *            the Java project which should get enhanced with LibraryContainer
+     *            the Java project which gets the LibraryContainer
      * @param javacTarget
-     * @param monitor
-     *            current IProgressMonitor
-     * @throws JavaModelException
+     * @return The JRE-Container for the project
      */
-    private void addSystemLibraryContainer(final IJavaProject javaProject, final String javacTarget, final ImportSettings importSettings, IProgressMonitor monitor) throws JavaModelException {
-        List<IClasspathEntry> entries = new ArrayList<>(Arrays.asList(javaProject.getRawClasspath()));
-        // entries.addAll(newContainerEntries);
-        // only add JRE-Container if none available
-        boolean jreContainerAvailable = false;
-        Iterator<IClasspathEntry> it = entries.iterator();
-        while (it.hasNext()) {
-            IClasspathEntry entry = it.next();
-            if (entry.getEntryKind() == IClasspathEntry.CPE_CONTAINER && entry.getPath() != null && entry.getPath().toString().startsWith(JavaRuntime.JRE_CONTAINER)) {
-                // remove existing entry if user want to infer EE
-                if (importSettings.inferExecutionEnvironment) {
-                    it.remove();
-                } else {
-                    jreContainerAvailable = true;
-                }
-                break;
+    private IClasspathEntry getSystemLibraryContainer(final IJavaProject javaProject, final String javacTarget, final ImportSettings importSettings) {
+        if (importSettings.inferExecutionEnvironment) {
+            // fuzzy at the moment but better than nothing. We should find a way to handle CDC
+            IExecutionEnvironment environment = JavaRuntime.getExecutionEnvironmentsManager().getEnvironment("J2SE-" + javacTarget);
+            if (environment == null) {
+                environment = JavaRuntime.getExecutionEnvironmentsManager().getEnvironment("JavaSE-" + javacTarget);
             }
-        }
-        if (!jreContainerAvailable) {
-            IClasspathEntry defaultJREContainerEntry = JavaRuntime.getDefaultJREContainerEntry();
-            if (importSettings.inferExecutionEnvironment) {
-                // fuzzy at the moment but better than nothing. We should find a way to handle CDC
-                IExecutionEnvironment environment = JavaRuntime.getExecutionEnvironmentsManager().getEnvironment("J2SE-" + javacTarget);
-                if (environment == null) {
-                    environment = JavaRuntime.getExecutionEnvironmentsManager().getEnvironment("JavaSE-" + javacTarget);
-                }
-                if (environment != null) {
-                    entries.add(JavaCore.newContainerEntry(JavaRuntime.newJREContainerPath(environment)));
-                } else {
-                    Plugin.getDefault().getLog()
-                            .log(new Status(IStatus.WARNING, Plugin.PLUGIN_ID, 0, String.format("Could not infer execution-environment in project '%s' for javac.target '%s'", javaProject.getElementName(), javacTarget), null));
-                    entries.add(defaultJREContainerEntry);
-                }
-            } else {
-                entries.add(defaultJREContainerEntry);
+            if (environment != null) {
+                return JavaCore.newContainerEntry(JavaRuntime.newJREContainerPath(environment));
             }
-            javaProject.setRawClasspath(entries.toArray(new IClasspathEntry[entries.size()]), monitor);
+            Plugin.getDefault().getLog().log(new Status(IStatus.WARNING, Plugin.PLUGIN_ID, 0, String.format("Could not infer execution-environment in project '%s' for javac.target '%s'", javaProject.getElementName(), javacTarget), null));
         }
+        return JavaRuntime.getDefaultJREContainerEntry();
     }
 
     /**
@@ -365,19 +354,16 @@ public class ImportBndWorkspaceWizard extends Wizard implements IImportWizard {
 
     /**
      * Updates the JavaProject with project-level settings from a Bnd project. Currently only compiler-settings are
-     * matched if they differ from the Eclipse workspace (which has been set prior), as well as the JRE-SystemLibrary.
+     * matched if they differ from the Eclipse workspace (which has been set prior).
      *
-     * @param bndProject
+     * @param preparedProject
      *            the imported BndProject
      * @param javaProject
      *            the newly created JavaProject
-     * @throws JavaModelException
      */
-    private void updateJavaProjectSettings(final Project bndProject, final IJavaProject javaProject, final ImportSettings importSettings, IProgressMonitor monitor) throws JavaModelException {
-        final String javacSource = bndProject.getProperties().getProperty(BndConstants.JAVAC_SOURCE);
-        final String javacTarget = bndProject.getProperties().getProperty(BndConstants.JAVAC_TARGET);
-
-        addSystemLibraryContainer(javaProject, javacTarget, importSettings, monitor);
+    private void updateJavaProjectSettings(final PreparedProject preparedProject, final IJavaProject javaProject) {
+        final String javacSource = preparedProject.javacSource;
+        final String javacTarget = preparedProject.javacTarget;
 
         @SuppressWarnings("unchecked")
         Map<String,String> projectOptions = javaProject.getOptions(false);
@@ -394,24 +380,6 @@ public class ImportBndWorkspaceWizard extends Wizard implements IImportWizard {
         javaProject.setOptions(projectOptions);
     }
 
-    /**
-     * Creating a JavaProject has the effect that there is an default source-folder in the RawClasspath which uses the
-     * project-directory itself. Furthermore, the BndProjectNature causes the classpath container to be available if the
-     * Repositories-View is still populated from a prior Workspace-Setup.
-     *
-     * @param javaProject
-     *            the Project which needs special treatment
-     * @throws JavaModelException
-     */
-    private void removeClasspathDefaults(IJavaProject javaProject) throws JavaModelException {
-        for (IPackageFragmentRoot root : javaProject.getPackageFragmentRoots()) {
-            if (!root.isArchive()) {
-                int jCoreFlags = IPackageFragmentRoot.NO_RESOURCE_MODIFICATION | IPackageFragmentRoot.ORIGINATING_PROJECT_CLASSPATH;
-                root.delete(IResource.NONE, jCoreFlags, null);
-            }
-        }
-    }
-
     private void setNatures(IProject project, IProgressMonitor monitor, String... natureIds) throws CoreException {
         IProjectDescription updatingDescription = project.getDescription();
         updatingDescription.setNatureIds(natureIds);
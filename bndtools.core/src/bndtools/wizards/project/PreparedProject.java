@@ -0,0 +1,119 @@
+package bndtools.wizards.project;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.filesystem.URIUtil;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+
+import aQute.bnd.build.Project;
+import bndtools.BndConstants;
+
+/**
+ * The layout and compiler settings of a bnd project to import, read before the Eclipse project is created. Reading
+ * them expands the bnd properties of the project, which does not touch the Eclipse workspace, so the projects of a
+ * workspace are prepared before the workspace operation that creates the Eclipse projects starts.
+ */
+class PreparedProject {
+
+    final String name;
+    final IPath location;
+    final List<IPath> sourceFolders;
+    final IPath srcOutput;
+    /** The test source folder, or {@code null} if the tests are compiled to the main output. */
+    final IPath testSrc;
+    final IPath testOutput;
+    final IPath target;
+    final String javacSource;
+    final String javacTarget;
+
+    private PreparedProject(Project bndProject) throws Exception {
+        name = bndProject.getName();
+        location = URIUtil.toPath(bndProject.getBaseURI());
+        List<IPath> folders = new ArrayList<>();
+        for (File folder : bndProject.getSourcePath()) {
+            folders.add(toPath(folder));
+        }
+        sourceFolders = Collections.unmodifiableList(folders);
+        srcOutput = toPath(bndProject.getSrcOutput());
+        if (!bndProject.getSrcOutput().equals(bndProject.getTestOutput())) {
+            testSrc = toPath(bndProject.getTestSrc());
+            testOutput = toPath(bndProject.getTestOutput());
+        } else {
+            testSrc = null;
+            testOutput = null;
+        }
+        target = toPath(bndProject.getTarget());
+        javacSource = bndProject.getProperties().getProperty(BndConstants.JAVAC_SOURCE);
+        javacTarget = bndProject.getProperties().getProperty(BndConstants.JAVAC_TARGET);
+    }
+
+    private static IPath toPath(File file) {
+        return URIUtil.toPath(file.toURI());
+    }
+
+    static PreparedProject prepare(Project bndProject, boolean deleteSettings) throws Exception {
+        if (deleteSettings) {
+            deleteOldProjectFiles(Paths.get(bndProject.getBaseURI()));
+        }
+        return new PreparedProject(bndProject);
+    }
+
+    /**
+     * Prepare the projects one after the other. The projects share their bnd workspace, which is not thread safe, so
+     * their properties are not expanded concurrently.
+     *
+     * @return The prepared projects in the order of the given projects
+     * @throws OperationCanceledException
+     *             if the monitor was canceled
+     */
+    static List<PreparedProject> prepareAll(Collection<Project> projects, boolean deleteSettings, IProgressMonitor monitor) throws Exception {
+        SubMonitor progress = SubMonitor.convert(monitor, "Reading Bnd projects", projects.size());
+        List<PreparedProject> result = new ArrayList<>(projects.size());
+        for (Project bndProject : projects) {
+            if (progress.isCanceled())
+                throw new OperationCanceledException();
+            progress.subTask(bndProject.getName());
+            result.add(prepare(bndProject, deleteSettings));
+            progress.worked(1);
+        }
+        return result;
+    }
+
+    static void deleteOldProjectFiles(final Path projectPath) throws IOException {
+        final Path settings = projectPath.resolve(".settings");
+        if (Files.exists(settings)) {
+            Files.walkFileTree(settings, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+
+        final Path project = projectPath.resolve(".project");
+        Files.deleteIfExists(project);
+        final Path classpath = projectPath.resolve(".classpath");
+        Files.deleteIfExists(classpath);
+    }
+}
@@ -25,6 +25,7 @@ import aQute.bnd.service.RepositoryPlugin;
 import aQute.lib.io.IO;
 import bndtools.Plugin;
 import bndtools.central.RefreshFileJob;
+import bndtools.central.RepositoryUtils;
 import bndtools.types.Pair;
 
 public class AddFilesToRepositoryWizard extends Wizard {
@@ -96,7 +97,10 @@ public class AddFilesToRepositoryWizard extends Wizard {
             }
 
             try {
-                RepositoryPlugin.PutResult result = repository.put(new BufferedInputStream(IO.stream(file)), new RepositoryPlugin.PutOptions());
+                RepositoryPlugin.PutResult result;
+                synchronized (RepositoryUtils.getWriteLock(repository)) {
+                    result = repository.put(new BufferedInputStream(IO.stream(file)), new RepositoryPlugin.PutOptions());
+                }
                 if (result.artifact != null && result.artifact.getScheme().equals("file")) {
                     File newFile = new File(result.artifact);
 
@@ -0,0 +1,108 @@
+package org.bndtools.build.api;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+/**
+ * Caches type lookups and parsed compilation units while the markers of a build are generated, so that the
+ * {@link BuildErrorDetailsHandler}s do not parse the same source file for every marker they locate. A cache is opened
+ * for the current thread with {@link #open()} and must be closed when the markers are created:
+ *
+ * <pre>
+ * try (ASTCache cache = ASTCache.open()) {
+ *     ... generate marker data ...
+ * }
+ * </pre>
+ *
+ * Opening a cache when one is already open for the thread joins the open cache. Outside of an open cache nothing is
+ * cached.
+ */
+public final class ASTCache implements AutoCloseable {
+
+    private static final ThreadLocal<ASTCache> current = new ThreadLocal<ASTCache>();
+
+    private final Map<String,IType> types = new HashMap<String,IType>();
+    private final Map<ICompilationUnit,CompilationUnit> resolved = new HashMap<ICompilationUnit,CompilationUnit>();
+    private final Map<ICompilationUnit,CompilationUnit> unresolved = new HashMap<ICompilationUnit,CompilationUnit>();
+    private int depth;
+
+    private ASTCache() {}
+
+    public static ASTCache open() {
+        ASTCache cache = current.get();
+        if (cache == null) {
+            cache = new ASTCache();
+            current.set(cache);
+        }
+        cache.depth++;
+        return cache;
+    }
+
+    @Override
+    public void close() {
+        if (--depth == 0)
+            current.remove();
+    }
+
+    /**
+     * Find a type in a project.
+     *
+     * @param javaProject
+     * @param className
+     *            - the fully qualified class name
+     * @return The type, or null if it cannot be found
+     * @throws JavaModelException
+     */
+    public static IType findType(IJavaProject javaProject, String className) throws JavaModelException {
+        ASTCache cache = current.get();
+        if (cache == null)
+            return javaProject.findType(className);
+
+        String key = javaProject.getElementName() + ':' + className;
+        if (cache.types.containsKey(key))
+            return cache.types.get(key);
+        IType type = javaProject.findType(className);
+        cache.types.put(key, type);
+        return type;
+    }
+
+    /**
+     * Parse a compilation unit. An AST with resolved bindings is also returned when the bindings are not needed and
+     * one was already parsed.
+     *
+     * @param cunit
+     * @param resolveBindings
+     *            - true if the bindings of the AST are used
+     * @return The AST
+     */
+    public static CompilationUnit parse(ICompilationUnit cunit, boolean resolveBindings) {
+        ASTCache cache = current.get();
+        if (cache == null)
+            return createAST(cunit, resolveBindings);
+
+        CompilationUnit ast = cache.resolved.get(cunit);
+        if (ast == null && !resolveBindings)
+            ast = cache.unresolved.get(cunit);
+        if (ast == null) {
+            ast = createAST(cunit, resolveBindings);
+            (resolveBindings ? cache.resolved : cache.unresolved).put(cunit, ast);
+        }
+        return ast;
+    }
+
+    private static CompilationUnit createAST(ICompilationUnit cunit, boolean resolveBindings) {
+        ASTParser parser = ASTParser.newParser(AST.JLS8);
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        parser.setSource(cunit);
+        parser.setResolveBindings(resolveBindings);
+        return (CompilationUnit) parser.createAST(null);
+    }
+}
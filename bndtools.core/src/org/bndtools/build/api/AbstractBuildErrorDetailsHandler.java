@@ -11,15 +11,13 @@ import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.ISourceRange;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.JavaModelException;
-import org.eclipse.jdt.core.dom.AST;
-import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.ArrayType;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.FieldDeclaration;
-import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.dom.ImportDeclaration;
 import org.eclipse.jdt.core.dom.MethodDeclaration;
 import org.eclipse.jdt.core.dom.Name;
@@ -27,11 +25,9 @@ import org.eclipse.jdt.core.dom.ParameterizedType;
 import org.eclipse.jdt.core.dom.PrimitiveType;
 import org.eclipse.jdt.core.dom.PrimitiveType.Code;
 import org.eclipse.jdt.core.dom.QualifiedType;
-import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.SimpleType;
 import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
 import org.eclipse.jdt.core.dom.Type;
-import org.eclipse.jdt.core.dom.TypeDeclaration;
 import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
 import org.eclipse.jface.text.contentassist.ICompletionProposal;
 import org.eclipse.ui.IMarkerResolution;
@@ -74,7 +70,7 @@ public abstract class AbstractBuildErrorDetailsHandler implements BuildErrorDeta
     }
 
     /**
-     * Obtain an AST for a source file in a project
+     * Obtain an AST with resolved bindings for a source file in a project
      *
      * @param javaProject
      * @param className
@@ -82,7 +78,22 @@ public abstract class AbstractBuildErrorDetailsHandler implements BuildErrorDeta
      * @throws JavaModelException
      */
     public static final CompilationUnit createAST(IJavaProject javaProject, String className) throws JavaModelException {
-        IType type = javaProject.findType(className);
+        return createAST(javaProject, className, true);
+    }
+
+    /**
+     * Obtain an AST for a source file in a project. Within an open {@link ASTCache} the AST is shared with the other
+     * handlers.
+     *
+     * @param javaProject
+     * @param className
+     * @param resolveBindings
+     *            - true if the bindings of the AST are used
+     * @return An AST, or null if no source file exists for that class
+     * @throws JavaModelException
+     */
+    public static final CompilationUnit createAST(IJavaProject javaProject, String className, boolean resolveBindings) throws JavaModelException {
+        IType type = ASTCache.findType(javaProject, className);
         if (type == null)
             return null;
 
@@ -90,12 +101,7 @@ public abstract class AbstractBuildErrorDetailsHandler implements BuildErrorDeta
         if (cunit == null)
             return null; // not a source type
 
-        @SuppressWarnings("deprecation")
-        ASTParser parser = ASTParser.newParser(AST.JLS4);
-        parser.setKind(ASTParser.K_COMPILATION_UNIT);
-        parser.setSource(cunit);
-        parser.setResolveBindings(true);
-        return (CompilationUnit) parser.createAST(null);
+        return ASTCache.parse(cunit, resolveBindings);
     }
 
     /**
@@ -112,32 +118,23 @@ public abstract class AbstractBuildErrorDetailsHandler implements BuildErrorDeta
      */
     public static final MarkerData createTypeMarkerData(IJavaProject javaProject, final String className, final Map<String,Object> markerAttributes, boolean hasResolutions) throws JavaModelException {
 
-        final CompilationUnit ast = createAST(javaProject, className);
-
-        if (ast == null)
+        // The name range comes from the Java model, no need to parse the source
+        IType type = ASTCache.findType(javaProject, className);
+        if (type == null)
             return null;
 
-        ast.accept(new ASTVisitor() {
-            @Override
-            public boolean visit(TypeDeclaration typeDecl) {
-                ITypeBinding typeBinding = typeDecl.resolveBinding();
-                if (typeBinding != null) {
-                    if (typeBinding.getBinaryName().equals(className)) {
-                        SimpleName nameNode = typeDecl.getName();
-                        markerAttributes.put(IMarker.CHAR_START, nameNode.getStartPosition());
-                        markerAttributes.put(IMarker.CHAR_END, nameNode.getStartPosition() + nameNode.getLength());
-
-                        return false;
-                    }
-                }
-                return true;
-            }
-        });
+        ICompilationUnit cunit = type.getCompilationUnit();
+        if (cunit == null)
+            return null; // not a source type
 
-        if (!markerAttributes.containsKey(IMarker.CHAR_START))
+        ISourceRange nameRange = type.getNameRange();
+        if (nameRange == null || nameRange.getOffset() < 0)
             return null;
 
-        return new MarkerData(ast.getJavaElement().getResource(), markerAttributes, hasResolutions);
+        markerAttributes.put(IMarker.CHAR_START, nameRange.getOffset());
+        markerAttributes.put(IMarker.CHAR_END, nameRange.getOffset() + nameRange.getLength());
+
+        return new MarkerData(cunit.getResource(), markerAttributes, hasResolutions);
     }
 
     /**
@@ -160,7 +157,7 @@ public abstract class AbstractBuildErrorDetailsHandler implements BuildErrorDeta
     public static final MarkerData createMethodMarkerData(IJavaProject javaProject, final String className, final String methodName, final String methodSignature, final Map<String,Object> markerAttributes, boolean hasResolutions)
             throws JavaModelException {
 
-        final CompilationUnit ast = createAST(javaProject, className);
+        final CompilationUnit ast = createAST(javaProject, className, false);
 
         if (ast == null)
             return null;
@@ -261,7 +258,7 @@ public abstract class AbstractBuildErrorDetailsHandler implements BuildErrorDeta
                     if (id.isOnDemand()) {
                         String packageName = id.getName().getFullyQualifiedName();
                         try {
-                            if (ast.getJavaElement().getJavaProject().findType(packageName + "." + name) != null) {
+                            if (ASTCache.findType(ast.getJavaElement().getJavaProject(), packageName + "." + name) != null) {
                                 name = packageName + '.' + name;
                             }
                         } catch (JavaModelException e) {}
@@ -276,7 +273,7 @@ public abstract class AbstractBuildErrorDetailsHandler implements BuildErrorDeta
 
                 if (name.indexOf('.') < 0) {
                     try {
-                        if (ast.getJavaElement().getJavaProject().findType(name) == null) {
+                        if (ASTCache.findType(ast.getJavaElement().getJavaProject(), name) == null) {
                             name = "java.lang." + name;
                         }
                     } catch (JavaModelException e) {}
@@ -310,7 +307,7 @@ public abstract class AbstractBuildErrorDetailsHandler implements BuildErrorDeta
      */
     public static final MarkerData createFieldMarkerData(IJavaProject javaProject, final String className, final String fieldName, final Map<String,Object> markerAttributes, boolean hasResolutions) throws JavaModelException {
 
-        final CompilationUnit ast = createAST(javaProject, className);
+        final CompilationUnit ast = createAST(javaProject, className, false);
 
         if (ast == null)
             return null;
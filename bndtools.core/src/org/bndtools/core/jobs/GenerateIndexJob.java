@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.OutputStream;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
@@ -13,6 +14,7 @@ import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.jobs.Job;
@@ -23,11 +25,24 @@ import bndtools.Plugin;
 
 public class GenerateIndexJob extends Job {
 
-    private final Set<File> files;
+    private final Callable<? extends Set<File>> files;
     private final File outputFile;
     private final Map<String,String> config;
 
-    public GenerateIndexJob(Set<File> files, File outputFile, Map<String,String> config) {
+    public GenerateIndexJob(final Set<File> files, File outputFile, Map<String,String> config) {
+        this(new Callable<Set<File>>() {
+            @Override
+            public Set<File> call() {
+                return files;
+            }
+        }, outputFile, config);
+    }
+
+    /**
+     * @param files
+     *            provides the files to index when the job runs, for example when they are still being searched
+     */
+    public GenerateIndexJob(Callable<? extends Set<File>> files, File outputFile, Map<String,String> config) {
         super("Generating index");
         this.files = files;
         this.outputFile = outputFile;
@@ -38,10 +53,23 @@ public class GenerateIndexJob extends Job {
     protected IStatus run(IProgressMonitor monitor) {
         SubMonitor progress = SubMonitor.convert(monitor);
 
+        Set<File> inputFiles;
+        try {
+            inputFiles = files.call();
+        } catch (OperationCanceledException e) {
+            return Status.CANCEL_STATUS;
+        } catch (CoreException e) {
+            return e.getStatus();
+        } catch (Exception e) {
+            return new Status(IStatus.ERROR, Plugin.PLUGIN_ID, 0, "Error finding the files to index.", e);
+        }
+        if (progress.isCanceled())
+            return Status.CANCEL_STATUS;
+
         // Generate index
         try (OutputStream outputStream = IO.outputStream(outputFile)) {
             ResourceIndexer indexer = Plugin.getDefault().getResourceIndexer();
-            indexer.index(files, outputStream, config);
+            indexer.index(inputFiles, outputStream, config);
         } catch (Exception e) {
             return new Status(IStatus.ERROR, Plugin.PLUGIN_ID, 0, "Error indexing files.", e);
         }
@@ -0,0 +1,109 @@
+package org.bndtools.core.resolve;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bndtools.utils.resources.ResourceUtils;
+import org.osgi.framework.Version;
+import org.osgi.framework.VersionRange;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+
+import aQute.bnd.build.model.clauses.VersionedClause;
+import biz.aQute.resolve.ResolutionCallback;
+
+/**
+ * Seeds an incremental resolve with the bundles of a previous resolution. Candidates provided by a previously resolved
+ * bundle are moved to the front of a candidate list, so the resolver settles on the previous wiring first and only has
+ * to search where requirements or repository content changed. The resolver only offers candidates that satisfy the
+ * requirement, so a previous bundle that no longer does is not among them and another candidate is chosen. Newer
+ * versions of the previous bundles are not picked up by an incremental resolve; a full resolve (see
+ * {@link ResolveOperation#setIncremental(boolean)}) does that.
+ */
+public class PreferPreviousResolutionCallback implements ResolutionCallback {
+
+    private final Map<String,List<VersionRange>> preferred = new HashMap<String,List<VersionRange>>();
+    private final AtomicInteger preferredHits = new AtomicInteger();
+
+    public PreferPreviousResolutionCallback(Collection<VersionedClause> previousRunBundles) {
+        for (VersionedClause clause : previousRunBundles) {
+            List<VersionRange> ranges = preferred.get(clause.getName());
+            if (ranges == null) {
+                ranges = new ArrayList<VersionRange>(1);
+                preferred.put(clause.getName(), ranges);
+            }
+            ranges.add(parseRange(clause.getVersionRange()));
+        }
+    }
+
+    private static VersionRange parseRange(String range) {
+        if (range == null)
+            return null;
+        try {
+            return VersionRange.valueOf(range);
+        } catch (IllegalArgumentException e) {
+            // e.g. "latest" or "snapshot"; any version of the bundle is preferred
+            return null;
+        }
+    }
+
+    public int getPreferredCount() {
+        return preferred.size();
+    }
+
+    /**
+     * @return The number of candidate lists in which a previously resolved bundle was moved to the front.
+     */
+    public int getPreferredHits() {
+        return preferredHits.get();
+    }
+
+    @Override
+    public void processCandidates(Requirement requirement, Set<Capability> wired, List<Capability> candidates) {
+        if (candidates.size() < 2)
+            return;
+
+        List<Capability> previous = null;
+        List<Capability> others = new ArrayList<Capability>(candidates.size());
+        for (Capability candidate : candidates) {
+            if (isPreferred(candidate.getResource())) {
+                if (previous == null)
+                    previous = new ArrayList<Capability>();
+                previous.add(candidate);
+            } else {
+                others.add(candidate);
+            }
+        }
+        if (previous == null || others.isEmpty())
+            return;
+
+        // Stable partition: keep the resolver's order within both groups
+        candidates.removeAll(previous);
+        candidates.addAll(0, previous);
+        preferredHits.incrementAndGet();
+    }
+
+    private boolean isPreferred(Resource resource) {
+        Capability identity;
+        try {
+            identity = ResourceUtils.getIdentityCapability(resource);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        List<VersionRange> ranges = preferred.get(ResourceUtils.getIdentity(identity));
+        if (ranges == null)
+            return false;
+        Version version = ResourceUtils.getVersion(identity);
+        for (VersionRange range : ranges) {
+            if (range == null || range.includes(version))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,385 @@
+package org.bndtools.core.resolve;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+
+import org.bndtools.api.ILogger;
+import org.bndtools.api.Logger;
+import org.bndtools.core.resolve.ResolutionResult.Outcome;
+import org.bndtools.utils.resources.ResourceUtils;
+import org.eclipse.core.runtime.MultiStatus;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+import org.osgi.resource.Wire;
+
+import aQute.bnd.build.Project;
+import aQute.bnd.build.Workspace;
+import aQute.bnd.build.model.BndEditModel;
+import aQute.bnd.osgi.Constants;
+import aQute.bnd.osgi.Processor;
+import aQute.bnd.osgi.repository.XMLResourceGenerator;
+import aQute.bnd.osgi.repository.XMLResourceParser;
+import aQute.bnd.service.RepositoryPlugin;
+import aQute.lib.hex.Hex;
+import aQute.lib.io.IO;
+import bndtools.Plugin;
+import bndtools.central.Central;
+
+/**
+ * Caches successful resolution results keyed by a fingerprint of the effective run properties of a bndrun and the
+ * state of every repository in the workspace. The repositories are not listed to compute the fingerprint, which could
+ * trigger downloads; each repository contributes the digest of its index from {@link Central#getRepositoryDigest} and
+ * the workspace repository the time stamps of the build files of the projects. Recent results are kept in memory;
+ * results are also written to the plugin state location so that they survive a restart. Both levels are bounded and
+ * evict the least recently used entry.
+ * <p>
+ * A repository without an index to digest contributes its change stamp from {@link Central#getRepositoryStamp}
+ * instead, which is only valid in the current session; results keyed on it are kept in memory only.
+ * <p>
+ * The key includes the <code>-runbundles</code>, because an incremental resolve prefers them. Applying a result
+ * changes them, so the next resolve of the same bndrun misses the entry it was applied from and is cached under the
+ * new key; from then on the key is stable until the run properties or the repositories change.
+ */
+public class ResolutionCache {
+    private static final ILogger logger = Logger.getLogger(ResolutionCache.class);
+
+    private static final int MAX_MEMORY_ENTRIES = 16;
+    private static final int MAX_DISK_ENTRIES = 64;
+
+    /**
+     * The instructions that influence the outcome of a resolve. Merged variants (e.g. <code>-runrequires.extra</code>) are
+     * included as well.
+     */
+    private static final List<String> RUN_KEYS = Arrays.asList(Constants.RUNREQUIRES, Constants.RUNFW, Constants.RUNEE, Constants.RUNBLACKLIST, Constants.RUNREPOS, Constants.RUNSYSTEMPACKAGES,
+            Constants.RUNSYSTEMCAPABILITIES, Constants.RUNPATH, Constants.RUNBUNDLES, Constants.AUGMENT, "-runprovidedcapabilities", "-resolve.effective", "-standalone", "-distro");
+
+    /**
+     * Prefix of the keys of results that are only valid in this session.
+     */
+    private static final String SESSION_PREFIX = "session-";
+
+    private static final String RESOURCES_SUFFIX = ".xml";
+    private static final String WIRES_SUFFIX = ".wires";
+
+    private static final ResolutionCache instance = new ResolutionCache();
+
+    private final Map<String,ResolutionResult> memory = new LinkedHashMap<String,ResolutionResult>(MAX_MEMORY_ENTRIES, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Entry<String,ResolutionResult> eldest) {
+            return size() > MAX_MEMORY_ENTRIES;
+        }
+    };
+
+    public static ResolutionCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Compute the cache key for resolving the specified model against the current content of its workspace
+     * repositories. The key of a result that can be persisted depends only on content, not on the session.
+     */
+    public String fingerprint(BndEditModel model) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+        Processor properties = model.getProperties();
+        for (String key : new TreeSet<String>(properties.getPropertyKeys(true))) {
+            for (String runKey : RUN_KEYS) {
+                if (key.equals(runKey) || key.startsWith(runKey + ".")) {
+                    update(digest, key);
+                    update(digest, properties.getProperty(key));
+                    break;
+                }
+            }
+        }
+
+        boolean persistent = true;
+        final Workspace workspace = model.getWorkspace();
+        final RepositoryPlugin workspaceRepo = workspace.getWorkspaceRepository();
+        for (RepositoryPlugin repo : workspace.getRepositories()) {
+            update(digest, repo.getName());
+            update(digest, repo.getLocation());
+            if (repo == workspaceRepo) {
+                // The workspace repository changes whenever a project writes its build files
+                final MessageDigest d = digest;
+                Central.bndCall(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        List<Project> projects = new ArrayList<Project>(workspace.getAllProjects());
+                        Collections.sort(projects, new Comparator<Project>() {
+                            @Override
+                            public int compare(Project a, Project b) {
+                                return a.getName().compareTo(b.getName());
+                            }
+                        });
+                        for (Project project : projects) {
+                            update(d, project.getName());
+                            update(d, Long.toString(new File(project.getTarget(), Project.BUILDFILES).lastModified()));
+                        }
+                        return null;
+                    }
+                });
+            } else {
+                String content = Central.getRepositoryDigest(repo);
+                if (content != null) {
+                    update(digest, content);
+                } else {
+                    persistent = false;
+                    update(digest, Central.getRepositoryStamp(repo));
+                }
+            }
+        }
+
+        String key = Hex.toHexString(digest.digest());
+        return persistent ? key : SESSION_PREFIX + key;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    public synchronized ResolutionResult get(String key) {
+        ResolutionResult result = memory.get(key);
+        if (result != null)
+            return result;
+
+        File dir = getCacheDir();
+        if (dir == null || key.startsWith(SESSION_PREFIX))
+            return null;
+        File resourcesFile = new File(dir, key + RESOURCES_SUFFIX);
+        File wiresFile = new File(dir, key + WIRES_SUFFIX);
+        if (!resourcesFile.isFile() || !wiresFile.isFile())
+            return null;
+
+        try {
+            result = read(resourcesFile, wiresFile);
+        } catch (Exception e) {
+            logger.logWarning("Discarding unreadable resolution cache entry " + key, e);
+            IO.delete(resourcesFile);
+            IO.delete(wiresFile);
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        resourcesFile.setLastModified(now);
+        wiresFile.setLastModified(now);
+        memory.put(key, result);
+        return result;
+    }
+
+    /**
+     * Store a result. Only successful resolutions without custom callbacks are worth caching; other outcomes are
+     * ignored. The cache keeps a copy without the streamed log, so the caller stays the owner of the log.
+     */
+    public synchronized void put(String key, ResolutionResult result) {
+        if (result.getOutcome() != Outcome.Resolved)
+            return;
+        memory.put(key, result.detachLog());
+
+        File dir = getCacheDir();
+        if (dir == null || key.startsWith(SESSION_PREFIX))
+            return;
+        File resourcesFile = new File(dir, key + RESOURCES_SUFFIX);
+        File wiresFile = new File(dir, key + WIRES_SUFFIX);
+        try {
+            dir.mkdirs();
+            if (write(result, resourcesFile, wiresFile))
+                evict(dir);
+        } catch (Exception e) {
+            logger.logWarning("Unable to persist resolution cache entry " + key, e);
+            IO.delete(resourcesFile);
+            IO.delete(wiresFile);
+        }
+    }
+
+    public synchronized void clear() {
+        memory.clear();
+        File dir = getCacheDir();
+        if (dir != null)
+            IO.delete(dir);
+    }
+
+    private static File getCacheDir() {
+        Plugin plugin = Plugin.getDefault();
+        if (plugin == null)
+            return null;
+        return new File(plugin.getStateLocation().toFile(), "resolutionCache");
+    }
+
+    private static void evict(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        List<File> entries = new ArrayList<File>();
+        for (File file : files) {
+            if (file.getName().endsWith(WIRES_SUFFIX))
+                entries.add(file);
+        }
+        if (entries.size() <= MAX_DISK_ENTRIES)
+            return;
+        Collections.sort(entries, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (File wires : entries.subList(0, entries.size() - MAX_DISK_ENTRIES)) {
+            String name = wires.getName();
+            IO.delete(new File(dir, name.substring(0, name.length() - WIRES_SUFFIX.length()) + RESOURCES_SUFFIX));
+            IO.delete(wires);
+        }
+    }
+
+    /*
+     * On disk an entry consists of an OSGi repository XML file holding every resource of the result, and a text file
+     * listing the wires. Resources are referenced by their identity and version; requirements and capabilities by their
+     * position in the owning resource. Results that cannot be expressed this way are only kept in memory.
+     */
+
+    private static boolean write(ResolutionResult result, File resourcesFile, File wiresFile) throws Exception {
+        Map<Resource,String> ids = new LinkedHashMap<Resource,String>();
+        collect(result.getResourceWirings(), ids);
+        collect(result.getOptionalResources(), ids);
+        if (ids.values().size() != new TreeSet<String>(ids.values()).size())
+            return false; // ambiguous identities
+
+        List<String> lines = new ArrayList<String>();
+        if (!encode("required", result.getResourceWirings(), ids, lines) || !encode("optional", result.getOptionalResources(), ids, lines))
+            return false;
+
+        new XMLResourceGenerator().name("resolution").resources(ids.keySet()).save(resourcesFile);
+        try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(wiresFile.toPath(), StandardCharsets.UTF_8))) {
+            for (String line : lines)
+                pw.println(line);
+        }
+        return true;
+    }
+
+    private static void collect(Map<Resource,List<Wire>> wirings, Map<Resource,String> ids) {
+        if (wirings == null)
+            return;
+        for (Entry<Resource,List<Wire>> entry : wirings.entrySet()) {
+            addId(entry.getKey(), ids);
+            for (Wire wire : entry.getValue()) {
+                addId(wire.getRequirement().getResource(), ids);
+                addId(wire.getCapability().getResource(), ids);
+            }
+        }
+    }
+
+    private static void addId(Resource resource, Map<Resource,String> ids) {
+        if (!ids.containsKey(resource)) {
+            Capability identity = ResourceUtils.getIdentityCapability(resource);
+            ids.put(resource, ResourceUtils.getIdentity(identity) + ";" + ResourceUtils.getVersion(identity));
+        }
+    }
+
+    private static boolean encode(String section, Map<Resource,List<Wire>> wirings, Map<Resource,String> ids, List<String> lines) {
+        if (wirings == null)
+            return true;
+        for (Entry<Resource,List<Wire>> entry : wirings.entrySet()) {
+            lines.add(section + "\t" + ids.get(entry.getKey()));
+            for (Wire wire : entry.getValue()) {
+                Resource requirer = wire.getRequirement().getResource();
+                Resource provider = wire.getCapability().getResource();
+                int req = requirer.getRequirements(null).indexOf(wire.getRequirement());
+                int cap = provider.getCapabilities(null).indexOf(wire.getCapability());
+                if (req < 0 || cap < 0)
+                    return false;
+                lines.add("wire\t" + ids.get(requirer) + "\t" + req + "\t" + ids.get(provider) + "\t" + cap);
+            }
+        }
+        return true;
+    }
+
+    private static ResolutionResult read(File resourcesFile, File wiresFile) throws Exception {
+        Map<String,Resource> resources = new HashMap<String,Resource>();
+        for (Resource resource : XMLResourceParser.getResources(resourcesFile)) {
+            Capability identity = ResourceUtils.getIdentityCapability(resource);
+            resources.put(ResourceUtils.getIdentity(identity) + ";" + ResourceUtils.getVersion(identity), resource);
+        }
+
+        Map<Resource,List<Wire>> required = new HashMap<Resource,List<Wire>>();
+        Map<Resource,List<Wire>> optional = new HashMap<Resource,List<Wire>>();
+        List<Wire> current = null;
+        try (BufferedReader reader = Files.newBufferedReader(wiresFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if ("wire".equals(parts[0]) && current != null) {
+                    Requirement requirement = resource(resources, parts[1]).getRequirements(null).get(Integer.parseInt(parts[2]));
+                    Capability capability = resource(resources, parts[3]).getCapabilities(null).get(Integer.parseInt(parts[4]));
+                    current.add(new CachedWire(requirement, capability));
+                } else if ("required".equals(parts[0]) || "optional".equals(parts[0])) {
+                    current = new ArrayList<Wire>();
+                    ("required".equals(parts[0]) ? required : optional).put(resource(resources, parts[1]), current);
+                } else {
+                    throw new IOException("Malformed resolution cache entry: " + line);
+                }
+            }
+        }
+
+        MultiStatus status = new MultiStatus(Plugin.PLUGIN_ID, 0, Messages.ResolveOperation_errorOverview, null);
+        return new ResolutionResult(Outcome.Resolved, required, optional, null, status, "Resolution result restored from cache " + wiresFile.getName());
+    }
+
+    private static Resource resource(Map<String,Resource> resources, String id) throws IOException {
+        Resource resource = resources.get(id);
+        if (resource == null)
+            throw new IOException("Resolution cache entry refers to unknown resource " + id);
+        return resource;
+    }
+
+    private static final class CachedWire implements Wire {
+        private final Requirement requirement;
+        private final Capability capability;
+
+        CachedWire(Requirement requirement, Capability capability) {
+            this.requirement = requirement;
+            this.capability = capability;
+        }
+
+        @Override
+        public Capability getCapability() {
+            return capability;
+        }
+
+        @Override
+        public Requirement getRequirement() {
+            return requirement;
+        }
+
+        @Override
+        public Resource getProvider() {
+            return capability.getResource();
+        }
+
+        @Override
+        public Resource getRequirer() {
+            return requirement.getResource();
+        }
+
+        @Override
+        public String toString() {
+            return requirement + " -> " + capability;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package org.bndtools.core.resolve;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+import org.bndtools.api.ILogger;
+import org.bndtools.api.Logger;
+
+import aQute.lib.io.IO;
+
+/**
+ * A resolver log that is streamed to disk instead of being held in memory. Lines are appended to a sequence of segment
+ * files; when the total exceeds {@link #MAX_SEGMENTS} segments the oldest segment is deleted. Only the last
+ * {@link #TAIL_LINES} lines are kept in memory. Lines are numbered from zero in the order they were written, so a
+ * viewer can page through the log with {@link #readLines(long, int)} or locate matches with
+ * {@link #search(String, int)} without ever loading the whole log.
+ */
+public class ResolutionLog implements AutoCloseable {
+    private static final ILogger logger = Logger.getLogger(ResolutionLog.class);
+
+    public static final int TAIL_LINES = 1000;
+    static final int SEGMENT_LINES = 20000;
+    static final int MAX_SEGMENTS = 50;
+
+    private final File dir;
+    private final Deque<Segment> segments = new ArrayDeque<Segment>();
+    private final Deque<String> tail = new ArrayDeque<String>(TAIL_LINES);
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+    private BufferedWriter writer;
+    private long lineCount;
+    private boolean closed;
+
+    private static final class Segment {
+        final File file;
+        final long firstLine;
+        int lines;
+
+        Segment(File file, long firstLine) {
+            this.file = file;
+            this.firstLine = firstLine;
+        }
+    }
+
+    public static class Match {
+        private final long line;
+        private final String text;
+
+        Match(long line, String text) {
+            this.line = line;
+            this.text = text;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    public ResolutionLog() throws IOException {
+        dir = Files.createTempDirectory("bndtools-resolve").toFile();
+        dir.deleteOnExit();
+    }
+
+    /**
+     * @return A stream that appends to this log; bytes are split into lines on <code>'\n'</code> and decoded as UTF-8.
+     */
+    public OutputStream getOutputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                synchronized (ResolutionLog.this) {
+                    if (b == '\n') {
+                        flushPending();
+                    } else {
+                        pending.write(b);
+                    }
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                synchronized (ResolutionLog.this) {
+                    if (writer != null)
+                        writer.flush();
+                }
+            }
+        };
+    }
+
+    private void flushPending() throws IOException {
+        String line = new String(pending.toByteArray(), StandardCharsets.UTF_8);
+        pending.reset();
+        if (line.endsWith("\r"))
+            line = line.substring(0, line.length() - 1);
+        append(line);
+    }
+
+    public synchronized void append(String line) throws IOException {
+        if (closed)
+            return;
+
+        Segment segment = segments.peekLast();
+        if (segment == null || segment.lines >= SEGMENT_LINES) {
+            if (writer != null)
+                IO.close(writer);
+            segment = new Segment(new File(dir, "segment-" + lineCount + ".log"), lineCount);
+            segment.file.deleteOnExit();
+            segments.addLast(segment);
+            writer = Files.newBufferedWriter(segment.file.toPath(), StandardCharsets.UTF_8);
+            if (segments.size() > MAX_SEGMENTS)
+                IO.delete(segments.removeFirst().file);
+        }
+        writer.write(line);
+        writer.newLine();
+        segment.lines++;
+        lineCount++;
+
+        if (tail.size() == TAIL_LINES)
+            tail.removeFirst();
+        tail.addLast(line);
+    }
+
+    public synchronized long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return The number of the oldest line still available; older lines were rotated out.
+     */
+    public synchronized long getFirstAvailableLine() {
+        Segment first = segments.peekFirst();
+        return first != null ? first.firstLine : lineCount;
+    }
+
+    public synchronized List<String> getTail() {
+        return new ArrayList<String>(tail);
+    }
+
+    /**
+     * Read up to <code>count</code> lines starting at line <code>from</code>. Lines that were rotated out are skipped.
+     */
+    public synchronized List<String> readLines(long from, int count) throws IOException {
+        long tailStart = lineCount - tail.size();
+        if (from >= tailStart) {
+            List<String> lines = new ArrayList<String>(tail);
+            int start = (int) (from - tailStart);
+            return new ArrayList<String>(lines.subList(Math.min(start, lines.size()), Math.min(start + count, lines.size())));
+        }
+
+        flushWriter();
+        List<String> result = new ArrayList<String>(count);
+        long line = Math.max(from, getFirstAvailableLine());
+        for (Segment segment : segments) {
+            if (result.size() >= count)
+                break;
+            if (segment.firstLine + segment.lines <= line)
+                continue;
+            try (BufferedReader reader = Files.newBufferedReader(segment.file.toPath(), StandardCharsets.UTF_8)) {
+                for (long skip = line - segment.firstLine; skip > 0; skip--)
+                    reader.readLine();
+                String text;
+                while (result.size() < count && (text = reader.readLine()) != null) {
+                    result.add(text);
+                    line++;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find lines containing <code>text</code> (case insensitive), streaming through the segments on disk. The log is
+     * not locked while the segments are read, so readers of other lines are not blocked by a long search.
+     */
+    public List<Match> search(String text, int maxMatches) throws IOException {
+        if (text == null || text.isEmpty())
+            return Collections.emptyList();
+        List<Segment> snapshot;
+        synchronized (this) {
+            flushWriter();
+            snapshot = new ArrayList<Segment>(segments);
+        }
+        String needle = text.toLowerCase();
+        List<Match> matches = new ArrayList<Match>();
+        for (Segment segment : snapshot) {
+            if (!segment.file.isFile())
+                continue; // rotated out or disposed
+            long line = segment.firstLine;
+            try (BufferedReader reader = Files.newBufferedReader(segment.file.toPath(), StandardCharsets.UTF_8)) {
+                String current;
+                while ((current = reader.readLine()) != null) {
+                    if (current.toLowerCase().contains(needle)) {
+                        matches.add(new Match(line, current));
+                        if (matches.size() >= maxMatches)
+                            return matches;
+                    }
+                    line++;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private void flushWriter() throws IOException {
+        if (writer != null)
+            writer.flush();
+    }
+
+    /**
+     * Stop accepting lines; the content stays readable until {@link #dispose()}.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed)
+            return;
+        try {
+            if (pending.size() > 0)
+                flushPending();
+        } catch (IOException e) {
+            logger.logWarning("Unable to write resolver log", e);
+        }
+        closed = true;
+        if (writer != null)
+            IO.close(writer);
+        writer = null;
+    }
+
+    /**
+     * Close the log and delete its files.
+     */
+    public synchronized void dispose() {
+        close();
+        for (Segment segment : segments)
+            IO.delete(segment.file);
+        segments.clear();
+        IO.delete(dir);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        if (lineCount > tail.size())
+            sb.append("... ").append(lineCount - tail.size()).append(" earlier lines omitted ...\n");
+        for (String line : tail)
+            sb.append(line).append('\n');
+        return sb.toString();
+    }
+}
@@ -15,6 +15,7 @@ public class ResolutionResult {
     private final Map<Resource,List<Wire>> optionalResources;
     private final IStatus status;
     private final String log;
+    private final ResolutionLog resolutionLog;
     private final ResolutionException resolutionException;
 
     public static enum Outcome {
@@ -22,12 +23,21 @@ public class ResolutionResult {
     }
 
     public ResolutionResult(Outcome outcome, Map<Resource,List<Wire>> resourceWirings, Map<Resource,List<Wire>> optionalResources, ResolutionException resolutionExceptoin, IStatus status, String log) {
+        this(outcome, resourceWirings, optionalResources, resolutionExceptoin, status, log, null);
+    }
+
+    public ResolutionResult(Outcome outcome, Map<Resource,List<Wire>> resourceWirings, Map<Resource,List<Wire>> optionalResources, ResolutionException resolutionExceptoin, IStatus status, ResolutionLog resolutionLog) {
+        this(outcome, resourceWirings, optionalResources, resolutionExceptoin, status, null, resolutionLog);
+    }
+
+    private ResolutionResult(Outcome outcome, Map<Resource,List<Wire>> resourceWirings, Map<Resource,List<Wire>> optionalResources, ResolutionException resolutionExceptoin, IStatus status, String log, ResolutionLog resolutionLog) {
         this.outcome = outcome;
         this.resourceWirings = resourceWirings;
         this.optionalResources = optionalResources;
         this.resolutionException = resolutionExceptoin;
         this.status = status;
         this.log = log;
+        this.resolutionLog = resolutionLog;
     }
 
     public Outcome getOutcome() {
@@ -50,8 +60,40 @@ public class ResolutionResult {
         return status;
     }
 
+    /**
+     * @return The log text. For streamed logs only the in-memory tail is returned; use {@link #getResolutionLog()} to
+     *         page through or search the whole log.
+     */
     public String getLog() {
+        if (resolutionLog != null)
+            return resolutionLog.toString();
         return log;
     }
 
+    /**
+     * @return The streamed resolver log, or {@code null} if the log is only available as text.
+     */
+    public ResolutionLog getResolutionLog() {
+        return resolutionLog;
+    }
+
+    /**
+     * @return A copy of this result that keeps only the in-memory tail of the log, so it does not hold on to the log
+     *         files.
+     */
+    public ResolutionResult detachLog() {
+        if (resolutionLog == null)
+            return this;
+        return new ResolutionResult(outcome, resourceWirings, optionalResources, resolutionException, status, resolutionLog.toString(), null);
+    }
+
+    /**
+     * Delete the files of the streamed resolver log. The owner of a result, i.e. the wizard or job that shows or applies
+     * it, must dispose it when the result is replaced or no longer needed.
+     */
+    public void dispose() {
+        if (resolutionLog != null)
+            resolutionLog.dispose();
+    }
+
 }
@@ -0,0 +1,321 @@
+package org.bndtools.core.resolve;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.bndtools.api.ILogger;
+import org.bndtools.api.Logger;
+import org.bndtools.core.resolve.ResolutionResult.Outcome;
+import org.bndtools.utils.workspace.FileUtils;
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.ITextFileBuffer;
+import org.eclipse.core.filebuffers.ITextFileBufferManager;
+import org.eclipse.core.filebuffers.LocationKind;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+
+import aQute.bnd.build.Run;
+import aQute.bnd.build.Workspace;
+import aQute.bnd.build.model.BndEditModel;
+import aQute.bnd.header.Parameters;
+import aQute.bnd.osgi.Constants;
+import aQute.bnd.service.RepositoryPlugin;
+import bndtools.Plugin;
+import bndtools.central.Central;
+import bndtools.editor.model.IDocumentWrapper;
+
+/**
+ * Re-resolves every run descriptor in the workspace, e.g. after a repository update. Run descriptors are grouped by the
+ * repositories they resolve against; the repositories of a group are loaded once before the group's files are resolved,
+ * so all resolves of a group share the same in-memory repository indexes. The resolver works on the shared bnd
+ * workspace, so the run descriptors are loaded and resolved one after the other under the bnd lock; the results are
+ * written on a separate thread while the next file resolves. Each file gets its own status in the job result and its
+ * <code>-runbundles</code> are updated when it resolves. The update is applied through the file's text buffer, so an
+ * open editor shows it; files with unsaved changes are skipped.
+ */
+public class ResolveAllJob extends Job {
+    private static final ILogger logger = Logger.getLogger(ResolveAllJob.class);
+
+    private static final String BNDRUN_EXTENSION = "bndrun";
+    private static final String ALL_REPOSITORIES = "";
+
+    private final Map<IFile,IStatus> results = new ConcurrentHashMap<IFile,IStatus>();
+
+    public ResolveAllJob() {
+        super("Resolving all run descriptors");
+    }
+
+    /**
+     * @return The resolution status of every run descriptor that was resolved, keyed by file.
+     */
+    public Map<IFile,IStatus> getResults() {
+        return Collections.unmodifiableMap(results);
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        SubMonitor progress = SubMonitor.convert(monitor, 100);
+        MultiStatus status = new MultiStatus(Plugin.PLUGIN_ID, 0, "Resolving all run descriptors", null);
+
+        try {
+            Central.refreshDeferredRepositories();
+        } catch (Exception e) {
+            status.add(new Status(IStatus.WARNING, Plugin.PLUGIN_ID, 0, "Unable to refresh the repositories before resolving", e));
+        }
+
+        List<IFile> files;
+        final Workspace workspace;
+        try {
+            workspace = Central.getWorkspace();
+            files = findRunDescriptors();
+        } catch (Exception e) {
+            return new Status(IStatus.ERROR, Plugin.PLUGIN_ID, 0, "Unable to find run descriptors", e);
+        }
+        progress.worked(5);
+
+        // Load the models and group them by the repositories they use
+        Map<String,Map<IFile,BndEditModel>> groups = new LinkedHashMap<String,Map<IFile,BndEditModel>>();
+        SubMonitor loadProgress = progress.newChild(10).setWorkRemaining(files.size());
+        for (final IFile file : files) {
+            if (loadProgress.isCanceled())
+                return Status.CANCEL_STATUS;
+            if (isDirty(file)) {
+                status.add(dirtyStatus(file));
+                loadProgress.worked(1);
+                continue;
+            }
+            try {
+                BndEditModel model = Central.bndCall(new Callable<BndEditModel>() {
+                    @Override
+                    public BndEditModel call() throws Exception {
+                        return loadModel(workspace, file);
+                    }
+                }, loadProgress);
+                IStatus validation = ResolveJob.validate(model);
+                if (!validation.isOK()) {
+                    status.add(new Status(IStatus.WARNING, Plugin.PLUGIN_ID, 0, file.getFullPath() + ": " + validation.getMessage(), null));
+                } else {
+                    String key = model.getProperties().getProperty(Constants.RUNREPOS, ALL_REPOSITORIES);
+                    Map<IFile,BndEditModel> group = groups.get(key);
+                    if (group == null) {
+                        group = new LinkedHashMap<IFile,BndEditModel>();
+                        groups.put(key, group);
+                    }
+                    group.put(file, model);
+                }
+            } catch (CancellationException e) {
+                return Status.CANCEL_STATUS;
+            } catch (Exception e) {
+                status.add(new Status(IStatus.ERROR, Plugin.PLUGIN_ID, 0, file.getFullPath() + ": unable to load run descriptor", e));
+            }
+            loadProgress.worked(1);
+        }
+
+        int total = 0;
+        for (Map<IFile,BndEditModel> group : groups.values())
+            total += group.size();
+
+        SubMonitor resolveProgress = progress.newChild(85).setWorkRemaining(groups.size() + total);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        Map<IFile,Future<IStatus>> futures = new LinkedHashMap<IFile,Future<IStatus>>();
+        final Set<RepositoryPlugin> warmed = new HashSet<RepositoryPlugin>();
+        try {
+            resolving: for (final Entry<String,Map<IFile,BndEditModel>> group : groups.entrySet()) {
+                if (resolveProgress.isCanceled())
+                    break;
+                resolveProgress.subTask("Loading repositories " + (group.getKey().isEmpty() ? "(all)" : group.getKey()));
+                Central.bndCall(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        warmRepositories(workspace, group.getKey(), warmed);
+                        return null;
+                    }
+                }, resolveProgress);
+                resolveProgress.worked(1);
+
+                for (final Entry<IFile,BndEditModel> entry : group.getValue().entrySet()) {
+                    if (resolveProgress.isCanceled())
+                        break resolving;
+                    resolveProgress.subTask("Resolving " + entry.getKey().getFullPath());
+                    final SubMonitor fileProgress = resolveProgress.newChild(1);
+                    final ResolutionResult result = Central.bndCall(new Callable<ResolutionResult>() {
+                        @Override
+                        public ResolutionResult call() throws Exception {
+                            ResolveOperation operation = new ResolveOperation(entry.getValue());
+                            operation.run(fileProgress);
+                            return operation.getResult();
+                        }
+                    }, fileProgress);
+                    if (result.getOutcome() == Outcome.Cancelled) {
+                        result.dispose();
+                        break resolving;
+                    }
+                    futures.put(entry.getKey(), writer.submit(new Callable<IStatus>() {
+                        @Override
+                        public IStatus call() throws Exception {
+                            return complete(entry.getKey(), entry.getValue(), result);
+                        }
+                    }));
+                }
+            }
+        } catch (CancellationException e) {
+            // cancelled while waiting for the bnd lock; the results written so far are still collected
+        } catch (Exception e) {
+            status.add(new Status(IStatus.ERROR, Plugin.PLUGIN_ID, 0, "Resolving the run descriptors failed", e));
+        } finally {
+            writer.shutdown();
+        }
+
+        try {
+            for (Entry<IFile,Future<IStatus>> entry : futures.entrySet()) {
+                try {
+                    status.add(entry.getValue().get());
+                } catch (ExecutionException e) {
+                    status.add(new Status(IStatus.ERROR, Plugin.PLUGIN_ID, 0, entry.getKey().getFullPath() + ": resolution failed", e.getCause()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Status.CANCEL_STATUS;
+        }
+
+        if (monitor.isCanceled())
+            return Status.CANCEL_STATUS;
+        return status;
+    }
+
+    private IStatus complete(IFile file, BndEditModel model, ResolutionResult result) throws Exception {
+        try {
+            IStatus fileStatus;
+            if (result.getOutcome() != Outcome.Resolved) {
+                IStatus cause = result.getStatus();
+                String message = cause != null && cause.getChildren().length > 0 ? cause.getChildren()[0].getMessage() : result.getOutcome().toString();
+                fileStatus = new Status(IStatus.ERROR, Plugin.PLUGIN_ID, 0, file.getFullPath() + ": " + message, result.getResolutionException());
+            } else {
+                fileStatus = apply(file, model, result);
+            }
+            results.put(file, fileStatus);
+            return fileStatus;
+        } finally {
+            result.dispose();
+        }
+    }
+
+    /*
+     * Write the -runbundles through the text file buffer of the run
+     * descriptor. An editor that has the file open shares the buffer and
+     * shows the change; the buffer is changed in the synchronization
+     * context of the buffer manager, i.e. the display thread when an editor
+     * requested it.
+     */
+    private static IStatus apply(final IFile file, final BndEditModel model, final ResolutionResult result) throws CoreException {
+        ITextFileBufferManager manager = FileBuffers.getTextFileBufferManager();
+        final IPath path = file.getFullPath();
+        manager.connect(path, LocationKind.IFILE, null);
+        try {
+            final ITextFileBuffer buffer = manager.getTextFileBuffer(path, LocationKind.IFILE);
+            final IStatus[] status = new IStatus[1];
+            manager.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (buffer.isDirty()) {
+                        status[0] = dirtyStatus(file);
+                        return;
+                    }
+                    try {
+                        if (!RunBundlesWriter.applyResult(model, file, result)) {
+                            status[0] = new Status(IStatus.ERROR, Plugin.PLUGIN_ID, 0, path + ": unable to store resolution results into Run Bundles list", null);
+                            return;
+                        }
+                        model.saveChangesTo(new IDocumentWrapper(buffer.getDocument()));
+                        buffer.commit(null, false);
+                        status[0] = new Status(IStatus.OK, Plugin.PLUGIN_ID, 0, path + ": resolved " + result.getResourceWirings().size() + " bundles", null);
+                    } catch (CoreException e) {
+                        status[0] = new Status(IStatus.ERROR, Plugin.PLUGIN_ID, 0, path + ": unable to save resolution results", e);
+                    }
+                }
+            });
+            return status[0];
+        } finally {
+            manager.disconnect(path, LocationKind.IFILE, null);
+        }
+    }
+
+    private static boolean isDirty(IFile file) {
+        ITextFileBuffer buffer = FileBuffers.getTextFileBufferManager().getTextFileBuffer(file.getFullPath(), LocationKind.IFILE);
+        return buffer != null && buffer.isDirty();
+    }
+
+    private static IStatus dirtyStatus(IFile file) {
+        return new Status(IStatus.WARNING, Plugin.PLUGIN_ID, 0, file.getFullPath() + ": skipped because it has unsaved changes", null);
+    }
+
+    private static BndEditModel loadModel(Workspace workspace, IFile file) throws Exception {
+        File location = file.getLocation().toFile();
+        BndEditModel model = new BndEditModel(workspace);
+        model.setProject(Run.createRun(workspace, location));
+        model.loadFrom(new IDocumentWrapper(FileUtils.readFully(file)));
+        model.setBndResource(location);
+        return model;
+    }
+
+    /**
+     * Load the index of every repository used by a group once, before the resolves of the group query it.
+     */
+    private static void warmRepositories(Workspace workspace, String runrepos, Set<RepositoryPlugin> warmed) {
+        Set<String> names = runrepos.isEmpty() ? null : new Parameters(runrepos).keySet();
+        RepositoryPlugin workspaceRepo = workspace.getWorkspaceRepository();
+        for (RepositoryPlugin repo : workspace.getRepositories()) {
+            if (repo == workspaceRepo || (names != null && !names.contains(repo.getName())) || !warmed.add(repo))
+                continue;
+            try {
+                repo.list(null);
+            } catch (Exception e) {
+                logger.logWarning("Unable to load repository " + repo.getName(), e);
+            }
+        }
+    }
+
+    private static List<IFile> findRunDescriptors() throws CoreException {
+        final List<IFile> files = new ArrayList<IFile>();
+        ResourcesPlugin.getWorkspace().getRoot().accept(new IResourceProxyVisitor() {
+            @Override
+            public boolean visit(IResourceProxy proxy) throws CoreException {
+                if (proxy.isDerived())
+                    return false;
+                if (proxy.getType() == IResource.FILE) {
+                    if (proxy.getName().endsWith("." + BNDRUN_EXTENSION))
+                        files.add((IFile) proxy.requestResource());
+                    return false;
+                }
+                return true;
+            }
+        }, IResource.NONE);
+        return files;
+    }
+}
@@ -3,6 +3,8 @@ package org.bndtools.core.resolve;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.bndtools.api.ILogger;
+import org.bndtools.api.Logger;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -14,13 +16,16 @@ import aQute.bnd.osgi.Constants;
 import aQute.bnd.osgi.Processor;
 import biz.aQute.resolve.ResolutionCallback;
 import bndtools.Plugin;
+import bndtools.central.Central;
 
 public class ResolveJob extends Job {
+    private static final ILogger logger = Logger.getLogger(ResolveJob.class);
 
     private final BndEditModel model;
     private final List<ResolutionCallback> callbacks = new LinkedList<ResolutionCallback>();
 
     private ResolutionResult result;
+    private boolean incremental = true;
 
     public ResolveJob(BndEditModel model) {
         super("Resolving...");
@@ -28,6 +33,13 @@ public class ResolveJob extends Job {
     }
 
     public IStatus validateBeforeRun() {
+        return validate(model);
+    }
+
+    /**
+     * Check that the model specifies the framework and execution environment needed to resolve.
+     */
+    public static IStatus validate(BndEditModel model) {
         try {
 
             //
@@ -53,7 +65,15 @@ public class ResolveJob extends Job {
 
     @Override
     protected IStatus run(IProgressMonitor monitor) {
+        // the resolver queries the repositories, so do the refresh deferred at startup now
+        try {
+            Central.refreshDeferredRepositories();
+        } catch (Exception e) {
+            logger.logWarning("Unable to refresh the repositories before resolving", e);
+        }
+
         ResolveOperation operation = new ResolveOperation(model, callbacks);
+        operation.setIncremental(incremental);
         operation.run(monitor);
         result = operation.getResult();
 
@@ -64,6 +84,13 @@ public class ResolveJob extends Job {
         return result;
     }
 
+    /**
+     * @see ResolveOperation#setIncremental(boolean)
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
     public void addCallback(ResolutionCallback callback) {
         callbacks.add(callback);
     }
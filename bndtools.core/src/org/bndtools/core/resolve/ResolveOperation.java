@@ -1,11 +1,19 @@
 package org.bndtools.core.resolve;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+import org.bndtools.api.ILogger;
+import org.bndtools.api.Logger;
 import org.bndtools.core.resolve.ResolutionResult.Outcome;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -14,6 +22,8 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.jface.operation.IRunnableWithProgress;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
 import org.osgi.resource.Resource;
 import org.osgi.resource.Wire;
 import org.osgi.service.coordinator.Coordination;
@@ -21,6 +31,7 @@ import org.osgi.service.coordinator.Coordinator;
 import org.osgi.service.resolver.ResolutionException;
 
 import aQute.bnd.build.model.BndEditModel;
+import aQute.bnd.build.model.clauses.VersionedClause;
 import aQute.bnd.deployer.repository.ReporterLogService;
 import biz.aQute.resolve.BndResolver;
 import biz.aQute.resolve.ResolutionCallback;
@@ -29,11 +40,19 @@ import biz.aQute.resolve.ResolverLogger;
 import bndtools.Plugin;
 
 public class ResolveOperation implements IRunnableWithProgress {
+    private static final ILogger logger = Logger.getLogger(ResolveOperation.class);
+
+    /**
+     * Duration of the last full resolve per run descriptor, used to report the speed-up of incremental resolves. Until a
+     * descriptor is fully resolved, the duration of its first resolve in this session is the baseline.
+     */
+    private static final Map<File,Long> lastFullResolveMillis = new ConcurrentHashMap<File,Long>();
 
     private final BndEditModel model;
     private final List<ResolutionCallback> callbacks;
 
     private ResolutionResult result;
+    private boolean incremental = true;
 
     public ResolveOperation(BndEditModel model) {
         this(model, Collections.<ResolutionCallback> emptyList());
@@ -47,6 +66,88 @@ public class ResolveOperation implements IRunnableWithProgress {
     @Override
     public void run(IProgressMonitor monitor) {
 
+        // Reuse the previous result when neither the run properties nor the repositories changed
+        ResolutionCache cache = ResolutionCache.getInstance();
+        String cacheKey = null;
+        if (callbacks.isEmpty()) {
+            try {
+                cacheKey = cache.fingerprint(model);
+                ResolutionResult cached = incremental ? cache.get(cacheKey) : null;
+                if (cached != null) {
+                    result = cached;
+                    return;
+                }
+            } catch (Exception e) {
+                logger.logWarning("Unable to compute resolution cache key", e);
+            }
+        }
+
+        // The resolver does not take a monitor; a callback lets it notice a cancellation between requirements
+        List<ResolutionCallback> resolveCallbacks = callbacks;
+        if (monitor != null) {
+            resolveCallbacks = new ArrayList<ResolutionCallback>(callbacks.size() + 1);
+            resolveCallbacks.addAll(callbacks);
+            resolveCallbacks.add(new CancelCallback(monitor));
+        }
+
+        List<VersionedClause> previousRunBundles = model.getRunBundles();
+        if (incremental && previousRunBundles != null && !previousRunBundles.isEmpty()) {
+            PreferPreviousResolutionCallback seed = new PreferPreviousResolutionCallback(previousRunBundles);
+            List<ResolutionCallback> seededCallbacks = new ArrayList<ResolutionCallback>(resolveCallbacks.size() + 1);
+            seededCallbacks.add(seed);
+            seededCallbacks.addAll(resolveCallbacks);
+
+            long start = System.nanoTime();
+            result = resolve(seededCallbacks);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            if (result.getOutcome() == Outcome.Resolved) {
+                reportIncremental(seed, elapsed);
+                File bndResource = model.getBndResource();
+                if (bndResource != null)
+                    lastFullResolveMillis.putIfAbsent(bndResource, elapsed);
+                if (cacheKey != null)
+                    cache.put(cacheKey, result);
+                return;
+            }
+            if (result.getOutcome() == Outcome.Cancelled)
+                return;
+            result.dispose();
+            logger.logInfo(String.format("Incremental resolve of %s failed after %d ms; falling back to a full resolve", resourceName(), elapsed), null);
+        }
+
+        long start = System.nanoTime();
+        result = resolve(resolveCallbacks);
+        if (result.getOutcome() == Outcome.Resolved) {
+            File bndResource = model.getBndResource();
+            if (bndResource != null)
+                lastFullResolveMillis.put(bndResource, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            if (cacheKey != null)
+                cache.put(cacheKey, result);
+        }
+    }
+
+    private void reportIncremental(PreferPreviousResolutionCallback seed, long elapsed) {
+        File bndResource = model.getBndResource();
+        Long full = bndResource != null ? lastFullResolveMillis.get(bndResource) : null;
+        String message;
+        if (full != null && elapsed > 0) {
+            message = String.format("Incremental resolve of %s seeded with %d previous run bundles took %d ms (last full resolve %d ms, %.1fx faster)", resourceName(), seed.getPreferredCount(), elapsed, full,
+                    (double) full / elapsed);
+        } else {
+            message = String.format("Incremental resolve of %s seeded with %d previous run bundles took %d ms", resourceName(), seed.getPreferredCount(), elapsed);
+        }
+        ((MultiStatus) result.getStatus()).add(new Status(IStatus.INFO, Plugin.PLUGIN_ID, 0, message, null));
+        logger.logInfo(message, null);
+    }
+
+    private String resourceName() {
+        File bndResource = model.getBndResource();
+        return bndResource != null ? bndResource.getName() : "run descriptor";
+    }
+
+    private ResolutionResult resolve(List<ResolutionCallback> resolveCallbacks) {
+        ResolutionResult resolution;
         MultiStatus status = new MultiStatus(Plugin.PLUGIN_ID, 0, Messages.ResolveOperation_errorOverview, null);
 
         // Start a coordination
@@ -55,14 +156,26 @@ public class ResolveOperation implements IRunnableWithProgress {
         Coordinator coordinator = coordSvcRef != null ? (Coordinator) bc.getService(coordSvcRef) : null;
         Coordination coordination = coordinator != null ? coordinator.begin(ResolveOperation.class.getName(), 0) : null;
 
-        // Begin resolve
-        try (ResolverLogger logger = new ResolverLogger()) {
+        ResolutionLog resolutionLog;
+        PrintStream logStream;
+        try {
+            resolutionLog = new ResolutionLog();
+            logStream = new PrintStream(resolutionLog.getOutputStream(), true, "UTF-8");
+        } catch (IOException e) {
+            status.add(new Status(IStatus.ERROR, Plugin.PLUGIN_ID, 0, "Unable to create resolver log.", e));
+            if (coordinator != null)
+                bc.ungetService(coordSvcRef);
+            return new ResolutionResult(Outcome.Error, null, null, null, status, (String) null);
+        }
+
+        // Begin resolve; the log is streamed to disk rather than collected in memory
+        try (ResolverLogger resolverLogger = new ResolverLogger(ResolverLogger.DEFAULT_LEVEL, logStream)) {
             try {
                 ResolveProcess resolve = new ResolveProcess();
-                BndResolver bndResolver = new BndResolver(logger);
+                BndResolver bndResolver = new BndResolver(resolverLogger);
 
                 ReporterLogService log = new ReporterLogService(model.getWorkspace());
-                Map<Resource,List<Wire>> wirings = resolve.resolveRequired(model, model.getWorkspace(), bndResolver, callbacks, log);
+                Map<Resource,List<Wire>> wirings = resolve.resolveRequired(model, model.getWorkspace(), bndResolver, resolveCallbacks, log);
 
                 Map<Resource,List<Wire>> optionalResources = new HashMap<Resource,List<Wire>>(resolve.getOptionalResources().size());
 
@@ -70,23 +183,23 @@ public class ResolveOperation implements IRunnableWithProgress {
                     optionalResources.put(optional, new ArrayList<Wire>(resolve.getOptionalReasons(optional)));
                 }
 
-                result = new ResolutionResult(Outcome.Resolved, wirings, optionalResources, null, status, logger.getLog());
+                resolution = new ResolutionResult(Outcome.Resolved, wirings, optionalResources, null, status, resolutionLog);
                 if (coordination != null)
                     coordination.end();
             } catch (ResolveCancelledException e) {
-                result = new ResolutionResult(Outcome.Cancelled, null, null, null, status, logger.getLog());
+                resolution = new ResolutionResult(Outcome.Cancelled, null, null, null, status, resolutionLog);
 
                 if (coordination != null)
                     coordination.fail(e);
             } catch (ResolutionException e) {
                 status.add(new Status(IStatus.ERROR, Plugin.PLUGIN_ID, 0, e.getLocalizedMessage(), e));
-                result = new ResolutionResult(Outcome.Unresolved, null, null, e, status, logger.getLog());
+                resolution = new ResolutionResult(Outcome.Unresolved, null, null, e, status, resolutionLog);
 
                 if (coordination != null)
                     coordination.fail(e);
             } catch (Exception e) {
                 status.add(new Status(IStatus.ERROR, Plugin.PLUGIN_ID, 0, "Exception during resolution.", e));
-                result = new ResolutionResult(Outcome.Error, null, null, null, status, logger.getLog());
+                resolution = new ResolutionResult(Outcome.Error, null, null, null, status, resolutionLog);
 
                 if (coordination != null)
                     coordination.fail(e);
@@ -94,11 +207,36 @@ public class ResolveOperation implements IRunnableWithProgress {
                 if (coordinator != null)
                     bc.ungetService(coordSvcRef);
             }
+        } finally {
+            logStream.flush();
+            resolutionLog.close();
         }
+        return resolution;
+    }
+
+    /**
+     * Enable or disable seeding the resolver with the current <code>-runbundles</code>. Incremental resolves fall back to
+     * a full resolve when they fail. A full resolve also ignores cached results. Enabled by default.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
     }
 
     public ResolutionResult getResult() {
         return result;
     }
 
+    private static final class CancelCallback implements ResolutionCallback {
+        private final IProgressMonitor monitor;
+
+        CancelCallback(IProgressMonitor monitor) {
+            this.monitor = monitor;
+        }
+
+        @Override
+        public void processCandidates(Requirement requirement, Set<Capability> wired, List<Capability> candidates) {
+            if (monitor.isCanceled())
+                throw new ResolveCancelledException();
+        }
+    }
 }
@@ -1,14 +1,21 @@
 package org.bndtools.core.resolve.ui;
 
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
+import org.bndtools.core.resolve.ResolutionLog;
+import org.bndtools.core.resolve.ResolutionLog.Match;
 import org.bndtools.core.resolve.ResolutionResult;
 import org.bndtools.core.ui.resource.RequirementWithResourceLabelProvider;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.fieldassist.ControlDecoration;
 import org.eclipse.jface.fieldassist.FieldDecorationRegistry;
 import org.eclipse.jface.viewers.ITreeContentProvider;
@@ -18,6 +25,8 @@ import org.eclipse.swt.SWT;
 import org.eclipse.swt.dnd.Clipboard;
 import org.eclipse.swt.dnd.TextTransfer;
 import org.eclipse.swt.dnd.Transfer;
+import org.eclipse.swt.events.ModifyEvent;
+import org.eclipse.swt.events.ModifyListener;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.graphics.Image;
@@ -25,6 +34,11 @@ import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableItem;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.swt.widgets.ToolBar;
 import org.eclipse.swt.widgets.ToolItem;
@@ -50,6 +64,20 @@ public class ResolutionFailurePanel {
     private TreeViewer unresolvedViewer;
     private Section sectProcessingErrors;
     private Section sectUnresolved;
+    private Section sectLog;
+    private Text logSearchText;
+    private Table logTable;
+
+    private static final int LOG_PAGE_SIZE = 200;
+    private static final int LOG_MAX_MATCHES = 1000;
+
+    private ResolutionLog log;
+    private long logFirstLine;
+    private long logPageStart = -1;
+    private List<String> logPage = Collections.emptyList();
+    private List<Match> logMatches = Collections.emptyList();
+    private int logMatchIndex = -1;
+    private Job logSearchJob;
 
     private static final boolean failureTreeMode = true;
 
@@ -93,6 +121,163 @@ public class ResolutionFailurePanel {
         unresolvedViewer.setContentProvider(new UnresolvedRequirementsContentProvider());
         unresolvedViewer.setLabelProvider(new RequirementWithResourceLabelProvider());
         setFailureViewMode();
+
+        createLogSection(toolkit);
+    }
+
+    private void createLogSection(FormToolkit toolkit) {
+        sectLog = toolkit.createSection(composite, Section.TITLE_BAR | Section.TWISTIE);
+        sectLog.setText("Resolver Log:");
+
+        Composite logComposite = toolkit.createComposite(sectLog);
+        logComposite.setLayout(new GridLayout(1, false));
+        sectLog.setClient(logComposite);
+
+        logSearchText = toolkit.createText(logComposite, "", SWT.BORDER | SWT.SEARCH | SWT.ICON_SEARCH);
+        logSearchText.setMessage("Search log (Enter for next match)");
+        logSearchText.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+        logSearchText.addModifyListener(new ModifyListener() {
+            @Override
+            public void modifyText(ModifyEvent e) {
+                resetLogSearch();
+            }
+        });
+        logSearchText.addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetDefaultSelected(SelectionEvent e) {
+                showNextLogMatch();
+            }
+        });
+
+        // Virtual table: rows are only materialised, one page at a time, when they become visible
+        logTable = toolkit.createTable(logComposite, SWT.BORDER | SWT.VIRTUAL | SWT.FULL_SELECTION | SWT.H_SCROLL | SWT.V_SCROLL);
+        GridData gd = new GridData(SWT.FILL, SWT.FILL, true, true);
+        gd.heightHint = 200;
+        logTable.setLayoutData(gd);
+        logTable.addListener(SWT.SetData, new Listener() {
+            @Override
+            public void handleEvent(Event event) {
+                TableItem item = (TableItem) event.item;
+                item.setText(getLogLine(logTable.indexOf(item)));
+            }
+        });
+
+        gd = new GridData(SWT.FILL, SWT.FILL, true, false);
+        gd.widthHint = 600;
+        sectLog.setLayoutData(gd);
+    }
+
+    private String getLogLine(int index) {
+        if (log == null)
+            return "";
+        long line = logFirstLine + index;
+        if (line < logPageStart || line >= logPageStart + logPage.size()) {
+            logPageStart = line - (index % LOG_PAGE_SIZE);
+            try {
+                logPage = log.readLines(logPageStart, LOG_PAGE_SIZE);
+            } catch (IOException e) {
+                logPage = Collections.emptyList();
+                return "Unable to read resolver log: " + e.getMessage();
+            }
+        }
+        int offset = (int) (line - logPageStart);
+        return offset < logPage.size() ? logPage.get(offset) : "";
+    }
+
+    private void showNextLogMatch() {
+        if (log == null || logSearchJob != null)
+            return;
+        if (logMatchIndex < 0) {
+            searchLog(log, logSearchText.getText());
+            return;
+        }
+        selectNextLogMatch();
+    }
+
+    private void searchLog(ResolutionLog searchedLog, String text) {
+        logSearchJob = new LogSearchJob(searchedLog, text, logTable.getDisplay());
+        logSearchJob.schedule();
+    }
+
+    /*
+     * Searching streams through the log files on disk, which takes a while for large logs, so it runs in a job and the
+     * first match is selected when the search completes.
+     */
+    private class LogSearchJob extends Job {
+        private final ResolutionLog searchedLog;
+        private final String text;
+        private final Display display;
+
+        LogSearchJob(ResolutionLog searchedLog, String text, Display display) {
+            super("Searching resolver log");
+            this.searchedLog = searchedLog;
+            this.text = text;
+            this.display = display;
+            setSystem(true);
+        }
+
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            List<Match> matches;
+            try {
+                matches = searchedLog.search(text, LOG_MAX_MATCHES);
+            } catch (IOException e) {
+                matches = Collections.emptyList();
+            }
+            if (monitor.isCanceled() || display.isDisposed())
+                return Status.CANCEL_STATUS;
+
+            final List<Match> found = matches;
+            display.asyncExec(new Runnable() {
+                @Override
+                public void run() {
+                    if (logTable.isDisposed() || logSearchJob != LogSearchJob.this)
+                        return;
+                    logSearchJob = null;
+                    logMatches = found;
+                    logMatchIndex = -1;
+                    selectNextLogMatch();
+                }
+            });
+            return Status.OK_STATUS;
+        }
+    }
+
+    private void selectNextLogMatch() {
+        if (logMatches.isEmpty()) {
+            logTable.getDisplay().beep();
+            return;
+        }
+        logMatchIndex = (logMatchIndex + 1) % logMatches.size();
+        int row = (int) (logMatches.get(logMatchIndex).getLine() - logFirstLine);
+        if (row >= 0 && row < logTable.getItemCount()) {
+            logTable.setSelection(row);
+            logTable.showSelection();
+        }
+    }
+
+    private void resetLogSearch() {
+        if (logSearchJob != null) {
+            logSearchJob.cancel();
+            logSearchJob = null;
+        }
+        logMatches = Collections.emptyList();
+        logMatchIndex = -1;
+    }
+
+    private void setLogInput(ResolutionLog resolutionLog) {
+        resetLogSearch();
+        log = resolutionLog;
+        logPageStart = -1;
+        logPage = Collections.emptyList();
+        if (log != null) {
+            logFirstLine = log.getFirstAvailableLine();
+            logTable.setItemCount((int) Math.min(Integer.MAX_VALUE, log.getLineCount() - logFirstLine));
+        } else {
+            logFirstLine = 0;
+            logTable.setItemCount(0);
+        }
+        logTable.clearAll();
     }
 
     public Control getControl() {
@@ -135,6 +320,8 @@ public class ResolutionFailurePanel {
         //
         unresolvedViewer.setInput(unresolved);
         unresolvedViewer.expandToLevel(2);
+
+        setLogInput(resolutionResult.getResolutionLog());
     }
 
     private static String formatFailureStatus(IStatus status, boolean exceptions, String indent) {
@@ -169,6 +356,7 @@ public class ResolutionFailurePanel {
     }
 
     public void dispose() {
+        resetLogSearch();
         clipboardImg.dispose();
         treeViewImg.dispose();
         flatViewImg.dispose();
@@ -67,10 +67,15 @@ public class ResolutionResultsWizardPage extends WizardPage implements Resolutio
         return result;
     }
 
+    /**
+     * Set the result to show. The page owns the result and disposes it when it is replaced or the page is disposed.
+     */
     public void setResult(ResolutionResult result) {
         ResolutionResult oldValue = this.result;
         this.result = result;
         propertySupport.firePropertyChange(PROP_RESULT, oldValue, result);
+        if (oldValue != null && oldValue != result)
+            oldValue.dispose();
         if (getControl() != null && !getControl().isDisposed())
             updateUi();
     }
@@ -141,6 +146,8 @@ public class ResolutionResultsWizardPage extends WizardPage implements Resolutio
 
         resolutionFailurePanel.dispose();
         resolutionSuccessPanel.dispose();
+        if (result != null)
+            result.dispose();
 
     }
 
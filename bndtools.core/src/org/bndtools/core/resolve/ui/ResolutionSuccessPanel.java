@@ -22,6 +22,8 @@ import org.eclipse.jface.viewers.ISelectionChangedListener;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.SelectionChangedEvent;
 import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.jface.viewers.TreePath;
+import org.eclipse.jface.viewers.TreeSelection;
 import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.SashForm;
@@ -36,6 +38,8 @@ import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Table;
 import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.swt.widgets.ToolBar;
+import org.eclipse.swt.widgets.ToolItem;
 import org.eclipse.swt.widgets.Tree;
 import org.eclipse.ui.forms.widgets.FormToolkit;
 import org.eclipse.ui.forms.widgets.Section;
@@ -67,8 +71,11 @@ public class ResolutionSuccessPanel {
     private TableViewer requiredViewer;
     private CheckboxTableViewer optionalViewer;
     private TreeViewer reasonsViewer;
+    private ToolItem btnWhyIncluded;
     private Button btnAddResolveOptional;
     private ResolutionResult result;
+    private ResolutionWiringIndex wiringIndex;
+    private ResolutionWiringIndex combinedWiringIndex;
     private Section sectOptional;
 
     public ResolutionSuccessPanel(BndEditModel model, ResolutionResultPresenter presenter) {
@@ -112,11 +119,9 @@ public class ResolutionSuccessPanel {
                 Resource resource = (Resource) sel.getFirstElement();
 
                 reasonsContentProvider.setOptional(false);
-                if (result != null)
-                    reasonsContentProvider.setResolution(result.getResourceWirings());
+                reasonsContentProvider.setIndex(getWiringIndex());
 
-                reasonsViewer.setInput(resource);
-                reasonsViewer.expandToLevel(2);
+                setReasonsInput(resource);
             }
         });
 
@@ -223,7 +228,20 @@ public class ResolutionSuccessPanel {
         Section sectReason = toolkit.createSection(form, Section.TITLE_BAR | Section.TWISTIE | Section.EXPANDED);
         sectReason.setText("Reasons");
 
-        Tree tblReasons = new Tree(sectReason, SWT.BORDER | SWT.FULL_SELECTION | SWT.H_SCROLL | SWT.V_SCROLL);
+        ToolBar reasonsToolbar = new ToolBar(sectReason, SWT.FLAT);
+        sectReason.setTextClient(reasonsToolbar);
+        btnWhyIncluded = new ToolItem(reasonsToolbar, SWT.PUSH);
+        btnWhyIncluded.setText("Why is this here?");
+        btnWhyIncluded.setToolTipText("Show the shortest chain of requirements that pulls the selected resource into the resolution");
+        btnWhyIncluded.setEnabled(false);
+        btnWhyIncluded.addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent e) {
+                showInclusionPath();
+            }
+        });
+
+        Tree tblReasons = new Tree(sectReason, SWT.VIRTUAL | SWT.BORDER | SWT.FULL_SELECTION | SWT.H_SCROLL | SWT.V_SCROLL);
         sectReason.setClient(tblReasons);
 
         gd = new GridData(SWT.FILL, SWT.FILL, true, true);
@@ -232,6 +250,7 @@ public class ResolutionSuccessPanel {
         sectReason.setLayoutData(gd);
 
         reasonsViewer = new TreeViewer(tblReasons);
+        reasonsViewer.setUseHashlookup(true);
         reasonsViewer.setContentProvider(reasonsContentProvider);
         reasonsViewer.setLabelProvider(new ResolutionTreeLabelProvider());
     }
@@ -269,6 +288,8 @@ public class ResolutionSuccessPanel {
 
     public void setInput(ResolutionResult result) {
         this.result = result;
+        wiringIndex = null;
+        combinedWiringIndex = null;
         checkedOptional.clear();
 
         Set<Resource> wirings = (result != null && result.getResourceWirings() != null) ? result.getResourceWirings().keySet() : null;
@@ -326,14 +347,51 @@ public class ResolutionSuccessPanel {
 
     private void doOptionalReasonUpdate(Resource resource) {
         reasonsContentProvider.setOptional(true);
-        if (result != null) {
-            Map<Resource,List<Wire>> combined = new HashMap<Resource,List<Wire>>(result.getResourceWirings());
-            combined.putAll(result.getOptionalResources());
-            reasonsContentProvider.setResolution(combined);
+        reasonsContentProvider.setIndex(getCombinedWiringIndex());
+
+        setReasonsInput(resource);
+    }
+
+    /**
+     * @return The wiring of the required resources, grouped for display. The index is built on first use.
+     */
+    private ResolutionWiringIndex getWiringIndex() {
+        if (wiringIndex == null && result != null)
+            wiringIndex = new ResolutionWiringIndex(result.getResourceWirings());
+        return wiringIndex;
+    }
+
+    /**
+     * @return The wiring of both the required and the optional resources, grouped for display. The index is built on
+     *         first use.
+     */
+    private ResolutionWiringIndex getCombinedWiringIndex() {
+        if (combinedWiringIndex == null && result != null) {
+            Map<Resource,List<Wire>> combined = new HashMap<Resource,List<Wire>>();
+            if (result.getResourceWirings() != null)
+                combined.putAll(result.getResourceWirings());
+            if (result.getOptionalResources() != null)
+                combined.putAll(result.getOptionalResources());
+            combinedWiringIndex = new ResolutionWiringIndex(combined);
         }
+        return combinedWiringIndex;
+    }
 
+    private void setReasonsInput(Resource resource) {
         reasonsViewer.setInput(resource);
         reasonsViewer.expandToLevel(2);
+        btnWhyIncluded.setEnabled(resource != null && reasonsContentProvider.getIndex().hasCapabilityGroups(resource));
+    }
+
+    private void showInclusionPath() {
+        Object input = reasonsViewer.getInput();
+        if (!(input instanceof Resource))
+            return;
+
+        List<Object> path = reasonsContentProvider.getIndex().findInclusionPath((Resource) input);
+        if (path.isEmpty())
+            return;
+        reasonsViewer.setSelection(new TreeSelection(new TreePath(path.toArray())), true);
     }
 
     private static Requirement resourceToRequirement(Resource resource) {
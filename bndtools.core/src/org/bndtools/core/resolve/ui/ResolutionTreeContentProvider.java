@@ -1,30 +1,39 @@
 package org.bndtools.core.resolve.ui;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.jface.viewers.ITreePathContentProvider;
+import org.eclipse.jface.viewers.TreePath;
 import org.eclipse.jface.viewers.Viewer;
-import org.osgi.resource.Capability;
 import org.osgi.resource.Requirement;
 import org.osgi.resource.Resource;
 import org.osgi.resource.Wire;
 
-public class ResolutionTreeContentProvider implements ITreeContentProvider {
+/**
+ * The reasons tree. The same capability group or requirement appears wherever a resource is reached through different
+ * wires, so the tree is addressed by path rather than by element.
+ */
+public class ResolutionTreeContentProvider implements ITreePathContentProvider {
 
     @SuppressWarnings("unused")
     private boolean optional;
-    private Map<Resource,List<Wire>> resolution;
+    private ResolutionWiringIndex index = new ResolutionWiringIndex(null);
 
     public void setOptional(boolean optional) {
         this.optional = optional;
     }
 
     public void setResolution(Map<Resource,List<Wire>> resolution) {
-        this.resolution = resolution;
+        setIndex(new ResolutionWiringIndex(resolution));
+    }
+
+    public void setIndex(ResolutionWiringIndex index) {
+        this.index = index != null ? index : new ResolutionWiringIndex(null);
+    }
+
+    public ResolutionWiringIndex getIndex() {
+        return index;
     }
 
     @Override
@@ -36,26 +45,29 @@ public class ResolutionTreeContentProvider implements ITreeContentProvider {
     }
 
     @Override
-    public Object[] getChildren(Object parent) {
-        Object[] result;
+    public Object[] getChildren(TreePath parentPath) {
+        return getChildren(parentPath.getLastSegment());
+    }
 
-        if (parent instanceof Resource) {
-            Resource parentResource = (Resource) parent;
+    @Override
+    public boolean hasChildren(TreePath path) {
+        return hasChildren(path.getLastSegment());
+    }
 
-            Map<Capability,ResolutionTreeItem> items = new HashMap<Capability,ResolutionTreeItem>();
-            List<Wire> wires = resolution.get(parentResource);
-            processWires(wires, items);
+    @Override
+    public TreePath[] getParents(Object element) {
+        return new TreePath[0];
+    }
 
-            result = items.values().toArray();
+    private Object[] getChildren(Object parent) {
+        Object[] result;
+
+        if (parent instanceof Resource) {
+            result = index.getCapabilityGroups((Resource) parent);
         } else if (parent instanceof Requirement) {
-            result = getChildren(((Requirement) parent).getResource());
+            result = index.getCapabilityGroups(((Requirement) parent).getResource());
         } else if (parent instanceof ResolutionTreeItem) {
-            ResolutionTreeItem item = (ResolutionTreeItem) parent;
-            List<Wire> wires = item.getWires();
-            List<Requirement> reqs = new ArrayList<Requirement>();
-            for (Wire wire : wires)
-                reqs.add(wire.getRequirement());
-            result = reqs.toArray();
+            result = ((ResolutionTreeItem) parent).getRequirements().toArray();
         } else {
             result = null;
         }
@@ -63,27 +75,14 @@ public class ResolutionTreeContentProvider implements ITreeContentProvider {
         return result;
     }
 
-    private static void processWires(Collection<Wire> wires, Map<Capability,ResolutionTreeItem> items) {
-        if (wires != null) {
-            for (Wire wire : wires) {
-                ResolutionTreeItem item = items.get(wire.getCapability());
-                if (item == null) {
-                    item = new ResolutionTreeItem(wire.getCapability());
-                    items.put(wire.getCapability(), item);
-                }
-                item.addWire(wire);
-            }
-        }
-    }
-
-    @Override
-    public Object getParent(Object object) {
-        return null;
-    }
-
-    @Override
-    public boolean hasChildren(Object object) {
-        return true;
+    private boolean hasChildren(Object object) {
+        if (object instanceof Resource)
+            return index.hasCapabilityGroups((Resource) object);
+        if (object instanceof Requirement)
+            return index.hasCapabilityGroups(((Requirement) object).getResource());
+        if (object instanceof ResolutionTreeItem)
+            return !((ResolutionTreeItem) object).getRequirements().isEmpty();
+        return false;
     }
 
     @Override
@@ -1,16 +1,18 @@
 package org.bndtools.core.resolve.ui;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
 import org.osgi.resource.Wire;
 
 public class ResolutionTreeItem {
 
     private final Capability capability;
-    private final List<Wire> wires = new LinkedList<Wire>();
+    private final List<Wire> wires = new ArrayList<Wire>();
+    private final List<Requirement> requirements = new ArrayList<Requirement>();
 
     public ResolutionTreeItem(Capability capability) {
         this.capability = capability;
@@ -22,10 +24,15 @@ public class ResolutionTreeItem {
 
     public void addWire(Wire wire) {
         wires.add(wire);
+        requirements.add(wire.getRequirement());
     }
 
     public List<Wire> getWires() {
         return Collections.unmodifiableList(wires);
     }
 
+    public List<Requirement> getRequirements() {
+        return Collections.unmodifiableList(requirements);
+    }
+
 }
@@ -0,0 +1,133 @@
+package org.bndtools.core.resolve.ui;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+import org.osgi.resource.Wire;
+
+/**
+ * The wiring of a resolution, grouped once so that the reasons tree never has to regroup wires while it is expanded.
+ * Each resolved resource maps to its capabilities that other resources are wired to; each capability group holds the
+ * requirements wired to it. Since the groups hold the wires <em>into</em> a resource, the index is also the reverse
+ * index used to answer why a resource is part of the resolution.
+ */
+public class ResolutionWiringIndex {
+
+    private static final ResolutionTreeItem[] NO_ITEMS = new ResolutionTreeItem[0];
+
+    private static final Comparator<ResolutionTreeItem> ITEM_ORDER = new Comparator<ResolutionTreeItem>() {
+        @Override
+        public int compare(ResolutionTreeItem o1, ResolutionTreeItem o2) {
+            Capability c1 = o1.getCapability();
+            Capability c2 = o2.getCapability();
+            int diff = c1.getNamespace().compareTo(c2.getNamespace());
+            if (diff != 0)
+                return diff;
+            return String.valueOf(c1.getAttributes().get(c1.getNamespace())).compareTo(String.valueOf(c2.getAttributes().get(c2.getNamespace())));
+        }
+    };
+
+    private final Map<Resource,ResolutionTreeItem[]> groups;
+
+    public ResolutionWiringIndex(Map<Resource,List<Wire>> wirings) {
+        groups = new HashMap<Resource,ResolutionTreeItem[]>(wirings != null ? wirings.size() * 2 : 16);
+        if (wirings == null)
+            return;
+
+        for (Entry<Resource,List<Wire>> entry : wirings.entrySet()) {
+            List<Wire> wires = entry.getValue();
+            if (wires == null || wires.isEmpty())
+                continue;
+            Map<Capability,ResolutionTreeItem> items = new LinkedHashMap<Capability,ResolutionTreeItem>();
+            for (Wire wire : wires) {
+                ResolutionTreeItem item = items.get(wire.getCapability());
+                if (item == null) {
+                    item = new ResolutionTreeItem(wire.getCapability());
+                    items.put(wire.getCapability(), item);
+                }
+                item.addWire(wire);
+            }
+            ResolutionTreeItem[] array = items.values().toArray(new ResolutionTreeItem[items.size()]);
+            Arrays.sort(array, ITEM_ORDER);
+            groups.put(entry.getKey(), array);
+        }
+    }
+
+    /**
+     * @return The capabilities of the resource that other resources are wired to, grouped with the wires to each.
+     */
+    public ResolutionTreeItem[] getCapabilityGroups(Resource resource) {
+        ResolutionTreeItem[] items = groups.get(resource);
+        return items != null ? items : NO_ITEMS;
+    }
+
+    public boolean hasCapabilityGroups(Resource resource) {
+        return groups.containsKey(resource);
+    }
+
+    /**
+     * Find the shortest chain of wires explaining why a resource is part of the resolution. The chain is returned as a
+     * path through the reasons tree below the resource: a capability group of the resource, the requirement wired to it,
+     * a capability group of the requiring resource, and so on until a requirement of a resource outside the resolution
+     * (typically the run requirements) is reached.
+     *
+     * @return The tree path elements, or an empty list if no such chain exists.
+     */
+    public List<Object> findInclusionPath(Resource resource) {
+        Map<Resource,Step> visited = new HashMap<Resource,Step>();
+        Deque<Resource> queue = new ArrayDeque<Resource>();
+        visited.put(resource, null);
+        queue.add(resource);
+
+        while (!queue.isEmpty()) {
+            Resource current = queue.removeFirst();
+            for (ResolutionTreeItem item : getCapabilityGroups(current)) {
+                for (Requirement requirement : item.getRequirements()) {
+                    Resource requirer = requirement.getResource();
+                    Step step = new Step(current, item, requirement);
+                    if (requirer == null || !groups.containsKey(requirer))
+                        return toPath(step, visited);
+                    if (!visited.containsKey(requirer)) {
+                        visited.put(requirer, step);
+                        queue.addLast(requirer);
+                    }
+                }
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private static List<Object> toPath(Step last, Map<Resource,Step> visited) {
+        LinkedList<Object> path = new LinkedList<Object>();
+        for (Step step = last; step != null; step = visited.get(step.provider)) {
+            path.addFirst(step.requirement);
+            path.addFirst(step.item);
+        }
+        return new ArrayList<Object>(path);
+    }
+
+    private static final class Step {
+        final Resource provider;
+        final ResolutionTreeItem item;
+        final Requirement requirement;
+
+        Step(Resource provider, ResolutionTreeItem item, Requirement requirement) {
+            this.provider = provider;
+            this.item = item;
+            this.requirement = requirement;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.bndtools.core.ui.wizards.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * The files below a base directory, relative to the base directory. The directory is walked once in a background job
+ * and the files become available while the walk is in progress, so searches with different patterns share one walk.
+ */
+class DirectorySnapshot {
+
+    private final File baseDir;
+    private final List<Path> files = new ArrayList<>();
+    private final Job walkJob;
+    private boolean complete;
+    private Exception failure;
+
+    private DirectorySnapshot(File baseDir) {
+        this.baseDir = baseDir;
+        this.walkJob = new Job(Messages.IndexerWizardPage_updateInputs) {
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                walk(monitor);
+                return Status.OK_STATUS;
+            }
+        };
+        walkJob.setSystem(true);
+    }
+
+    /**
+     * Start walking a directory.
+     *
+     * @param delay
+     *            milliseconds to wait before the walk starts
+     */
+    static DirectorySnapshot start(File baseDir, long delay) {
+        DirectorySnapshot snapshot = new DirectorySnapshot(baseDir);
+        snapshot.walkJob.schedule(delay);
+        return snapshot;
+    }
+
+    File getBaseDir() {
+        return baseDir;
+    }
+
+    void cancel() {
+        walkJob.cancel();
+        synchronized (this) {
+            if (!complete && failure == null) {
+                failure = new InterruptedException("Canceled");
+                notifyAll();
+            }
+        }
+    }
+
+    private void walk(final IProgressMonitor monitor) {
+        final Path basePath = baseDir.toPath();
+        try {
+            Files.walkFileTree(basePath, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
+                    if (monitor.isCanceled())
+                        return FileVisitResult.TERMINATE;
+                    add(basePath.relativize(path));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            synchronized (this) {
+                if (monitor.isCanceled()) {
+                    if (failure == null)
+                        failure = new InterruptedException("Canceled");
+                } else {
+                    complete = true;
+                }
+                notifyAll();
+            }
+        } catch (Exception e) {
+            synchronized (this) {
+                failure = e;
+                notifyAll();
+            }
+        }
+    }
+
+    private synchronized void add(Path path) {
+        files.add(path);
+        notifyAll();
+    }
+
+    /**
+     * Wait until files beyond the given index are available, the walk ended or the timeout expired.
+     *
+     * @return The number of files available
+     */
+    synchronized int await(int from, long timeout) throws InterruptedException {
+        if (files.size() <= from && !complete && failure == null)
+            wait(timeout);
+        return files.size();
+    }
+
+    synchronized int size() {
+        return files.size();
+    }
+
+    synchronized List<Path> getFiles(int from, int to) {
+        return new ArrayList<>(files.subList(from, to));
+    }
+
+    /**
+     * @return {@code true} if all files were walked
+     */
+    synchronized boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return The reason why the walk failed or was canceled, or {@code null}
+     */
+    synchronized Exception getFailure() {
+        return failure;
+    }
+}
@@ -1,17 +1,12 @@
 package org.bndtools.core.ui.wizards.index;
 
 import java.io.File;
-import java.io.IOException;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.PatternSyntaxException;
 
@@ -19,19 +14,20 @@ import org.bndtools.core.ui.icons.Icons;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.core.runtime.jobs.IJobChangeEvent;
 import org.eclipse.core.runtime.jobs.Job;
-import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.fieldassist.ControlDecoration;
 import org.eclipse.jface.fieldassist.FieldDecorationRegistry;
-import org.eclipse.jface.viewers.ArrayContentProvider;
+import org.eclipse.jface.viewers.ILazyContentProvider;
 import org.eclipse.jface.viewers.StyledCellLabelProvider;
 import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.jface.viewers.ViewerCell;
 import org.eclipse.jface.window.Window;
 import org.eclipse.jface.wizard.WizardPage;
@@ -61,7 +57,7 @@ public class IndexerWizardPage extends WizardPage {
 
     private File baseDir;
     private String resourcePattern = "**.jar"; //$NON-NLS-1$
-    private List<Path> inputPaths = Collections.emptyList();
+    private List<Path> inputPaths = new ArrayList<>();
     private String outputFileName = "index.xml.gz"; //$NON-NLS-1$
 
     private IndexFormatStyle outputStyle = IndexFormatStyle.PRETTY_UNCOMPRESSED;
@@ -73,8 +69,11 @@ public class IndexerWizardPage extends WizardPage {
     private Button btnOutputPretty;
     private Label lblOutputName;
 
+    private DirectorySnapshot snapshot;
+    private boolean searchDetached;
     private SearchFilesJob updateInputFilesJob;
     private TableViewer vwrInputs;
+    private final List<Object> inputRows = new ArrayList<>();
     private Label lblInputCount;
 
     private final Image imgFile = Icons.desc("file").createImage(); //$NON-NLS-1$
@@ -115,9 +114,22 @@ public class IndexerWizardPage extends WizardPage {
 
         Label lblInputs = new Label(composite, SWT.NONE);
         lblInputs.setText(Messages.IndexerWizardPage_inputs);
-        Table tblInputs = new Table(composite, SWT.MULTI | SWT.BORDER);
+        Table tblInputs = new Table(composite, SWT.MULTI | SWT.BORDER | SWT.VIRTUAL);
         vwrInputs = new TableViewer(tblInputs);
-        vwrInputs.setContentProvider(ArrayContentProvider.getInstance());
+        vwrInputs.setContentProvider(new ILazyContentProvider() {
+            @Override
+            public void updateElement(int index) {
+                if (index < inputRows.size())
+                    vwrInputs.replace(inputRows.get(index), index);
+            }
+
+            @Override
+            public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {}
+
+            @Override
+            public void dispose() {}
+        });
+        vwrInputs.setInput(inputRows);
         vwrInputs.setLabelProvider(new StyledCellLabelProvider() {
             @Override
             public void update(ViewerCell cell) {
@@ -275,53 +287,79 @@ public class IndexerWizardPage extends WizardPage {
     private void updateInputs() {
         if (updateInputFilesJob != null) {
             updateInputFilesJob.cancel();
+            updateInputFilesJob = null;
         }
-        inputPaths = Collections.emptyList();
+        inputPaths = new ArrayList<>();
         setPageComplete(false);
-        vwrInputs.setInput(inputPaths);
-        lblInputCount.setText(String.format("%d resources found", inputPaths.size()));
-        lblInputCount.getParent().layout(new Control[] {
-                lblInputCount
-        });
-        final String resourcePattern = this.resourcePattern;
-        final Display display = getShell().getDisplay();
+        setInputRows(Collections.emptyList());
+        updateInputCount(false);
 
+        // Only walk the directory again when it changed, a new pattern is matched against the previous walk
+        if (snapshot != null && (baseDir == null || !snapshot.getBaseDir().equals(baseDir) || snapshot.getFailure() != null)) {
+            snapshot.cancel();
+            snapshot = null;
+        }
         if (baseDir == null)
             return;
-        updateInputFilesJob = new SearchFilesJob(baseDir, resourcePattern);
-        updateInputFilesJob.addJobChangeListener(new JobChangeAdapter() {
-            @Override
-            public void done(IJobChangeEvent event) {
-                final IStatus status = updateInputFilesJob.getSearchResult();
-                display.syncExec(new Runnable() {
-                    @Override
-                    public void run() {
-                        inputPaths = updateInputFilesJob.getPaths();
-                        if (inputPaths == null)
-                            inputPaths = Collections.emptyList();
-                        if (status.isOK())
-                            vwrInputs.setInput(updateInputFilesJob.getPaths());
-                        else
-                            // The error/warning status is displayed in the table instead of the path list
-                            vwrInputs.setInput(Collections.singleton(status));
-                        lblInputCount.setText(String.format("%d resources found", inputPaths.size()));
-                        lblInputCount.getParent().layout(new Control[] {
-                                lblInputCount
-                        });
-                        validate();
-                    }
-                });
-            }
-        });
-        updateInputFilesJob.setSystem(true);
-        updateInputFilesJob.schedule(500);
-        vwrInputs.setInput(Collections.singleton(new Status(IStatus.INFO, Plugin.PLUGIN_ID, 0, Messages.IndexerWizardPage_checking, null)));
-        lblInputCount.setText("...");
+        if (snapshot == null)
+            snapshot = DirectorySnapshot.start(baseDir, 500);
+
+        updateInputFilesJob = new SearchFilesJob(snapshot, resourcePattern, getShell().getDisplay());
+        updateInputFilesJob.schedule(snapshot.isComplete() ? 100 : 500);
+        setInputRows(Collections.singletonList(new Status(IStatus.INFO, Plugin.PLUGIN_ID, 0, Messages.IndexerWizardPage_checking, null)));
+        updateInputCount(true);
+    }
+
+    private void setInputRows(List<?> rows) {
+        inputRows.clear();
+        inputRows.addAll(rows);
+        vwrInputs.getTable().clearAll();
+        vwrInputs.setItemCount(inputRows.size());
+    }
+
+    private void updateInputCount(boolean searching) {
+        lblInputCount.setText(String.format(searching ? "%d resources found..." : "%d resources found", inputPaths.size()));
         lblInputCount.getParent().layout(new Control[] {
                 lblInputCount
         });
     }
 
+    /*
+     * Called on the display thread with the next matches of a search
+     */
+    private void addInputs(SearchFilesJob job, List<Path> batch) {
+        if (job != updateInputFilesJob || vwrInputs.getTable().isDisposed())
+            return;
+        boolean placeholder = inputPaths.isEmpty();
+        if (placeholder)
+            inputRows.clear();
+        inputPaths.addAll(batch);
+        inputRows.addAll(batch);
+        vwrInputs.setItemCount(inputRows.size());
+        if (placeholder) {
+            // The first row was materialised with the placeholder status
+            vwrInputs.getTable().clear(0);
+        }
+        updateInputCount(true);
+        validate();
+    }
+
+    /*
+     * Called on the display thread when a search is done
+     */
+    private void searchDone(SearchFilesJob job, IStatus status) {
+        if (job != updateInputFilesJob || vwrInputs.getTable().isDisposed())
+            return;
+        if (!status.isOK()) {
+            // The error/warning status is displayed in the table instead of the path list
+            if (status.getSeverity() == IStatus.ERROR)
+                inputPaths = new ArrayList<>();
+            setInputRows(Collections.singletonList(status));
+        }
+        updateInputCount(false);
+        validate();
+    }
+
     private void updateOutputFileName() {
         String prefix = txtOutputPrefix.getText();
         String suffix = outputStyle == IndexFormatStyle.COMPRESSED ? "xml.gz" : "xml"; //$NON-NLS-1$ //$NON-NLS-2$
@@ -411,37 +449,75 @@ public class IndexerWizardPage extends WizardPage {
         return new File(baseDir, outputFileName);
     }
 
-    public List<Path> getInputPaths() {
-        try {
-            if (updateInputFilesJob != null)
-                updateInputFilesJob.join();
+    /**
+     * @return All matching paths. Waits for the search to complete, so this is best called outside of the display
+     *         thread.
+     * @throws CoreException
+     *             if the search failed
+     * @throws OperationCanceledException
+     *             if the search was canceled before it completed
+     */
+    public List<Path> getInputPaths() throws CoreException {
+        SearchFilesJob job = updateInputFilesJob;
+        if (job == null)
             return inputPaths;
+        try {
+            job.join();
         } catch (InterruptedException e) {
-            return Collections.emptyList();
+            Thread.currentThread().interrupt();
+            throw new OperationCanceledException();
         }
+        IStatus result = job.getSearchResult();
+        if (result.getSeverity() == IStatus.CANCEL)
+            throw new OperationCanceledException();
+        if (result.getSeverity() == IStatus.ERROR)
+            throw new CoreException(result);
+        return job.getPaths();
+    }
+
+    /**
+     * Let the search run to completion when the page is disposed, the matches are retrieved later with
+     * {@link #getInputPaths()}.
+     */
+    void detachSearch() {
+        searchDetached = true;
     }
 
     @Override
     public void dispose() {
         super.dispose();
+        if (!searchDetached) {
+            if (updateInputFilesJob != null)
+                updateInputFilesJob.cancel();
+            if (snapshot != null)
+                snapshot.cancel();
+        }
         imgFile.dispose();
         imgError.dispose();
         imgWarning.dispose();
     }
 
-    private static class SearchFilesJob extends Job {
+    /**
+     * Matches the files of a directory snapshot while the directory is walked and passes the matches to the table in
+     * batches.
+     */
+    private class SearchFilesJob extends Job {
+
+        private static final int BATCH_SIZE = 500;
+        private static final long BATCH_INTERVAL = 100;
 
-        private final File baseDir;
+        private final DirectorySnapshot snapshot;
         private final String resourcePattern;
-        private IStatus searchResult = Status.OK_STATUS;
-        private List<Path> paths = Collections.emptyList();
+        private final Display display;
+        // Canceled until the search completes
+        private volatile IStatus searchResult = Status.CANCEL_STATUS;
+        private final List<Path> paths = Collections.synchronizedList(new ArrayList<Path>());
 
-        private SearchFilesJob(File baseDir, String resourcePattern) {
+        private SearchFilesJob(DirectorySnapshot snapshot, String resourcePattern, Display display) {
             super(Messages.IndexerWizardPage_updateInputs);
-            if (baseDir == null)
-                throw new NullPointerException("baseDir cannot be null"); //$NON-NLS-1$
-            this.baseDir = baseDir;
+            this.snapshot = snapshot;
             this.resourcePattern = resourcePattern;
+            this.display = display;
             setSystem(true);
             setUser(false);
         }
@@ -449,41 +525,83 @@ public class IndexerWizardPage extends WizardPage {
         @Override
         protected IStatus run(IProgressMonitor monitor) {
             try {
-                final List<Path> result = new LinkedList<>();
-
-                // Collect the files
-                final Path basePath = baseDir.toPath();
                 FileSystem fs = FileSystems.getDefault();
-                final PathMatcher matcher = fs.getPathMatcher("glob:" + resourcePattern); //$NON-NLS-1$
-                Files.walkFileTree(basePath, new SimpleFileVisitor<Path>() {
-                    @Override
-                    public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
-                        Path relative = basePath.relativize(path);
+                PathMatcher matcher = fs.getPathMatcher("glob:" + resourcePattern); //$NON-NLS-1$
+
+                List<Path> batch = new ArrayList<>();
+                long published = System.currentTimeMillis();
+                int next = 0;
+                while (true) {
+                    if (monitor.isCanceled())
+                        return Status.CANCEL_STATUS;
+
+                    int available = snapshot.await(next, BATCH_INTERVAL);
+                    for (Path relative : snapshot.getFiles(next, available)) {
                         if (matcher.matches(relative))
-                            result.add(relative);
-                        return FileVisitResult.CONTINUE;
+                            batch.add(relative);
                     }
-                });
-                if (result.isEmpty())
+                    next = available;
+
+                    boolean done = snapshot.isComplete() && next == snapshot.size();
+                    Exception failure = snapshot.getFailure();
+                    if (failure != null)
+                        throw failure;
+
+                    long now = System.currentTimeMillis();
+                    if (!batch.isEmpty() && (done || batch.size() >= BATCH_SIZE || now - published >= BATCH_INTERVAL)) {
+                        publish(batch);
+                        batch = new ArrayList<>();
+                        published = now;
+                    }
+                    if (done)
+                        break;
+                }
+
+                if (paths.isEmpty())
                     searchResult = new Status(IStatus.WARNING, Plugin.PLUGIN_ID, 0, Messages.IndexerWizardPage_warn_noMatchingFiles, null);
                 else
                     searchResult = Status.OK_STATUS;
-                paths = result;
             } catch (PatternSyntaxException e) {
                 searchResult = new Status(IStatus.ERROR, Plugin.PLUGIN_ID, 0, Messages.IndexerWizardPage_error_invalidPattern + e.getMessage(), e);
+            } catch (InterruptedException e) {
+                // The directory walk was canceled, the matches are incomplete
+                searchResult = new Status(IStatus.ERROR, Plugin.PLUGIN_ID, 0, Messages.IndexerWizardPage_error_fileSearch, e);
             } catch (Exception e) {
                 searchResult = new Status(IStatus.ERROR, Plugin.PLUGIN_ID, 0, Messages.IndexerWizardPage_error_fileSearch, e);
             }
 
+            final IStatus status = searchResult;
+            if (!display.isDisposed()) {
+                display.asyncExec(new Runnable() {
+                    @Override
+                    public void run() {
+                        searchDone(SearchFilesJob.this, status);
+                    }
+                });
+            }
             return Status.OK_STATUS;
         }
 
+        private void publish(final List<Path> batch) {
+            paths.addAll(batch);
+            if (display.isDisposed())
+                return;
+            display.asyncExec(new Runnable() {
+                @Override
+                public void run() {
+                    addInputs(SearchFilesJob.this, batch);
+                }
+            });
+        }
+
         public IStatus getSearchResult() {
             return searchResult;
         }
 
         public List<Path> getPaths() {
-            return paths;
+            synchronized (paths) {
+                return new ArrayList<>(paths);
+            }
         }
     }
 
@@ -7,9 +7,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import org.bndtools.core.jobs.GenerateIndexJob;
 import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.wizard.Wizard;
 import org.eclipse.ui.INewWizard;
@@ -37,11 +39,20 @@ public class NewIndexWizard extends Wizard implements INewWizard {
     @Override
     public boolean performFinish() {
         File baseDir = indexPage.getBaseDir();
-        Path basePath = baseDir.toPath();
-        List<Path> paths = indexPage.getInputPaths();
-        Set<File> inputFiles = new HashSet<>(paths.size());
-        for (Path path : paths)
-            inputFiles.add(basePath.resolve(path).toFile());
+        final Path basePath = baseDir.toPath();
+
+        // The search may still be running, the job waits for it instead of the display thread
+        indexPage.detachSearch();
+        Callable<Set<File>> inputFiles = new Callable<Set<File>>() {
+            @Override
+            public Set<File> call() throws CoreException {
+                List<Path> paths = indexPage.getInputPaths();
+                Set<File> files = new HashSet<>(paths.size());
+                for (Path path : paths)
+                    files.add(basePath.resolve(path).toFile());
+                return files;
+            }
+        };
 
         // Setup index config
         Map<String,String> config = new HashMap<>();
@@ -0,0 +1,79 @@
+package bndtools.central;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import aQute.lib.io.IO;
+
+public class StartupTimelineTest extends TestCase {
+
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = Files.createTempDirectory("bndtools-startup").toFile();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        IO.delete(dir);
+    }
+
+    public void testSpans() throws Exception {
+        StartupTimeline timeline = new StartupTimeline();
+        StartupTimeline.Span total = timeline.start("Initialise workspace");
+        StartupTimeline.Span span = timeline.start("Create workspace");
+        span.end();
+        span.fail(); // already ended
+        timeline.start("callback", StartupTimeline.CALLBACK).fail();
+        total.end();
+
+        List<StartupTimeline.Event> events = timeline.getEvents();
+        assertEquals(3, events.size());
+
+        StartupTimeline.Event create = events.get(0);
+        assertEquals("Create workspace", create.name);
+        assertEquals(StartupTimeline.PHASE, create.category);
+        assertFalse(create.failed);
+        assertEquals(Thread.currentThread().getName(), create.thread);
+
+        StartupTimeline.Event callback = events.get(1);
+        assertEquals(StartupTimeline.CALLBACK, callback.category);
+        assertTrue(callback.failed);
+
+        StartupTimeline.Event init = events.get(2);
+        assertEquals("Initialise workspace", init.name);
+        assertTrue(init.start <= create.start);
+        assertTrue(init.start + init.duration >= create.start + create.duration);
+
+        String report = timeline.format();
+        assertTrue(report.contains("callback [" + Thread.currentThread().getName() + "] FAILED"));
+        assertTrue(report.contains("Phases "));
+    }
+
+    public void testSaved() throws Exception {
+        StartupTimeline timeline = new StartupTimeline();
+        StartupTimeline.Span span = timeline.start("Check repository snapshot");
+        span.saved(1234);
+        span.end();
+
+        assertEquals(1234, timeline.getEvents().get(0).saved);
+        String report = timeline.format();
+        assertTrue(report.contains("Check repository snapshot [" + Thread.currentThread().getName() + "] saved 1234 ms"));
+        assertTrue(report.contains("saved 1234 ms, last step"));
+    }
+
+    public void testExport() throws Exception {
+        StartupTimeline timeline = new StartupTimeline();
+        timeline.start("callback", StartupTimeline.CALLBACK).fail();
+        File file = new File(dir, "timeline.json");
+        timeline.export(file);
+
+        String json = IO.collect(file);
+        assertTrue(json.contains("\"callback\""));
+        assertTrue(json.contains("\"failed\":true"));
+    }
+}
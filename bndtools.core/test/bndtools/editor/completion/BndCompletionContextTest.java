@@ -0,0 +1,48 @@
+package bndtools.editor.completion;
+
+import org.eclipse.jface.text.Document;
+
+import bndtools.editor.completion.BndCompletionContext.Kind;
+import junit.framework.TestCase;
+
+public class BndCompletionContextTest extends TestCase {
+
+    public void testHeader() throws Exception {
+        BndCompletionContext context = BndCompletionContext.compute("-run");
+        assertEquals(Kind.HEADER, context.getKind());
+        assertEquals("-run", context.getPrefix());
+    }
+
+    public void testValue() throws Exception {
+        BndCompletionContext context = BndCompletionContext.compute("-buildpath: osgi.core,\\\n\torg.ex");
+        assertEquals(Kind.VALUE, context.getKind());
+        assertEquals("-buildpath", context.getHeader());
+        assertEquals("org.ex", context.getPrefix());
+    }
+
+    public void testMacro() throws Exception {
+        BndCompletionContext context = BndCompletionContext.compute("Bundle-Version: ${ver");
+        assertEquals(Kind.MACRO, context.getKind());
+        assertEquals("ver", context.getPrefix());
+
+        assertEquals(Kind.VALUE, BndCompletionContext.compute("Bundle-Version: ${version}").getKind());
+    }
+
+    public void testComment() throws Exception {
+        assertEquals(Kind.NONE, BndCompletionContext.compute("# -run").getKind());
+    }
+
+    public void testScansOnlyLogicalLine() throws Exception {
+        String text = "-runfw: org.apache.felix.framework\n" + "-runbundles: \\\n" + "\tosgi.cmpn,\\\n" + "\tbnd";
+        Document document = new Document(text);
+
+        BndCompletionContext context = BndCompletionContext.compute(document, text.length());
+        assertEquals(Kind.VALUE, context.getKind());
+        assertEquals("-runbundles", context.getHeader());
+        assertEquals("bnd", context.getPrefix());
+
+        context = BndCompletionContext.compute(document, "-runfw: org.apache".length());
+        assertEquals("-runfw", context.getHeader());
+        assertEquals("org.apache", context.getPrefix());
+    }
+}
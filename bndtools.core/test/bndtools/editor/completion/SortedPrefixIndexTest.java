@@ -0,0 +1,32 @@
+package bndtools.editor.completion;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+public class SortedPrefixIndexTest extends TestCase {
+
+    private final SortedPrefixIndex index = SortedPrefixIndex.of(Arrays.asList("org.example.b", "-runfw", "org.example.a", "-runbundles", "org.other", "-runfw"));
+
+    public void testSortedAndDistinct() throws Exception {
+        assertEquals(Arrays.asList("-runbundles", "-runfw", "org.example.a", "org.example.b", "org.other"), index.withPrefix(null));
+    }
+
+    public void testPrefix() throws Exception {
+        assertEquals(Arrays.asList("-runbundles", "-runfw"), index.withPrefix("-run"));
+        assertEquals(Arrays.asList("org.example.a", "org.example.b"), index.withPrefix("org.example"));
+        assertEquals(Collections.singletonList("org.other"), index.withPrefix("org.other"));
+    }
+
+    public void testNoMatch() throws Exception {
+        assertTrue(index.withPrefix("-runx").isEmpty());
+        assertTrue(index.withPrefix("zzz").isEmpty());
+        assertTrue(SortedPrefixIndex.EMPTY.withPrefix("a").isEmpty());
+    }
+
+    public void testContains() throws Exception {
+        assertTrue(index.contains("-runfw"));
+        assertFalse(index.contains("-run"));
+    }
+}
@@ -0,0 +1,43 @@
+package bndtools.refactor;
+
+import java.util.List;
+
+import bndtools.refactor.BndPackageReferenceIndex.Reference;
+import junit.framework.TestCase;
+
+public class BndPackageReferenceIndexTest extends TestCase {
+
+    public void testClauses() throws Exception {
+        String text = "Private-Package: org.example.impl,\\\n\torg.example.util;-split-package:=first\nExport-Package: org.example.api;version=\"[1,2)\"\n";
+        List<Reference> references = BndPackageReferenceIndex.scan(text);
+        assertEquals(3, references.size());
+
+        assertReference(text, references.get(0), "Private-Package", "org.example.impl");
+        assertReference(text, references.get(1), "Private-Package", "org.example.util");
+        assertReference(text, references.get(2), "Export-Package", "org.example.api");
+    }
+
+    public void testNegatedAndWildcardsIgnored() throws Exception {
+        String text = "Import-Package: !org.example.internal, org.example.api, org.example.spi.*, *\n";
+        List<Reference> references = BndPackageReferenceIndex.scan(text);
+        assertEquals(1, references.size());
+        assertReference(text, references.get(0), "Import-Package", "org.example.api");
+    }
+
+    public void testActivator() throws Exception {
+        String text = "Bundle-Activator: org.example.impl.Activator\n";
+        List<Reference> references = BndPackageReferenceIndex.scan(text);
+        assertEquals(1, references.size());
+        assertReference(text, references.get(0), "Bundle-Activator", "org.example.impl");
+    }
+
+    public void testOtherHeadersIgnored() throws Exception {
+        assertTrue(BndPackageReferenceIndex.scan("-buildpath: org.example.impl\nBundle-Version: 1.0\n").isEmpty());
+    }
+
+    private static void assertReference(String text, Reference reference, String header, String packageName) {
+        assertEquals(header, reference.getHeader());
+        assertEquals(packageName, reference.getPackageName());
+        assertEquals(packageName, text.substring(reference.getOffset(), reference.getOffset() + reference.getLength()));
+    }
+}
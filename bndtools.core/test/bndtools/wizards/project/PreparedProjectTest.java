@@ -0,0 +1,79 @@
+package bndtools.wizards.project;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import junit.framework.TestCase;
+
+import aQute.bnd.build.Project;
+import aQute.bnd.build.Workspace;
+import aQute.lib.io.IO;
+
+public class PreparedProjectTest extends TestCase {
+
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = Files.createTempDirectory("bndtools-import").toFile();
+        IO.store("javac.source: 1.7\njavac.target: 1.7\n", IO.getFile(dir, "cnf/build.bnd"));
+
+        IO.store("Bundle-Version: 1.0.0\n", IO.getFile(dir, "a/bnd.bnd"));
+        IO.getFile(dir, "a/src").mkdirs();
+        IO.store("", IO.getFile(dir, "a/.project"));
+        IO.store("", IO.getFile(dir, "a/.settings/org.eclipse.jdt.core.prefs"));
+
+        IO.store("-dependson: a\nsrc: java\nbin: classes\njavac.target: 1.8\n", IO.getFile(dir, "b/bnd.bnd"));
+        IO.getFile(dir, "b/java").mkdirs();
+        IO.store("", IO.getFile(dir, "b/.classpath"));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        IO.delete(dir);
+    }
+
+    public void testPrepareAll() throws Exception {
+        try (Workspace ws = new Workspace(dir)) {
+            List<Project> projects = new ArrayList<>();
+            projects.add(ws.getProject("b"));
+            projects.add(ws.getProject("a"));
+
+            List<PreparedProject> prepared = PreparedProject.prepareAll(projects, true, new NullProgressMonitor());
+
+            assertEquals(2, prepared.size());
+            PreparedProject b = prepared.get(0);
+            assertEquals("b", b.name);
+            assertEquals("1.7", b.javacSource);
+            assertEquals("1.8", b.javacTarget);
+            assertEquals(1, b.sourceFolders.size());
+            assertEquals("java", b.sourceFolders.get(0).lastSegment());
+            assertEquals("classes", b.srcOutput.lastSegment());
+
+            PreparedProject a = prepared.get(1);
+            assertEquals("a", a.name);
+            assertEquals("1.7", a.javacTarget);
+            assertEquals("src", a.sourceFolders.get(0).lastSegment());
+        }
+
+        assertFalse(new File(dir, "a/.project").exists());
+        assertFalse(new File(dir, "a/.settings").exists());
+        assertFalse(new File(dir, "b/.classpath").exists());
+        assertTrue(new File(dir, "a/bnd.bnd").exists());
+    }
+
+    public void testKeepSettings() throws Exception {
+        try (Workspace ws = new Workspace(dir)) {
+            List<Project> projects = new ArrayList<>();
+            projects.add(ws.getProject("a"));
+            PreparedProject.prepareAll(projects, false, new NullProgressMonitor());
+        }
+
+        assertTrue(new File(dir, "a/.project").exists());
+        assertTrue(new File(dir, "a/.settings/org.eclipse.jdt.core.prefs").exists());
+    }
+}
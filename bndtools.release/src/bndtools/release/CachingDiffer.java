@@ -0,0 +1,224 @@
+package bndtools.release;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IStatus;
+
+import aQute.bnd.differ.DiffPluginImpl;
+import aQute.bnd.osgi.Analyzer;
+import aQute.bnd.osgi.Jar;
+import aQute.bnd.service.diff.Differ;
+import aQute.bnd.service.diff.Tree;
+import aQute.lib.hex.Hex;
+import aQute.lib.io.IO;
+import aQute.lib.json.JSONCodec;
+
+/**
+ * A {@link Differ} that caches the API tree of each jar. Building the tree means parsing every class in the jar, and is
+ * by far the most expensive part of a baseline; comparing two trees is cheap. Trees are keyed by the SHA-256 digest of
+ * the jar file and the <code>-diffignore</code> value, kept in memory and persisted in the plugin state location so
+ * that unchanged bundles and baseline jars are not parsed again, even after a restart. Both caches evict the least
+ * recently used entries.
+ */
+public class CachingDiffer implements Differ {
+
+    private static final String FORMAT_VERSION = "1";
+    private static final int MAX_MEMORY_ENTRIES = 64;
+    private static final int MAX_DISK_ENTRIES = 512;
+    private static final int MAX_DIGESTS = 256;
+    private static final String SUFFIX = ".json";
+
+    private static final Map<String,Tree> memory = new LinkedHashMap<String,Tree>(MAX_MEMORY_ENTRIES, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String,Tree> eldest) {
+            return size() > MAX_MEMORY_ENTRIES;
+        }
+    };
+
+    // Jar file stamp (path, length, modification time) to content digest
+    private static final Map<String,String> digests = new LinkedHashMap<String,String>(MAX_DIGESTS, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String,String> eldest) {
+            return size() > MAX_DIGESTS;
+        }
+    };
+
+    private final DiffPluginImpl delegate = new DiffPluginImpl();
+    private String ignore = "";
+
+    public void setIgnore(String diffignore) {
+        delegate.setIgnore(diffignore);
+        ignore = diffignore != null ? diffignore : "";
+    }
+
+    @Override
+    public Tree tree(Analyzer source) throws Exception {
+        return delegate.tree(source);
+    }
+
+    @Override
+    public Tree tree(Jar source) throws Exception {
+        String key = getKey(source);
+        if (key == null)
+            return delegate.tree(source);
+
+        Tree tree = get(key);
+        if (tree == null) {
+            tree = delegate.tree(source);
+            put(key, tree);
+        }
+        return tree;
+    }
+
+    @Override
+    public Tree deserialize(Tree.Data data) throws Exception {
+        return delegate.deserialize(data);
+    }
+
+    private String getKey(Jar jar) {
+        File file = jar.getSource();
+        if (file == null || !file.isFile())
+            return null;
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(FORMAT_VERSION.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(digest(file).getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(ignore.getBytes(StandardCharsets.UTF_8));
+            return Hex.toHexString(md.digest());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private Tree get(String key) {
+        synchronized (memory) {
+            Tree tree = memory.get(key);
+            if (tree != null)
+                return tree;
+        }
+
+        File file = getCacheFile(key);
+        if (file == null || !file.isFile())
+            return null;
+        try {
+            Tree.Data data = new JSONCodec().dec().from(file).get(Tree.Data.class);
+            Tree tree = delegate.deserialize(data);
+            file.setLastModified(System.currentTimeMillis());
+            synchronized (memory) {
+                memory.put(key, tree);
+            }
+            return tree;
+        } catch (Exception e) {
+            Activator.log("Discarding unreadable baseline cache entry " + key + ": " + e, IStatus.WARNING);
+            IO.delete(file);
+            return null;
+        }
+    }
+
+    private static void put(String key, Tree tree) {
+        synchronized (memory) {
+            memory.put(key, tree);
+        }
+
+        File file = getCacheFile(key);
+        if (file == null)
+            return;
+        File tmp = null;
+        try {
+            File dir = file.getParentFile();
+            dir.mkdirs();
+            // a unique temporary file, since two threads may store the same key
+            tmp = File.createTempFile(key, ".tmp", dir);
+            new JSONCodec().enc().to(tmp).put(tree.serialize()).close();
+            IO.rename(tmp, file);
+            evict(dir);
+        } catch (Exception e) {
+            Activator.log("Unable to persist baseline cache entry " + key + ": " + e, IStatus.WARNING);
+            if (tmp != null)
+                IO.delete(tmp);
+        }
+    }
+
+    private static File getCacheDir() {
+        Activator activator = Activator.getDefault();
+        if (activator == null)
+            return null;
+        return new File(activator.getStateLocation().toFile(), "baselineCache");
+    }
+
+    private static File getCacheFile(String key) {
+        File dir = getCacheDir();
+        return dir != null ? new File(dir, key + SUFFIX) : null;
+    }
+
+    private static synchronized void evict(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null || files.length <= MAX_DISK_ENTRIES)
+            return;
+        List<File> entries = new ArrayList<File>();
+        for (File file : files) {
+            if (file.getName().endsWith(SUFFIX))
+                entries.add(file);
+        }
+        if (entries.size() <= MAX_DISK_ENTRIES)
+            return;
+        Collections.sort(entries, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (File file : entries.subList(0, entries.size() - MAX_DISK_ENTRIES))
+            IO.delete(file);
+    }
+
+    private static String digest(File file) throws Exception {
+        String stamp = file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+        synchronized (digests) {
+            String digest = digests.get(stamp);
+            if (digest != null)
+                return digest;
+        }
+
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int n;
+            while ((n = in.read(buffer)) > 0)
+                md.update(buffer, 0, n);
+        }
+        String digest = Hex.toHexString(md.digest());
+        synchronized (digests) {
+            digests.put(stamp, digest);
+        }
+        return digest;
+    }
+
+    /**
+     * Remove all cached trees.
+     */
+    public static void clear() {
+        synchronized (memory) {
+            memory.clear();
+        }
+        File dir = getCacheDir();
+        if (dir != null)
+            IO.delete(dir);
+    }
+}
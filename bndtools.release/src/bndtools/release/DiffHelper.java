@@ -10,12 +10,13 @@
  *******************************************************************************/
 package bndtools.release;
 
+import java.io.File;
+import java.util.Collection;
 import java.util.List;
 
 import aQute.bnd.build.Project;
 import aQute.bnd.build.ProjectBuilder;
 import aQute.bnd.differ.Baseline;
-import aQute.bnd.differ.DiffPluginImpl;
 import aQute.bnd.osgi.Builder;
 import aQute.bnd.osgi.Constants;
 import aQute.bnd.osgi.Jar;
@@ -39,36 +40,10 @@ public class DiffHelper {
         try {
 
             if (builder instanceof ProjectBuilder) {
-
                 ProjectBuilder projectBuilder = (ProjectBuilder) builder;
-
-                Jar jar = null;
-                Jar currentJar = null;
-
-                try {
-                    jar = projectBuilder.build();
-
-                    currentJar = projectBuilder.getBaselineJar();
-                    if (currentJar == null) {
-                        currentJar = projectBuilder.getLastRevision();
-                    }
-                    if (currentJar == null) {
-                        currentJar = new Jar("."); //$NON-NLS-1$
-                    }
-                    DiffPluginImpl differ = new DiffPluginImpl();
-                    String diffignore = projectBuilder.getProperty(Constants.DIFFIGNORE);
-                    if (diffignore != null)
-                        differ.setIgnore(diffignore);
-
-                    Baseline baseline = new Baseline(projectBuilder, differ);
-
-                    baseline.baseline(jar, currentJar, null);
-                    return baseline;
-                } finally {
-                    if (jar != null)
-                        jar.close();
-                    if (currentJar != null)
-                        currentJar.close();
+                long sourceModified = lastModified(projectBuilder.getProject().getSourcePath());
+                try (PreparedBaseline prepared = prepareBaseline(projectBuilder, sourceModified)) {
+                    return prepared.diff();
                 }
             }
         } catch (Exception e1) {
@@ -78,6 +53,121 @@ public class DiffHelper {
 
     }
 
+    /**
+     * Get the jars to baseline. This builds the bundle when the jar of the incremental builder cannot be used, so it
+     * must be called under the bnd lock; the returned baseline only reads the jars and can be diffed concurrently with
+     * other baselines.
+     *
+     * @param sourceModified
+     *            The newest modification time of a file in the source folders of the project, see
+     *            {@link #lastModified(Collection)}.
+     */
+    static PreparedBaseline prepareBaseline(ProjectBuilder projectBuilder, long sourceModified) throws Exception {
+        Jar jar = null;
+        Jar currentJar = null;
+        try {
+            jar = getBuiltJar(projectBuilder, sourceModified);
+            if (jar == null)
+                jar = projectBuilder.build();
+
+            currentJar = projectBuilder.getBaselineJar();
+            if (currentJar == null) {
+                currentJar = projectBuilder.getLastRevision();
+            }
+            if (currentJar == null) {
+                currentJar = new Jar("."); //$NON-NLS-1$
+            }
+            CachingDiffer differ = new CachingDiffer();
+            String diffignore = projectBuilder.getProperty(Constants.DIFFIGNORE);
+            if (diffignore != null)
+                differ.setIgnore(diffignore);
+
+            return new PreparedBaseline(projectBuilder, differ, jar, currentJar);
+        } catch (Exception e) {
+            if (jar != null)
+                jar.close();
+            if (currentJar != null)
+                currentJar.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The jars of a builder, ready to be diffed.
+     */
+    static class PreparedBaseline implements AutoCloseable {
+        private final ProjectBuilder projectBuilder;
+        private final CachingDiffer differ;
+        private final Jar jar;
+        private final Jar currentJar;
+
+        PreparedBaseline(ProjectBuilder projectBuilder, CachingDiffer differ, Jar jar, Jar currentJar) {
+            this.projectBuilder = projectBuilder;
+            this.differ = differ;
+            this.jar = jar;
+            this.currentJar = currentJar;
+        }
+
+        String getBsn() {
+            return projectBuilder.getBsn();
+        }
+
+        Baseline diff() throws Exception {
+            Baseline baseline = new Baseline(projectBuilder, differ);
+            baseline.baseline(jar, currentJar, null);
+            return baseline;
+        }
+
+        @Override
+        public void close() {
+            jar.close();
+            currentJar.close();
+        }
+    }
+
+    /**
+     * Return the jar the incremental builder already produced for this builder, or {@code null} if there is none, if
+     * it is older than the builder's bnd files or than the newest file in the project's source folders, or if the
+     * project is stale.
+     */
+    static Jar getBuiltJar(ProjectBuilder builder, long sourceModified) {
+        try {
+            Project project = builder.getProject();
+            File output = project.getOutputFile(builder.getBsn(), builder.getVersion());
+            if (!output.isFile() || output.lastModified() < builder.lastModified() || output.lastModified() < sourceModified || project.isStale())
+                return null;
+            return new Jar(output);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Return the newest modification time of a file in the given folders. Only reads the file system, so it can be
+     * called outside the bnd lock, once for all sub-bundles of a project.
+     */
+    static long lastModified(Collection<File> folders) {
+        long newest = 0;
+        for (File folder : folders) {
+            newest = Math.max(newest, lastModified(folder));
+        }
+        return newest;
+    }
+
+    private static long lastModified(File file) {
+        if (file.isDirectory()) {
+            long newest = 0;
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    newest = Math.max(newest, lastModified(child));
+                }
+            }
+            return newest;
+        }
+        return file.lastModified();
+    }
+
     public static String removeVersionQualifier(String version) {
         if (version == null) {
             return null;
@@ -14,7 +14,6 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -95,7 +94,6 @@ public class ReleaseDialogJob extends Job {
                             return;
                         }
                         WorkspaceReleaseJob releaseJob = new WorkspaceReleaseJob(projectDiffs, dialog.getReleaseOption(), dialog.isShowMessage());
-                        releaseJob.setRule(ResourcesPlugin.getWorkspace().getRoot());
                         releaseJob.schedule();
                     }
                 }
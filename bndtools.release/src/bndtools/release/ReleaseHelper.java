@@ -19,6 +19,7 @@ import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -26,7 +27,9 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
@@ -47,6 +50,7 @@ import aQute.bnd.version.Version;
 import aQute.lib.io.IO;
 import aQute.service.reporter.Reporter;
 import bndtools.central.Central;
+import bndtools.central.RepositoryUtils;
 import bndtools.release.api.IReleaseParticipant;
 import bndtools.release.api.ReleaseOption;
 import bndtools.release.api.IReleaseParticipant.Scope;
@@ -60,24 +64,47 @@ public class ReleaseHelper {
     public final static String VERSION_WITH_MACRO_STRING = "(\\d+)\\.(\\d+)\\.(\\d+)\\.(\\$\\{[-_\\.\\da-zA-Z]+\\})";//$NON-NLS-1$
     public final static Pattern VERSION_WITH_MACRO = Pattern.compile(VERSION_WITH_MACRO_STRING);
 
-    public static void updateProject(ReleaseContext context) throws Exception {
-        try (ProjectBuilder pb = context.getProject().getBuilder(null)) {
-            for (Builder builder : pb.getSubBuilders()) {
+    /**
+     * Context property; when {@link Boolean#TRUE} the workspace refresh of released files is left to the caller, which
+     * refreshes each release repository once after a batch of releases.
+     */
+    static final String DEFER_REPOSITORY_REFRESH = "bndtools.release.deferRepositoryRefresh"; //$NON-NLS-1$
+
+    public static void updateProject(final ReleaseContext context) throws Exception {
+        // The versions are computed under the bnd lock, the bnd files are written on the UI thread after it is released
+        List<Runnable> writes = Central.bndCall(new Callable<List<Runnable>>() {
+            @Override
+            public List<Runnable> call() throws Exception {
+                List<Runnable> writes = new ArrayList<Runnable>();
+                try (ProjectBuilder pb = context.getProject().getBuilder(null)) {
+                    for (Builder builder : pb.getSubBuilders()) {
+
+                        Baseline current = getBaselineForBuilder(builder, context);
+                        if (current == null) {
+                            continue;
+                        }
+                        for (Info info : current.getPackageInfos()) {
+                            context.getProject().setPackageInfo(info.packageName, info.suggestedVersion);
+                        }
 
-                Baseline current = getBaselineForBuilder(builder, context);
-                if (current == null) {
-                    continue;
-                }
-                for (Info info : current.getPackageInfos()) {
-                    context.getProject().setPackageInfo(info.packageName, info.suggestedVersion);
+                        Runnable write = updateBundleVersion(context, current, builder);
+                        if (write != null) {
+                            writes.add(write);
+                        }
+                    }
                 }
-
-                updateBundleVersion(context, current, builder);
+                return writes;
             }
+        }, monitor(context));
+        for (Runnable write : writes) {
+            if (Display.getCurrent() == null) {
+                Display.getDefault().syncExec(write);
+            } else
+                write.run();
         }
     }
 
-    private static void updateBundleVersion(ReleaseContext context, Baseline current, Builder builder) throws IOException, CoreException {
+    private static Runnable updateBundleVersion(ReleaseContext context, Baseline current, Builder builder) throws IOException, CoreException {
 
         Version bundleVersion = current.getSuggestedVersion();
         if (bundleVersion != null) {
@@ -115,7 +142,7 @@ public class ReleaseHelper {
             properties.setProperty(Constants.BUNDLE_VERSION, templateVersion);
 
             final Document finalDoc = document;
-            Runnable run = new Runnable() {
+            return new Runnable() {
                 @Override
                 public void run() {
                     model.saveChangesTo(finalDoc);
@@ -128,11 +155,8 @@ public class ReleaseHelper {
                     }
                 }
             };
-            if (Display.getCurrent() == null) {
-                Display.getDefault().syncExec(run);
-            } else
-                run.run();
         }
+        return null;
     }
 
     private static Baseline getBaselineForBuilder(Builder builder, ReleaseContext context) {
@@ -190,7 +214,7 @@ public class ReleaseHelper {
         return true;
     }
 
-    private static boolean doRelease(ReleaseContext context, List<Baseline> diffs, List<IReleaseParticipant> participants) throws Exception {
+    private static boolean doRelease(final ReleaseContext context, final List<Baseline> diffs, List<IReleaseParticipant> participants) throws Exception {
         boolean ret = true;
         if (!preRelease(context, participants)) {
             postRelease(context, participants, false);
@@ -198,27 +222,76 @@ public class ReleaseHelper {
             return false;
         }
 
-        try (ProjectBuilder pb = context.getProject().getBuilder(null)) {
-            List<Builder> builders = pb.getSubBuilders();
-
-            for (Baseline diff : diffs) {
-                Builder builder = null;
-                for (Builder b : builders) {
-                    if (b.getBsn().equals(diff.getBsn())) {
-                        builder = b;
-                        break;
-                    }
+        // Building uses the shared bnd workspace and is serialised under the bnd lock; only the uploads of the built
+        // jars run concurrently with other releases
+        final ProjectBuilder pb = Central.bndCall(new Callable<ProjectBuilder>() {
+            @Override
+            public ProjectBuilder call() throws Exception {
+                return context.getProject().getBuilder(null);
+            }
+        }, monitor(context));
+        try {
+            List<Jar> jars = Central.bndCall(new Callable<List<Jar>>() {
+                @Override
+                public List<Jar> call() throws Exception {
+                    return build(context, diffs, pb.getSubBuilders());
                 }
-                if (builder != null) {
-                    if (!release(context, participants, builder)) {
+            }, monitor(context));
+            try {
+                while (!jars.isEmpty()) {
+                    if (!release(context, participants, jars.remove(0))) {
                         ret = false;
                     }
                 }
+            } finally {
+                for (Jar jar : jars) {
+                    jar.close();
+                }
             }
+        } finally {
+            pb.close();
         }
         return ret;
     }
 
+    private static List<Jar> build(ReleaseContext context, List<Baseline> diffs, List<Builder> builders) throws Exception {
+        List<Jar> jars = new ArrayList<Jar>();
+        try {
+            for (Baseline diff : diffs) {
+                for (Builder builder : builders) {
+                    if (builder.getBsn().equals(diff.getBsn())) {
+                        jars.add(build(context, builder));
+                        break;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            for (Jar jar : jars) {
+                jar.close();
+            }
+            throw e;
+        }
+        return jars;
+    }
+
+    private static Jar build(ReleaseContext context, Builder builder) throws Exception {
+        Jar jar;
+        if (context.getReleaseOption() == ReleaseOption.UPDATE_RELEASE) {
+            jar = builder.build();
+        } else {
+            // No need to rebuild if release only
+            File jarFile = new File(context.getProject().getTarget(), builder.getBsn() + ".jar");
+            if (jarFile.isFile()) {
+                jar = new Jar(jarFile);
+            } else {
+                jar = builder.build();
+            }
+        }
+
+        handleBuildErrors(context, builder, jar);
+        return jar;
+    }
+
     private static void handleBuildErrors(ReleaseContext context, Reporter reporter, Jar jar) {
         String symbName = null;
         String version = null;
@@ -262,24 +335,8 @@ public class ReleaseHelper {
 
     }
 
-    private static boolean release(ReleaseContext context, List<IReleaseParticipant> participants, Builder builder) throws Exception {
-
-        Jar jar = null;
+    private static boolean release(ReleaseContext context, List<IReleaseParticipant> participants, Jar jar) throws Exception {
         try {
-            if (context.getReleaseOption() == ReleaseOption.UPDATE_RELEASE) {
-                jar = builder.build();
-            } else {
-                // No need to rebuild if release only
-                File jarFile = new File(context.getProject().getTarget(), builder.getBsn() + ".jar");
-                if (jarFile.isFile()) {
-                    jar = new Jar(jarFile);
-                } else {
-                    jar = builder.build();
-                }
-            }
-
-            handleBuildErrors(context, builder, jar);
-
             String symbName = ReleaseUtils.getBundleSymbolicName(jar);
             String version = ReleaseUtils.getBundleVersion(jar);
 
@@ -290,23 +347,28 @@ public class ReleaseHelper {
                 return false;
             }
 
-            try (JarResource jr = new JarResource(jar); InputStream is = new BufferedInputStream(jr.openInputStream())) {
-                context.getProject().release(context.getReleaseRepository().getName(), jar.getName(), is);
+            File file;
+            synchronized (RepositoryUtils.getWriteLock(context.getReleaseRepository())) {
+                try (JarResource jr = new JarResource(jar); InputStream is = new BufferedInputStream(jr.openInputStream())) {
+                    context.getProject().release(context.getReleaseRepository().getName(), jar.getName(), is);
 
-                if (!context.getProject().isOk()) {
-                    handleBuildErrors(context, context.getProject(), jar);
-                    displayErrors(context);
-                    context.getProject().clear();
-                    return false;
+                    if (!context.getProject().isOk()) {
+                        handleBuildErrors(context, context.getProject(), jar);
+                        displayErrors(context);
+                        context.getProject().clear();
+                        return false;
+                    }
                 }
-            }
 
-            File file = context.getReleaseRepository().get(symbName, Version.parseVersion(version), null);
+                file = context.getReleaseRepository().get(symbName, Version.parseVersion(version), null);
+            }
             Jar releasedJar = null;
             if (file != null && file.exists()) {
-                IResource resource = ReleaseUtils.toResource(file);
-                if (resource != null) {
-                    resource.refreshLocal(IResource.DEPTH_ZERO, null);
+                if (!isRepositoryRefreshDeferred(context)) {
+                    IResource resource = ReleaseUtils.toResource(file);
+                    if (resource != null) {
+                        resource.refreshLocal(IResource.DEPTH_ZERO, null);
+                    }
                 }
                 releasedJar = jar;
                 jar = null;
@@ -329,6 +391,14 @@ public class ReleaseHelper {
         }
     }
 
+    private static IProgressMonitor monitor(ReleaseContext context) {
+        return context.getProgressMonitor() != null ? context.getProgressMonitor() : new NullProgressMonitor();
+    }
+
+    static boolean isRepositoryRefreshDeferred(ReleaseContext context) {
+        return Boolean.TRUE.equals(context.getProperty(DEFER_REPOSITORY_REFRESH));
+    }
+
     private static boolean preUpdateProjectVersions(ReleaseContext context, List<IReleaseParticipant> participants) {
         context.setCurrentScope(Scope.PRE_UPDATE_VERSIONS);
         for (IReleaseParticipant participant : participants) {
@@ -51,7 +51,7 @@ public class ReleaseJob  extends Job {
 
 			ResourcesPlugin.getWorkspace().getRoot().getProject(context.getProject().getName()).refreshLocal(IResource.DEPTH_INFINITE, context.getProgressMonitor());
 
-			if (context.getReleaseRepository() != null) {
+			if (context.getReleaseRepository() != null && !ReleaseHelper.isRepositoryRefreshDeferred(context)) {
 				File f = Activator.getLocalRepoLocation(context.getReleaseRepository());
 				if (f != null && f.exists()) {
 					Activator.refreshFile(f);
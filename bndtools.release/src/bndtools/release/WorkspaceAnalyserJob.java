@@ -11,14 +11,20 @@
 package bndtools.release;
 
 import java.util.ArrayList;
+import java.io.File;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
@@ -33,6 +39,9 @@ import aQute.bnd.build.Workspace;
 import aQute.bnd.differ.Baseline;
 import aQute.bnd.osgi.Builder;
 import aQute.bnd.osgi.Constants;
+import aQute.lib.io.IO;
+import bndtools.central.Central;
+import bndtools.release.DiffHelper.PreparedBaseline;
 import bndtools.release.api.ReleaseUtils;
 import bndtools.release.nl.Messages;
 import bndtools.release.ui.WorkspaceReleaseDialog;
@@ -66,43 +75,14 @@ public class WorkspaceAnalyserJob extends Job {
                 return Status.CANCEL_STATUS;
             }
 
-            final List<ProjectDiff> projectDiffs = new ArrayList<ProjectDiff>();
             mon.setTaskName(Messages.processingProjects);
-            for (Project project : orderedProjects) {
-                IProject eProject = ReleaseUtils.getProject(project);
-                if (!isIncluded(eProject)) {
-                    mon.worked(1);
-                    continue;
-                }
-                if ("".equals(project.getProperty(Constants.RELEASEREPO, null))) {
-                    mon.worked(1);
-                    continue;
-                }
-                if (eProject == null || !eProject.isOpen() || !eProject.isAccessible()) {
-                    mon.worked(1);
-                    continue;
-                }
-                List<Baseline> jarDiffs = null;
-                try (ProjectBuilder pb = project.getBuilder(null)) {
-                    for (Builder b : pb.getSubBuilders()) {
-                        mon.subTask(String.format(Messages.processingProject, b.getBsn()));
-
-                        Baseline jarDiff = DiffHelper.createBaseline(b);
-                        if (jarDiff != null) {
-                            if (jarDiffs == null) {
-                                jarDiffs = new ArrayList<Baseline>();
-                            }
-                            jarDiffs.add(jarDiff);
-                        }
-                    }
-                }
-                if (jarDiffs != null && jarDiffs.size() > 0) {
-                    projectDiffs.add(new ProjectDiff(project, jarDiffs));
-                }
-                if (mon.isCanceled()) {
-                    return Status.CANCEL_STATUS;
-                }
-                mon.worked(1);
+            MultiStatus problems = new MultiStatus(Activator.PLUGIN_ID, 0, Messages.workspaceReleaseJob1, null);
+            final List<ProjectDiff> projectDiffs = analyseProjects(orderedProjects, problems, mon);
+            if (problems.getChildren().length > 0) {
+                Activator.log(problems);
+            }
+            if (mon.isCanceled()) {
+                return Status.CANCEL_STATUS;
             }
 
             if (projectDiffs.size() == 0) {
@@ -139,7 +119,6 @@ public class WorkspaceAnalyserJob extends Job {
                             return;
                         }
                         WorkspaceReleaseJob releaseJob = new WorkspaceReleaseJob(projectDiffs, dialog.getReleaseOption(), dialog.isShowMessage());
-                        releaseJob.setRule(ResourcesPlugin.getWorkspace().getRoot());
                         releaseJob.schedule();
                     }
                 }
@@ -158,36 +137,159 @@ public class WorkspaceAnalyserJob extends Job {
     }
 
     private static List<Project> getBuildOrder(IProgressMonitor monitor, Workspace workspace) throws Exception {
-
-        List<Project> outlist = new ArrayList<Project>();
         monitor.setTaskName(Messages.calculatingBuildPath);
-        for (Project project : workspace.getAllProjects()) {
+        List<Project> outlist = new ArrayList<Project>(workspace.getBuildOrder());
+        monitor.worked(outlist.size());
+        return outlist;
+    }
 
-            monitor.subTask(String.format(Messages.resolvingDependenciesForProject, project.getName()));
-            Collection<Project> dependsOn = project.getDependson();
+    /**
+     * Baseline the projects. The jars to compare are obtained one project at a time in build order, under the bnd lock,
+     * because an out of date jar is rebuilt and bnd projects are not thread safe. Only the diffing of the jars of a
+     * project, which reads the jars and reports to the project's own builders, runs on a pool while the next projects
+     * are prepared. The source folders of a project are checked for changes once, outside the bnd lock. Sub-bundles
+     * that cannot be baselined are reported to {@code problems} and left out.
+     */
+    private List<ProjectDiff> analyseProjects(List<Project> orderedProjects, final MultiStatus problems, final IProgressMonitor mon) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+        List<Future<ProjectDiff>> futures = new ArrayList<Future<ProjectDiff>>();
+        try {
+            for (final Project project : orderedProjects) {
+                if (mon.isCanceled()) {
+                    break;
+                }
+                final List<File> sourcePath = Central.bndCall(new Callable<List<File>>() {
+                    @Override
+                    public List<File> call() throws Exception {
+                        return isReleased(project) ? new ArrayList<File>(project.getSourcePath()) : null;
+                    }
+                });
+                PreparedProject prepared = null;
+                if (sourcePath != null) {
+                    final long sourceModified = DiffHelper.lastModified(sourcePath);
+                    prepared = Central.bndCall(new Callable<PreparedProject>() {
+                        @Override
+                        public PreparedProject call() throws Exception {
+                            return prepareProject(project, sourceModified, problems, mon);
+                        }
+                    });
+                }
+                if (prepared == null) {
+                    synchronized (mon) {
+                        mon.worked(1);
+                    }
+                    continue;
+                }
+                final PreparedProject diffed = prepared;
+                futures.add(executor.submit(new Callable<ProjectDiff>() {
+                    @Override
+                    public ProjectDiff call() throws Exception {
+                        try {
+                            return mon.isCanceled() ? null : diffed.diff(problems);
+                        } finally {
+                            diffed.close();
+                            synchronized (mon) {
+                                mon.worked(1);
+                            }
+                        }
+                    }
+                }));
+            }
 
-            getBuildOrder(dependsOn, outlist);
+            List<ProjectDiff> projectDiffs = new ArrayList<ProjectDiff>();
+            for (Future<ProjectDiff> future : futures) {
+                ProjectDiff diff;
+                try {
+                    diff = future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
+                    }
+                    throw e;
+                }
+                if (diff != null) {
+                    projectDiffs.add(diff);
+                }
+            }
+            return projectDiffs;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-            if (!outlist.contains(project)) {
-                outlist.add(project);
+    private boolean isReleased(Project project) {
+        IProject eProject = ReleaseUtils.getProject(project);
+        if (!isIncluded(eProject)) {
+            return false;
+        }
+        if ("".equals(project.getProperty(Constants.RELEASEREPO, null))) {
+            return false;
+        }
+        return eProject != null && eProject.isOpen() && eProject.isAccessible();
+    }
+
+    private static PreparedProject prepareProject(Project project, long sourceModified, MultiStatus problems, IProgressMonitor mon) throws Exception {
+        ProjectBuilder pb = project.getBuilder(null);
+        PreparedProject prepared = new PreparedProject(project, pb);
+        try {
+            for (Builder b : pb.getSubBuilders()) {
+                if (mon.isCanceled()) {
+                    break;
+                }
+                synchronized (mon) {
+                    mon.subTask(String.format(Messages.processingProject, b.getBsn()));
+                }
+                if (b instanceof ProjectBuilder) {
+                    try {
+                        prepared.baselines.add(DiffHelper.prepareBaseline((ProjectBuilder) b, sourceModified));
+                    } catch (Exception e) {
+                        addProblem(problems, b.getBsn(), e);
+                    }
+                }
             }
-            monitor.worked(1);
+        } catch (Exception e) {
+            prepared.close();
+            throw e;
         }
-        return outlist;
+        return prepared;
     }
 
-    private static void getBuildOrder(Collection<Project> dependsOn, List<Project> outlist) throws Exception {
+    /*
+     * The baselines of the sub-builders of a project, ready to be diffed.
+     */
+    private static class PreparedProject {
+        final Project project;
+        final ProjectBuilder projectBuilder;
+        final List<PreparedBaseline> baselines = new ArrayList<PreparedBaseline>();
 
-        for (Project project : dependsOn) {
-            Collection<Project> subProjects = project.getDependson();
-            for (Project subProject : subProjects) {
-                if (!outlist.contains(subProject)) {
-                    outlist.add(subProject);
+        PreparedProject(Project project, ProjectBuilder projectBuilder) {
+            this.project = project;
+            this.projectBuilder = projectBuilder;
+        }
+
+        ProjectDiff diff(MultiStatus problems) throws Exception {
+            List<Baseline> jarDiffs = new ArrayList<Baseline>();
+            for (PreparedBaseline baseline : baselines) {
+                try {
+                    jarDiffs.add(baseline.diff());
+                } catch (Exception e) {
+                    addProblem(problems, baseline.getBsn(), e);
                 }
             }
-            if (!outlist.contains(project)) {
-                outlist.add(project);
+            return jarDiffs.isEmpty() ? null : new ProjectDiff(project, jarDiffs);
+        }
+
+        void close() {
+            for (PreparedBaseline baseline : baselines) {
+                baseline.close();
             }
+            IO.close(projectBuilder);
+        }
+    }
+
+    private static void addProblem(MultiStatus problems, String bsn, Exception e) {
+        synchronized (problems) {
+            problems.add(new Status(IStatus.WARNING, Activator.PLUGIN_ID, 0, "Unable to baseline " + bsn + ": " + e.getMessage(), e));
         }
     }
 
@@ -10,22 +10,44 @@
  *******************************************************************************/
 package bndtools.release;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 
+import aQute.bnd.build.Project;
 import aQute.bnd.service.RepositoryPlugin;
 import bndtools.release.api.ReleaseContext;
 import bndtools.release.api.ReleaseOption;
+import bndtools.release.api.ReleaseUtils;
 import bndtools.release.nl.Messages;
 
+/**
+ * Releases a set of projects as a pipeline. Every project is released by its own {@link ReleaseJob}, scheduled with
+ * the project as its scheduling rule once the released projects it depends on are done, so versions are updated in
+ * dependency order. The bnd work of a release (updating versions and building) runs under the bnd lock, so only the
+ * uploads of independent projects run concurrently. Uploads to a repository are serialised and the workspace view of
+ * each release repository is refreshed once at the end.
+ */
 public class WorkspaceReleaseJob extends Job {
 
+	private static final long CANCEL_POLL_MILLIS = 200;
+
 	private List<ProjectDiff> projectDiffs;
 	private ReleaseOption releaseOption;
 	private final boolean showMessage;
@@ -38,27 +60,160 @@ public class WorkspaceReleaseJob extends Job {
 	}
 
 	@Override
-	protected IStatus run(IProgressMonitor monitor) {
+	protected IStatus run(final IProgressMonitor monitor) {
 
-		monitor.beginTask(Messages.releasingProjects, projectDiffs.size());
+		final Map<Project,ReleaseJob> jobs = new LinkedHashMap<Project,ReleaseJob>();
+		Set<RepositoryPlugin> repositories = new LinkedHashSet<RepositoryPlugin>();
 		for (ProjectDiff projectDiff : projectDiffs) {
-			if (projectDiff.isRelease()) {
+			if (!projectDiff.isRelease()) {
+				continue;
+			}
+
+			RepositoryPlugin release = null;
+			if (projectDiff.getReleaseRepository() != null) {
+				release = Activator.getRepositoryPlugin(projectDiff.getReleaseRepository());
+			}
+			if (release != null) {
+				repositories.add(release);
+			}
 
-				RepositoryPlugin release = null;
-				if (projectDiff.getReleaseRepository() != null) {
-					release = Activator.getRepositoryPlugin(projectDiff.getReleaseRepository());
+			ReleaseContext context = new ReleaseContext(projectDiff.getProject(), projectDiff.getBaselines(), release, releaseOption);
+			context.setProperty(ReleaseHelper.DEFER_REPOSITORY_REFRESH, Boolean.TRUE);
+			ReleaseJob job = new ReleaseJob(context, showMessage);
+			job.setRule(ReleaseUtils.getProject(projectDiff.getProject()));
+			jobs.put(projectDiff.getProject(), job);
+		}
+
+		monitor.beginTask(Messages.releasingProjects, jobs.size() + 1);
+
+		// Count the released projects each job waits for, and who to notify when a job is done
+		final Map<ReleaseJob,AtomicInteger> pending = new HashMap<ReleaseJob,AtomicInteger>();
+		final Map<ReleaseJob,List<ReleaseJob>> dependents = new HashMap<ReleaseJob,List<ReleaseJob>>();
+		for (Entry<Project,ReleaseJob> entry : jobs.entrySet()) {
+			Set<ReleaseJob> upstream = new HashSet<ReleaseJob>();
+			try {
+				collectUpstream(entry.getKey(), jobs, upstream, new HashSet<Project>());
+			} catch (Exception e) {
+				return new Status(IStatus.ERROR, Activator.PLUGIN_ID, e.getMessage(), e);
+			}
+			upstream.remove(entry.getValue());
+			pending.put(entry.getValue(), new AtomicInteger(upstream.size()));
+			for (ReleaseJob job : upstream) {
+				List<ReleaseJob> list = dependents.get(job);
+				if (list == null) {
+					list = new ArrayList<ReleaseJob>();
+					dependents.put(job, list);
 				}
+				list.add(entry.getValue());
+			}
+		}
 
-				ReleaseContext context = new ReleaseContext(projectDiff.getProject(), projectDiff.getBaselines(), release, releaseOption);
-				ReleaseJob job = new ReleaseJob(context, showMessage);
-				job.setRule(ResourcesPlugin.getWorkspace().getRoot());
-				job.run(new SubProgressMonitor(monitor, 1));
+		Pipeline pipeline = new Pipeline(pending, dependents, monitor);
+		for (ReleaseJob job : jobs.values()) {
+			job.addJobChangeListener(pipeline);
+		}
+		for (ReleaseJob job : jobs.values()) {
+			if (pending.get(job).get() == 0) {
+				pipeline.start(job);
+			}
+		}
+
+		try {
+			while (!pipeline.done.await(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+				if (monitor.isCanceled()) {
+					pipeline.cancel();
+				}
 			}
-			monitor.worked(1);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return Status.CANCEL_STATUS;
 		}
+
+		// Each ReleaseJob reports its own errors; the repositories are refreshed once for the whole batch
+		for (RepositoryPlugin repository : repositories) {
+			try {
+				Activator.refreshFile(Activator.getLocalRepoLocation(repository));
+			} catch (Exception e) {
+				Activator.log(e.getMessage(), IStatus.ERROR);
+			}
+		}
+		monitor.worked(1);
 		monitor.done();
 
-		return Status.OK_STATUS;
+		return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+	}
+
+	/**
+	 * Starts each release job once all released projects it depends on are done. After cancellation the remaining
+	 * jobs are not scheduled but are still counted as done, so the pipeline always drains.
+	 */
+	private static final class Pipeline extends JobChangeAdapter {
+		private final Map<ReleaseJob,AtomicInteger> pending;
+		private final Map<ReleaseJob,List<ReleaseJob>> dependents;
+		private final IProgressMonitor monitor;
+		final CountDownLatch done;
+		private boolean cancelled;
+
+		Pipeline(Map<ReleaseJob,AtomicInteger> pending, Map<ReleaseJob,List<ReleaseJob>> dependents, IProgressMonitor monitor) {
+			this.pending = pending;
+			this.dependents = dependents;
+			this.monitor = monitor;
+			this.done = new CountDownLatch(pending.size());
+		}
+
+		/**
+		 * Cancels the scheduled and running release jobs; jobs not yet started are skipped by {@link #start(ReleaseJob)}.
+		 */
+		void cancel() {
+			if (cancelled) {
+				return;
+			}
+			cancelled = true;
+			for (ReleaseJob job : pending.keySet()) {
+				job.cancel();
+			}
+		}
+
+		void start(ReleaseJob job) {
+			if (monitor.isCanceled()) {
+				finished(job);
+			} else {
+				job.schedule();
+			}
+		}
+
+		@Override
+		public void done(IJobChangeEvent event) {
+			finished((ReleaseJob) event.getJob());
+		}
+
+		private void finished(ReleaseJob job) {
+			List<ReleaseJob> list = dependents.get(job);
+			if (list != null) {
+				for (ReleaseJob dependent : list) {
+					if (pending.get(dependent).decrementAndGet() == 0) {
+						start(dependent);
+					}
+				}
+			}
+			synchronized (monitor) {
+				monitor.worked(1);
+			}
+			done.countDown();
+		}
+	}
+
+	private static void collectUpstream(Project project, Map<Project,ReleaseJob> jobs, Set<ReleaseJob> upstream, Set<Project> visited) throws Exception {
+		for (Project dependency : project.getDependson()) {
+			if (!visited.add(dependency)) {
+				continue;
+			}
+			ReleaseJob job = jobs.get(dependency);
+			if (job != null) {
+				upstream.add(job);
+			}
+			collectUpstream(dependency, jobs, upstream, visited);
+		}
 	}
 
 }
@@ -0,0 +1,106 @@
+#!/bin/sh
+#
+# Generate a bnd workspace with a given number of projects, to measure the
+# startup of the bnd workspace in bndtools. See readme.md.
+#
+# Usage: generate-workspace.sh <directory> [<projects>]
+#
+
+set -e
+
+if [ $# -lt 1 ]; then
+	echo "Usage: $0 <directory> [<projects>]" >&2
+	exit 1
+fi
+
+ws="$1"
+count="${2:-200}"
+
+if [ -e "$ws" ]; then
+	echo "$ws already exists" >&2
+	exit 1
+fi
+
+mkdir -p "$ws/cnf"
+cat > "$ws/cnf/build.bnd" <<BND
+# Generated startup workspace; no remote repositories, so the startup time is
+# spent on the projects.
+javac.source: 1.8
+javac.target: 1.8
+BND
+cat > "$ws/cnf/.project" <<XML
+<?xml version="1.0" encoding="UTF-8"?>
+<projectDescription>
+	<name>cnf</name>
+	<comment></comment>
+	<projects>
+	</projects>
+	<buildSpec>
+	</buildSpec>
+	<natures>
+	</natures>
+</projectDescription>
+XML
+
+# Projects form chains of ten, so the build order has depth as well as width
+i=1
+while [ "$i" -le "$count" ]; do
+	name=$(printf "startup.p%04d" "$i")
+	pkg=$(printf "startup.p%04d" "$i")
+	dir="$ws/$name"
+	mkdir -p "$dir/src/$(echo "$pkg" | tr . /)"
+
+	if [ $((i % 10)) -ne 1 ]; then
+		previous=$(printf "startup.p%04d" $((i - 1)))
+		echo "-buildpath: $previous;version=latest" > "$dir/bnd.bnd"
+	else
+		: > "$dir/bnd.bnd"
+	fi
+	echo "Export-Package: $pkg" >> "$dir/bnd.bnd"
+
+	cat > "$dir/src/$(echo "$pkg" | tr . /)/Type.java" <<JAVA
+package $pkg;
+
+public class Type {}
+JAVA
+
+	cat > "$dir/.project" <<XML
+<?xml version="1.0" encoding="UTF-8"?>
+<projectDescription>
+	<name>$name</name>
+	<comment></comment>
+	<projects>
+	</projects>
+	<buildSpec>
+		<buildCommand>
+			<name>org.eclipse.jdt.core.javabuilder</name>
+			<arguments>
+			</arguments>
+		</buildCommand>
+		<buildCommand>
+			<name>bndtools.core.bndbuilder</name>
+			<arguments>
+			</arguments>
+		</buildCommand>
+	</buildSpec>
+	<natures>
+		<nature>org.eclipse.jdt.core.javanature</nature>
+		<nature>bndtools.core.bndnature</nature>
+	</natures>
+</projectDescription>
+XML
+
+	cat > "$dir/.classpath" <<XML
+<?xml version="1.0" encoding="UTF-8"?>
+<classpath>
+	<classpathentry kind="src" output="bin" path="src"/>
+	<classpathentry kind="con" path="org.eclipse.jdt.launching.JRE_CONTAINER/org.eclipse.jdt.internal.debug.ui.launcher.StandardVMType/JavaSE-1.8"/>
+	<classpathentry kind="con" path="aQute.bnd.classpath.container"/>
+	<classpathentry kind="output" path="bin"/>
+</classpath>
+XML
+
+	i=$((i + 1))
+done
+
+echo "Generated $count projects in $ws"